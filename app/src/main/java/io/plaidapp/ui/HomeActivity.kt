@@ -55,12 +55,10 @@ import androidx.lifecycle.Observer
 import androidx.recyclerview.widget.GridLayoutManager
 import androidx.recyclerview.widget.ItemTouchHelper
 import androidx.recyclerview.widget.RecyclerView
-import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader
-import com.bumptech.glide.util.ViewPreloadSizeProvider
 import io.plaidapp.R
 import io.plaidapp.core.dagger.qualifier.IsPocketInstalled
+import io.plaidapp.core.data.ServiceIdKey
 import io.plaidapp.core.data.prefs.SourcesRepository
-import io.plaidapp.core.dribbble.data.api.model.Shot
 import io.plaidapp.core.feed.FeedAdapter
 import io.plaidapp.core.feed.FeedProgressUiModel
 import io.plaidapp.core.feed.FeedUiModel
@@ -71,12 +69,15 @@ import io.plaidapp.core.ui.filter.FilterAnimator
 import io.plaidapp.core.ui.filter.SourcesHighlightUiModel
 import io.plaidapp.core.ui.filter.SourcesUiModel
 import io.plaidapp.core.ui.recyclerview.InfiniteScrollListener
+import io.plaidapp.core.ui.recyclerview.PrefetchController
+import io.plaidapp.core.ui.recyclerview.PrefetchPreloader
 import io.plaidapp.core.util.Activities
 import io.plaidapp.core.util.AnimUtils
 import io.plaidapp.core.util.ColorUtils
 import io.plaidapp.core.util.ViewUtils
 import io.plaidapp.core.util.drawableToBitmap
 import io.plaidapp.core.util.event.Event
+import io.plaidapp.core.util.glide.GlideApp
 import io.plaidapp.core.util.intentTo
 import io.plaidapp.dagger.inject
 import io.plaidapp.ui.recyclerview.FilterTouchHelperCallback
@@ -92,6 +93,7 @@ class HomeActivity : AppCompatActivity() {
 
     private var columns = 0
     private var filtersAdapter = FilterAdapter()
+    private val prefetchController = PrefetchController()
     private lateinit var gridLayoutManager: GridLayoutManager
     private lateinit var drawer: DrawerLayout
 
@@ -251,6 +253,7 @@ class HomeActivity : AppCompatActivity() {
         })
 
         viewModel.feedProgress.observe(this@HomeActivity, Observer<FeedProgressUiModel> {
+            prefetchController.onLoadingChanged(it.isLoading)
             if (it.isLoading) {
                 feedAdapter.dataStartedLoading()
             } else {
@@ -259,7 +262,7 @@ class HomeActivity : AppCompatActivity() {
         })
 
         viewModel.getFeed(columns).observe(this@HomeActivity, Observer<FeedUiModel> {
-            feedAdapter.items = it.items
+            feedAdapter.submit(it)
             checkEmptyState()
         })
     }
@@ -283,7 +286,7 @@ class HomeActivity : AppCompatActivity() {
             }
         }
         val infiniteScrollListener =
-            object : InfiniteScrollListener(gridLayoutManager) {
+            object : InfiniteScrollListener(gridLayoutManager, prefetchController) {
                 override fun onLoadMore() {
                     viewModel.loadData()
                 }
@@ -294,12 +297,12 @@ class HomeActivity : AppCompatActivity() {
                 }
             }
 
-        val shotPreloadSizeProvider = ViewPreloadSizeProvider<Shot>()
-        val shotPreloader = RecyclerViewPreloader(
-            this@HomeActivity,
+        val shotPreloader = PrefetchPreloader(
+            GlideApp.with(this),
+            gridLayoutManager,
             feedAdapter,
-            shotPreloadSizeProvider,
-            4
+            feedAdapter,
+            prefetchController
         )
 
         with(grid) {
@@ -317,6 +320,7 @@ class HomeActivity : AppCompatActivity() {
             itemAnimator = HomeGridItemAnimator()
             addOnScrollListener(shotPreloader)
         }
+        feedAdapter.registerAdapterDataObserver(shotPreloader.adapterDataObserver)
     }
 
     private fun handleDrawerInsets(insets: WindowInsets) {
@@ -377,11 +381,12 @@ class HomeActivity : AppCompatActivity() {
             Activities.Dribbble.Shot.RESULT_EXTRA_SHOT_ID,
             -1L
         )
+        val sharedItemId = ServiceIdKey.shotKey(sharedShotId)
         if (sharedShotId != -1L && // returning from a shot
             feedAdapter.items.isNotEmpty() && // grid populated
-            grid.findViewHolderForItemId(sharedShotId) == null
+            grid.findViewHolderForItemId(sharedItemId) == null
         ) { // view not attached
-            val position = feedAdapter.getItemPosition(sharedShotId)
+            val position = feedAdapter.getItemPosition(sharedItemId)
             if (position == RecyclerView.NO_POSITION) return
 
             // delay the transition until our shared element is on-screen i.e. has been laid out
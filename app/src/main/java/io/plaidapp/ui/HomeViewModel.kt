@@ -19,27 +19,27 @@ package io.plaidapp.ui
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import androidx.lifecycle.liveData
-import androidx.lifecycle.switchMap
 import androidx.lifecycle.viewModelScope
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
 import io.plaidapp.core.data.DataLoadingSubject
 import io.plaidapp.core.data.DataManager
 import io.plaidapp.core.data.OnDataLoadedCallback
-import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.data.PlaidItemFeed
 import io.plaidapp.core.data.SourceItem
+import io.plaidapp.core.data.feed.FeedPage
 import io.plaidapp.core.data.prefs.SourcesRepository
 import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem
 import io.plaidapp.core.designernews.data.login.LoginRepository
 import io.plaidapp.core.dribbble.data.DribbbleSourceItem
+import io.plaidapp.core.feed.FeedDiffer
 import io.plaidapp.core.feed.FeedProgressUiModel
 import io.plaidapp.core.feed.FeedUiModel
-import io.plaidapp.core.ui.expandPopularItems
+import io.plaidapp.core.ui.addForDisplay
 import io.plaidapp.core.ui.filter.FiltersChangedCallback
 import io.plaidapp.core.ui.filter.SourceUiModel
 import io.plaidapp.core.ui.filter.SourcesHighlightUiModel
 import io.plaidapp.core.ui.filter.SourcesUiModel
-import io.plaidapp.core.ui.getPlaidItemsForDisplay
+import io.plaidapp.core.ui.replaceForDisplay
 import io.plaidapp.core.util.event.Event
 import kotlinx.coroutines.launch
 import java.util.Collections
@@ -65,24 +65,32 @@ class HomeViewModel(
     val feedProgress: LiveData<FeedProgressUiModel>
         get() = _feedProgress
 
-    private val feedData = MutableLiveData<List<PlaidItem>>()
+    // the feed is only updated on the main thread, where the differ lays it out for display
+    private val feed = PlaidItemFeed()
+    private var differ: FeedDiffer? = null
+    private val feedUiModel = MutableLiveData<FeedUiModel>()
 
-    private val onDataLoadedCallback = object : OnDataLoadedCallback<List<PlaidItem>> {
-        override fun onDataLoaded(data: List<PlaidItem>) {
-            val oldItems = feedData.value.orEmpty()
-            updateFeedData(oldItems, data)
+    private val onDataLoadedCallback = object : OnDataLoadedCallback<FeedPage> {
+        override fun onDataLoaded(data: FeedPage) {
+            viewModelScope.launch(dispatcherProvider.main) {
+                updateFeedData(data)
+            }
         }
     }
     // listener for notifying adapter when data sources are deactivated
     private val filtersChangedCallbacks = object : FiltersChangedCallback() {
         override fun onFiltersChanged(changedFilter: SourceItem) {
             if (!changedFilter.active) {
-                handleDataSourceRemoved(changedFilter.key, feedData.value.orEmpty())
+                viewModelScope.launch(dispatcherProvider.main) {
+                    handleDataSourceRemoved(changedFilter.key)
+                }
             }
         }
 
         override fun onFilterRemoved(sourceKey: String) {
-            handleDataSourceRemoved(sourceKey, feedData.value.orEmpty())
+            viewModelScope.launch(dispatcherProvider.main) {
+                handleDataSourceRemoved(sourceKey)
+            }
         }
 
         override fun onFiltersUpdated(sources: List<SourceItem>) {
@@ -108,11 +116,13 @@ class HomeViewModel(
         loadData()
     }
 
-    fun getFeed(columns: Int) = feedData.switchMap {
-        liveData(viewModelScope.coroutineContext + dispatcherProvider.computation) {
-            expandPopularItems(it, columns)
-            emit(FeedUiModel(it))
+    fun getFeed(columns: Int): LiveData<FeedUiModel> {
+        if (differ?.columns != columns) {
+            val differ = FeedDiffer(columns)
+            this.differ = differ
+            if (feed.size > 0) feedUiModel.value = differ.diff(feed.asList())
         }
+        return feedUiModel
     }
 
     fun isDesignerNewsUserLoggedIn() = designerNewsLoginRepository.isLoggedIn
@@ -205,16 +215,26 @@ class HomeViewModel(
         }
     }
 
-    private fun updateFeedData(oldItems: List<PlaidItem>, newItems: List<PlaidItem>) {
-        feedData.postValue(getPlaidItemsForDisplay(oldItems, newItems))
+    private fun updateFeedData(page: FeedPage) {
+        val differ = differ
+        // only the pages already in the feed, e.g. restored from disk, need replacing
+        if (feed.hasPage(page.sourceKey, page.page)) {
+            feed.replaceForDisplay(page)
+            if (differ != null) feedUiModel.value = differ.diff(feed.asList())
+        } else {
+            val inserted = feed.addForDisplay(page)
+            if (differ != null && inserted.isNotEmpty()) {
+                feedUiModel.value = differ.inserted(feed.asList(), inserted)
+            }
+        }
     }
 
-    private fun handleDataSourceRemoved(dataSourceKey: String, oldItems: List<PlaidItem>) {
-        val items = oldItems.toMutableList()
-        items.removeAll {
-            dataSourceKey == it.dataSource
+    private fun handleDataSourceRemoved(dataSourceKey: String) {
+        val removed = feed.removeSource(dataSourceKey)
+        val differ = differ
+        if (differ != null && removed.isNotEmpty()) {
+            feedUiModel.value = differ.removed(feed.asList(), removed)
         }
-        feedData.postValue(items)
     }
 
     private fun createNewSourceUiModels(sources: List<SourceItem>): List<SourceUiModel> {
@@ -24,12 +24,15 @@ import androidx.appcompat.app.AppCompatDelegate.MODE_NIGHT_FOLLOW_SYSTEM
 import androidx.appcompat.app.AppCompatDelegate.setDefaultNightMode
 import androidx.core.os.BuildCompat
 import io.plaidapp.core.dagger.CoreComponent
+import io.plaidapp.core.dagger.CoreComponentProvider
+import io.plaidapp.core.dagger.CoreDataModule
 import io.plaidapp.core.dagger.DaggerCoreComponent
+import io.plaidapp.core.data.cache.MemoryCaches
 
 /**
  * Io and Behold
  */
-class PlaidApplication : Application() {
+class PlaidApplication : Application(), CoreComponentProvider {
 
     override fun onCreate() {
         super.onCreate()
@@ -41,8 +44,15 @@ class PlaidApplication : Application() {
         setDefaultNightMode(nightMode)
     }
 
-    private val coreComponent: CoreComponent by lazy {
-        DaggerCoreComponent.create()
+    override fun onTrimMemory(level: Int) {
+        super.onTrimMemory(level)
+        MemoryCaches.onTrimMemory(level)
+    }
+
+    override val coreComponent: CoreComponent by lazy {
+        DaggerCoreComponent.builder()
+            .coreDataModule(CoreDataModule(this))
+            .build()
     }
 
     companion object {
@@ -29,6 +29,7 @@ import io.plaidapp.core.data.DataManager
 import io.plaidapp.core.data.OnDataLoadedCallback
 import io.plaidapp.core.data.PlaidItem
 import io.plaidapp.core.data.SourceItem
+import io.plaidapp.core.data.feed.FeedPage
 import io.plaidapp.core.data.prefs.SourcesRepository
 import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem
 import io.plaidapp.core.designernews.data.login.LoginRepository
@@ -82,7 +83,7 @@ class HomeViewModelTest {
     private lateinit var dataLoadingCallback: ArgumentCaptor<DataLoadingSubject.DataLoadingCallbacks>
 
     @Captor
-    private lateinit var dataLoadedCallback: ArgumentCaptor<OnDataLoadedCallback<List<PlaidItem>>>
+    private lateinit var dataLoadedCallback: ArgumentCaptor<OnDataLoadedCallback<FeedPage>>
 
     @Before
     fun setup() {
@@ -376,7 +377,7 @@ class HomeViewModelTest {
         verify(dataManager).setOnDataLoadedCallback(capture(dataLoadedCallback))
 
         // When data loaded
-        dataLoadedCallback.value.onDataLoaded(listOf(post, shot, story))
+        dataLoadedCallback.value.onDataLoaded(FeedPage(SOURCE_KEY, 1, listOf(post, shot, story)))
 
         // Then feed emits a new list
         val feed = LiveDataTestUtil.getValue(homeViewModel.getFeed(2))
@@ -388,7 +389,7 @@ class HomeViewModelTest {
         verify(dataManager).setOnDataLoadedCallback(capture(dataLoadedCallback))
 
         // When data loaded return feedData
-        dataLoadedCallback.value.onDataLoaded(feedData)
+        dataLoadedCallback.value.onDataLoaded(FeedPage(SOURCE_KEY, 1, feedData))
 
         return homeViewModel
     }
@@ -404,4 +405,8 @@ class HomeViewModelTest {
             provideFakeCoroutinesDispatcherProvider(coroutinesRule.testDispatcher)
         )
     }
+
+    companion object {
+        private const val SOURCE_KEY = "source"
+    }
 }
@@ -33,6 +33,7 @@ interface CoreComponent {
 
     @Component.Builder interface Builder {
         fun build(): CoreComponent
+        fun coreDataModule(module: CoreDataModule): Builder
     }
 
     fun provideOkHttpClient(): OkHttpClient
@@ -16,24 +16,60 @@
 
 package io.plaidapp.core.dagger
 
+import android.content.Context
 import com.google.gson.Gson
 import dagger.Module
 import dagger.Provides
 import io.plaidapp.core.BuildConfig
+import io.plaidapp.core.data.api.BandwidthMeter
+import okhttp3.Cache
+import okhttp3.Dispatcher
 import okhttp3.OkHttpClient
 import okhttp3.logging.HttpLoggingInterceptor
 import retrofit2.converter.gson.GsonConverterFactory
+import java.io.File
 import javax.inject.Singleton
 
 /**
  * Dagger module to provide core data functionality.
+ *
+ * The [OkHttpClient] is shared by the whole app, so that every API reuses the same connection
+ * pool, dispatcher and HTTP cache. Clients for a specific API should be derived from it with
+ * [OkHttpClient.newBuilder], which keeps sharing them.
  */
 @Module
-class CoreDataModule {
+class CoreDataModule(
+    private val context: Context,
+    private val maxRequestsPerHost: Int = DEFAULT_MAX_REQUESTS_PER_HOST
+) {
+
+    @Provides
+    @Singleton
+    fun provideOkHttpClient(
+        interceptor: HttpLoggingInterceptor,
+        cache: Cache,
+        dispatcher: Dispatcher,
+        bandwidthMeter: BandwidthMeter
+    ): OkHttpClient =
+        OkHttpClient.Builder()
+            .cache(cache)
+            .dispatcher(dispatcher)
+            .eventListenerFactory(bandwidthMeter.eventListenerFactory)
+            .addInterceptor(interceptor)
+            .build()
 
     @Provides
-    fun provideOkHttpClient(interceptor: HttpLoggingInterceptor): OkHttpClient =
-        OkHttpClient.Builder().addInterceptor(interceptor).build()
+    fun provideBandwidthMeter(): BandwidthMeter = BandwidthMeter.getInstance()
+
+    @Provides
+    @Singleton
+    fun provideHttpCache(): Cache =
+        Cache(File(context.applicationContext.cacheDir, HTTP_CACHE_DIR), HTTP_CACHE_SIZE)
+
+    @Provides
+    @Singleton
+    fun provideDispatcher(): Dispatcher =
+        Dispatcher().apply { maxRequestsPerHost = this@CoreDataModule.maxRequestsPerHost }
 
     @Provides
     fun provideLoggingInterceptor(): HttpLoggingInterceptor =
@@ -53,4 +89,11 @@ class CoreDataModule {
     @Singleton
     fun provideGsonConverterFactory(gson: Gson): GsonConverterFactory =
         GsonConverterFactory.create(gson)
+
+    companion object {
+        // OkHttp's default, room enough for a page of every source of an API at once
+        const val DEFAULT_MAX_REQUESTS_PER_HOST = 5
+        private const val HTTP_CACHE_DIR = "http"
+        private const val HTTP_CACHE_SIZE = 10L * 1024 * 1024
+    }
 }
@@ -16,6 +16,8 @@
 
 package io.plaidapp.core.dagger
 
+import android.content.Context
+import com.google.gson.Gson
 import dagger.Module
 import dagger.Provides
 import io.plaidapp.core.dagger.designernews.DesignerNewsDataModule
@@ -23,7 +25,11 @@ import io.plaidapp.core.dagger.scope.FeatureScope
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
 import io.plaidapp.core.data.DataLoadingSubject
 import io.plaidapp.core.data.DataManager
+import io.plaidapp.core.data.database.FeedDatabase
+import io.plaidapp.core.data.feed.FeedLocalDataSource
+import io.plaidapp.core.data.feed.FeedRepository
 import io.plaidapp.core.data.prefs.SourcesRepository
+import io.plaidapp.core.designernews.data.stories.StoriesRepository
 import io.plaidapp.core.designernews.domain.LoadStoriesUseCase
 import io.plaidapp.core.designernews.domain.SearchStoriesUseCase
 import io.plaidapp.core.dribbble.data.ShotsRepository
@@ -43,6 +49,7 @@ class DataManagerModule {
         loadPosts: LoadPostsUseCase,
         shotsRepository: ShotsRepository,
         sourcesRepository: SourcesRepository,
+        feedRepository: FeedRepository,
         coroutinesDispatcherProvider: CoroutinesDispatcherProvider
     ): DataManager = getDataManager(
         loadStories,
@@ -50,6 +57,7 @@ class DataManagerModule {
         searchStories,
         shotsRepository,
         sourcesRepository,
+        feedRepository,
         coroutinesDispatcherProvider
     )
 
@@ -61,6 +69,7 @@ class DataManagerModule {
         searchStories: SearchStoriesUseCase,
         shotsRepository: ShotsRepository,
         sourcesRepository: SourcesRepository,
+        feedRepository: FeedRepository,
         coroutinesDispatcherProvider: CoroutinesDispatcherProvider
     ): DataLoadingSubject = getDataManager(
         loadStories,
@@ -68,6 +77,7 @@ class DataManagerModule {
         searchStories,
         shotsRepository,
         sourcesRepository,
+        feedRepository,
         coroutinesDispatcherProvider
     )
 
@@ -77,6 +87,7 @@ class DataManagerModule {
         searchStories: SearchStoriesUseCase,
         shotsRepository: ShotsRepository,
         sourcesRepository: SourcesRepository,
+        feedRepository: FeedRepository,
         coroutinesDispatcherProvider: CoroutinesDispatcherProvider
     ): DataManager {
         return DataManager(
@@ -85,7 +96,24 @@ class DataManagerModule {
             searchStories,
             shotsRepository,
             sourcesRepository,
+            feedRepository,
             coroutinesDispatcherProvider
         )
     }
+
+    @Provides
+    @FeatureScope
+    fun provideFeedRepository(
+        context: Context,
+        gson: Gson,
+        shotsRepository: ShotsRepository,
+        storiesRepository: StoriesRepository
+    ): FeedRepository {
+        val dao = FeedDatabase.getInstance(context).feedPageDao()
+        return FeedRepository.getInstance(
+            FeedLocalDataSource(dao, gson),
+            shotsRepository,
+            storiesRepository
+        )
+    }
 }
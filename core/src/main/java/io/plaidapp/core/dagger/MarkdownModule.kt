@@ -18,21 +18,37 @@ package io.plaidapp.core.dagger
 
 import `in`.uncod.android.bypass.Bypass
 import `in`.uncod.android.bypass.Markdown
+import `in`.uncod.android.bypass.StreamingMarkdown
 import android.util.DisplayMetrics
 import dagger.Module
 import dagger.Provides
 import io.plaidapp.core.dagger.scope.FeatureScope
 
 /**
- * Provide [Markdown] to this app's components.
+ * Provide [Markdown] to this app's components, rendered by the given [engine].
  */
 @Module
 class MarkdownModule constructor(
     private val displayMetrics: DisplayMetrics,
-    private val options: Bypass.Options = Bypass.Options()
+    private val options: Bypass.Options = Bypass.Options(),
+    private val engine: Engine = Engine.BYPASS
 ) {
 
     @Provides
     @FeatureScope
-    fun provideMarkdown(): Markdown = Bypass(displayMetrics, options)
+    fun provideMarkdown(): Markdown = when (engine) {
+        Engine.BYPASS -> Bypass(displayMetrics, options)
+        Engine.STREAMING -> StreamingMarkdown(displayMetrics, options)
+    }
+
+    enum class Engine {
+        /**
+         * Parses through the native bypass library.
+         */
+        BYPASS,
+        /**
+         * Parses in a single pass on the JVM, see [StreamingMarkdown].
+         */
+        STREAMING
+    }
 }
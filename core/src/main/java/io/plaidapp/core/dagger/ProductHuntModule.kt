@@ -46,6 +46,7 @@ class ProductHuntModule {
 
     @ProductHuntApi
     @Provides
+    @FeatureScope
     fun providePrivateOkHttpClient(
         upstreamClient: OkHttpClient
     ): OkHttpClient {
@@ -60,6 +60,7 @@ class DesignerNewsDataModule {
         AuthTokenLocalDataSource.getInstance(sharedPreferences)
 
     @Provides
+    @FeatureScope
     @DesignerNewsApi
     fun providePrivateOkHttpClient(
         upstream: OkHttpClient,
@@ -18,8 +18,7 @@
 
 package io.plaidapp.core.dagger.designernews
 
-import io.plaidapp.core.dagger.CoreComponent
-import io.plaidapp.core.dagger.DaggerCoreComponent
+import io.plaidapp.core.dagger.CoreComponentProvider
 import io.plaidapp.core.dagger.SharedPreferencesModule
 import io.plaidapp.core.designernews.data.login.LoginLocalDataSource
 import io.plaidapp.core.designernews.data.votes.UpvoteStoryService
@@ -27,17 +26,11 @@ import io.plaidapp.core.designernews.data.votes.UpvoteStoryService
 /**
  * Injector for [UpvoteStoryService].
  */
-
-private val coreComponent: CoreComponent by lazy {
-    DaggerCoreComponent
-        .builder()
-        .build()
-}
-
 fun inject(service: UpvoteStoryService) {
 
     DaggerUpvoteStoryServiceComponent.builder()
-            .coreComponent(coreComponent)
+            // share the application's client, and its cache, rather than building new ones
+            .coreComponent((service.application as CoreComponentProvider).coreComponent)
             .sharedPreferencesModule(
                     SharedPreferencesModule(service, LoginLocalDataSource.DESIGNER_NEWS_PREF)
             )
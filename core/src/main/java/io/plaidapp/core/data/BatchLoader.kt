@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+
+/**
+ * Loads values by key in batches, in the style of DataLoader: the keys asked for within
+ * [batchWindowMillis] of the first one are collected into a batch, without the keys that are
+ * already being loaded, and loaded in chunks of at most [maxBatchSize] keys, all chunks at once.
+ * Every caller waiting for a key gets its value from the shared result.
+ *
+ * A batch is loaded by the function passed by the caller that started it, so the loader doesn't
+ * hold on to any data source once its batches are loaded and can be shared by callers with their
+ * own data sources.
+ *
+ * Loaded values are not kept; callers are expected to cache them.
+ *
+ * Safe to use from several threads.
+ */
+class BatchLoader<K : Any, V : Any>(
+    private val scope: CoroutineScope,
+    private val maxBatchSize: Int,
+    private val batchWindowMillis: Long = DEFAULT_BATCH_WINDOW_MILLIS
+) {
+
+    private val lock = Any()
+    private val inFlight = HashMap<K, CompletableDeferred<V?>>()
+    private var nextBatch: Batch<K, V>? = null
+
+    /**
+     * Loads the values of [keys], joining the loads of the keys already in flight. If a new batch
+     * is needed, it's loaded with [loadBatch]: keys missing from the map it returns are reported
+     * as missing to the callers, as are all the keys of a chunk it throws for.
+     *
+     * @return the values found, by key
+     */
+    suspend fun load(
+        keys: Collection<K>,
+        loadBatch: suspend (List<K>) -> Map<K, V>
+    ): Map<K, V> {
+        val pending = synchronized(lock) {
+            keys.associateWith { key ->
+                inFlight[key] ?: CompletableDeferred<V?>().also {
+                    inFlight[key] = it
+                    enqueue(key, it, loadBatch)
+                }
+            }
+        }
+        val values = HashMap<K, V>(pending.size)
+        pending.forEach { (key, deferred) ->
+            deferred.await()?.let { values[key] = it }
+        }
+        return values
+    }
+
+    /**
+     * Adds [key] to the next batch, scheduling a new batch if there is none. Must hold [lock].
+     */
+    private fun enqueue(
+        key: K,
+        deferred: CompletableDeferred<V?>,
+        loadBatch: suspend (List<K>) -> Map<K, V>
+    ) {
+        val batch = nextBatch
+        if (batch != null) {
+            batch.deferreds[key] = deferred
+        } else {
+            val newBatch = Batch(loadBatch)
+            newBatch.deferreds[key] = deferred
+            nextBatch = newBatch
+            schedule(newBatch)
+        }
+    }
+
+    private fun schedule(batch: Batch<K, V>) {
+        scope.launch {
+            delay(batchWindowMillis)
+            close(batch)
+            batch.deferreds.keys.toList().chunked(maxBatchSize).forEach { chunk ->
+                launch {
+                    var values = emptyMap<K, V>()
+                    try {
+                        values = batch.loadBatch(chunk)
+                    } catch (e: CancellationException) {
+                        throw e
+                    } catch (e: Exception) {
+                        // the keys are reported as missing, rather than failing the scope
+                    } finally {
+                        complete(batch, chunk, values)
+                    }
+                }
+            }
+        }.invokeOnCompletion {
+            // don't leave callers waiting if the batch was cancelled before being loaded
+            close(batch)
+            complete(batch, batch.deferreds.keys.toList(), emptyMap())
+        }
+    }
+
+    /**
+     * Stops adding keys to [batch], so that it can be read without holding [lock].
+     */
+    private fun close(batch: Batch<K, V>) = synchronized(lock) {
+        if (nextBatch === batch) nextBatch = null
+    }
+
+    private fun complete(batch: Batch<K, V>, keys: List<K>, values: Map<K, V>) {
+        synchronized(lock) {
+            keys.forEach { key ->
+                val deferred = batch.deferreds.getValue(key)
+                if (inFlight[key] === deferred) inFlight.remove(key)
+            }
+        }
+        keys.forEach { key -> batch.deferreds.getValue(key).complete(values[key]) }
+    }
+
+    private class Batch<K, V>(val loadBatch: suspend (List<K>) -> Map<K, V>) {
+        val deferreds = LinkedHashMap<K, CompletableDeferred<V?>>()
+    }
+
+    companion object {
+        const val DEFAULT_BATCH_WINDOW_MILLIS = 16L
+    }
+}
@@ -16,6 +16,8 @@
 
 package io.plaidapp.core.data
 
+import io.plaidapp.core.data.feed.FeedPage
+import io.plaidapp.core.data.feed.FeedRepository
 import io.plaidapp.core.data.prefs.SourcesRepository
 import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem
 import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem.Companion.SOURCE_DESIGNER_NEWS_POPULAR
@@ -27,11 +29,15 @@ import io.plaidapp.core.producthunt.data.ProductHuntSourceItem.Companion.SOURCE_
 import io.plaidapp.core.producthunt.domain.LoadPostsUseCase
 import io.plaidapp.core.ui.filter.FiltersChangedCallback
 import io.plaidapp.core.util.exhaustive
+import io.plaidapp.core.util.safeApiCall
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicInteger
 import javax.inject.Inject
 
@@ -43,6 +49,11 @@ private data class InFlightRequestData(val key: String, val page: Int)
 /**
  * Responsible for loading data from the various sources. Instantiating classes are responsible for
  * providing the {code onDataLoaded} method to do something with the data.
+ *
+ * Loads complete concurrently on the computation dispatcher. Requests are started and cancelled
+ * while holding the lock of [inFlightRequests], so that a source's page index only changes
+ * together with the requests in flight for it; the rest of the state is held in concurrent
+ * collections.
  */
 class DataManager @Inject constructor(
     private val loadStories: LoadStoriesUseCase,
@@ -50,18 +61,26 @@ class DataManager @Inject constructor(
     private val searchStories: SearchStoriesUseCase,
     private val shotsRepository: ShotsRepository,
     private val sourcesRepository: SourcesRepository,
+    private val feedRepository: FeedRepository,
     private val dispatcherProvider: CoroutinesDispatcherProvider
 ) : DataLoadingSubject {
 
     private val parentJob = SupervisorJob()
     private val scope = CoroutineScope(dispatcherProvider.computation + parentJob)
 
-    private val parentJobs = mutableMapOf<InFlightRequestData, Job>()
+    // at most one request per source, guarded by itself
+    private val inFlightRequests = mutableMapOf<InFlightRequestData, Job>()
 
     private val loadingCount = AtomicInteger(0)
-    private var loadingCallbacks = mutableListOf<DataLoadingSubject.DataLoadingCallbacks>()
-    private var onDataLoadedCallback: OnDataLoadedCallback<List<PlaidItem>>? = null
-    private lateinit var pageIndexes: MutableMap<String, Int>
+    private val cachedPagesRestored = AtomicBoolean(false)
+    private val loadingCallbacks = CopyOnWriteArrayList<DataLoadingSubject.DataLoadingCallbacks>()
+    @Volatile
+    private var onDataLoadedCallback: OnDataLoadedCallback<FeedPage>? = null
+    // last page requested of each enabled source, only updated while holding the lock of
+    // inFlightRequests
+    private val pageIndexes = ConcurrentHashMap<String, Int>()
+    // last page of each source loaded from the network, guarded by itself
+    private val networkPageIndexes = HashMap<String, Int>()
 
     private val filterListener = object : FiltersChangedCallback() {
         override fun onFiltersChanged(changedFilter: SourceItem) {
@@ -69,64 +88,136 @@ class DataManager @Inject constructor(
                 loadSource(changedFilter)
             } else { // filter deactivated
                 val key = changedFilter.key
-                parentJobs.filter { it.key.key == key }.forEach { job ->
-                    job.value.cancel()
-                    parentJobs.remove(job.key)
+                synchronized(inFlightRequests) {
+                    cancel { it.key == key }
+                    // clear the page index for the source
+                    pageIndexes.remove(key)
                 }
-                // clear the page index for the source
-                pageIndexes[key] = 0
+                synchronized(networkPageIndexes) { networkPageIndexes.remove(key) }
             }
         }
+
+        override fun onFilterRemoved(sourceKey: String) {
+            scope.launch(dispatcherProvider.io) { feedRepository.removeSource(sourceKey) }
+        }
     }
 
     init {
         sourcesRepository.registerFilterChangedCallback(filterListener)
         // build a map of source keys to pages initialized to 0
-        pageIndexes = sourcesRepository.getSourcesSync().map { it.key to 0 }.toMap().toMutableMap()
+        sourcesRepository.getSourcesSync().forEach { pageIndexes[it.key] = 0 }
     }
 
     fun setOnDataLoadedCallback(
-        onDataLoadedCallback: OnDataLoadedCallback<List<PlaidItem>>?
+        onDataLoadedCallback: OnDataLoadedCallback<FeedPage>?
     ) {
         this.onDataLoadedCallback = onDataLoadedCallback
     }
 
-    private fun onDataLoaded(data: List<PlaidItem>) {
-        onDataLoadedCallback?.onDataLoaded(data)
+    /**
+     * Delivers a loaded page. Pages replace the ones previously delivered for the same page of
+     * their source, so a page restored from disk is only delivered if the page wasn't loaded from
+     * the network yet.
+     */
+    private fun onDataLoaded(page: FeedPage, fromNetwork: Boolean) {
+        synchronized(networkPageIndexes) {
+            val lastNetworkPage = networkPageIndexes[page.sourceKey] ?: 0
+            if (fromNetwork) {
+                networkPageIndexes[page.sourceKey] = maxOf(lastNetworkPage, page.page)
+            } else if (page.page <= lastNetworkPage) {
+                return
+            }
+            onDataLoadedCallback?.onDataLoaded(page)
+        }
     }
 
+    /**
+     * Loads the next page of every active source. On the first call, the pages stored on disk
+     * are displayed as well, while the sources are revalidated from the network: each page
+     * loaded from the network replaces the restored page with the same index.
+     */
     suspend fun loadMore() = withContext(dispatcherProvider.computation) {
-        sourcesRepository.getSources().forEach { loadSource(it) }
+        val sources = sourcesRepository.getSources()
+        sources.forEach { loadSource(it) }
+        if (cachedPagesRestored.compareAndSet(false, true)) {
+            restoreCachedPages(sources)
+        }
+    }
+
+    private fun restoreCachedPages(sources: List<SourceItem>) = scope.launch {
+        val keys = sources.filter { it.active }.map { it.key }
+        val pages = withContext(dispatcherProvider.io) { feedRepository.getCachedPages(keys) }
+        pages.groupBy { it.sourceKey }.forEach { (key, sourcePages) ->
+            synchronized(inFlightRequests) {
+                // the source might have been deactivated while reading from disk
+                if (!sourceIsEnabled(key)) return@forEach
+                // the first page was already requested to revalidate the restored ones, after
+                // that the source carries on after the pages restored in a row
+                val restored = sourcePages.mapTo(HashSet()) { it.page }
+                var lastRestored = 0
+                while (lastRestored + 1 in restored) lastRestored++
+                pageIndexes[key] = maxOf(pageIndexes[key] ?: 0, lastRestored)
+            }
+            sourcePages.forEach { page ->
+                setDataSource(page.items, key)
+                onDataLoaded(page, fromNetwork = false)
+            }
+        }
     }
 
     fun cancelLoading() {
-        parentJobs.values.forEach { it.cancel() }
-        parentJobs.clear()
+        cancel { true }
+    }
+
+    private fun cancel(predicate: (InFlightRequestData) -> Boolean) {
+        synchronized(inFlightRequests) {
+            val cancelled = inFlightRequests.filterKeys(predicate)
+            inFlightRequests.keys.removeAll(cancelled.keys)
+            cancelled.values.forEach { it.cancel() }
+        }
     }
 
     private fun loadSource(source: SourceItem) {
-        if (source.active) {
+        if (!source.active) return
+        synchronized(inFlightRequests) {
+            // a source only moves on to its next page once the previous one arrived, so that
+            // repeated calls don't request the same page twice or move the page index past it
+            if (inFlightRequests.keys.any { it.key == source.key }) return
             loadStarted()
-            val page = getNextPageIndex(source.key)
-            // TODO each source data loading should be delegated to a different object
-            // specialized in loading that specific type of data
-            val data = InFlightRequestData(source.key, page)
-            when (source.key) {
-                SOURCE_DESIGNER_NEWS_POPULAR -> {
-                    parentJobs[data] = launchLoadDesignerNewsStories(data)
-                }
-                SOURCE_PRODUCT_HUNT -> {
-                    parentJobs[data] = launchLoadProductHunt(data)
-                }
-                else -> if (source is DribbbleSourceItem) {
-                    parentJobs[data] = loadDribbbleSearch(source, data)
-                } else if (source is DesignerNewsSearchSourceItem) {
-                    parentJobs[data] = loadDesignerNewsSearch(source, data)
+            val request = InFlightRequestData(source.key, getNextPageIndex(source.key))
+            val job = scope.launch {
+                val result = safeApiCall(
+                    call = { load(source, request.page) },
+                    errorMessage = "Unable to load page ${request.page} of ${source.key}"
+                )
+                when (result) {
+                    is Result.Success -> sourceLoaded(result.data, source.key, request)
+                    is Result.Error -> loadFailed(request)
+                }.exhaustive
+            }
+            inFlightRequests[request] = job
+            job.invokeOnCompletion { cause ->
+                synchronized(inFlightRequests) {
+                    if (inFlightRequests[request] === job) inFlightRequests.remove(request)
+                    // e.g. cancelled as the screen is closed
+                    if (cause != null) loadFailed(request)
                 }
+                loadFinished()
             }
         }
     }
 
+    // TODO each source data loading should be delegated to a different object
+    // specialized in loading that specific type of data
+    private suspend fun load(source: SourceItem, page: Int): Result<List<PlaidItem>> = when {
+        source.key == SOURCE_DESIGNER_NEWS_POPULAR -> loadStories(page)
+        // this API's paging is 0 based but this class (& sorting) is 1 based so adjust locally
+        source.key == SOURCE_PRODUCT_HUNT -> loadPosts(page - 1)
+        source is DribbbleSourceItem -> shotsRepository.search(source.query, page)
+        source is DesignerNewsSearchSourceItem -> searchStories(source.key, page)
+        else -> Result.Error(IllegalArgumentException("Unknown source ${source.key}"))
+    }
+
     private fun getNextPageIndex(dataSource: String): Int {
         var nextPage = 1 // default to one – i.e. for newly added sources
         if (pageIndexes.containsKey(dataSource)) {
@@ -137,7 +228,18 @@ class DataManager @Inject constructor(
     }
 
     private fun sourceIsEnabled(key: String): Boolean {
-        return pageIndexes[key] != 0
+        return pageIndexes.containsKey(key)
+    }
+
+    /**
+     * Moves the page index of the source back before a page that wasn't loaded, so that the next
+     * load requests the page again rather than skipping it.
+     */
+    private fun loadFailed(request: InFlightRequestData) = synchronized(inFlightRequests) {
+        // unless the source moved on in the meantime, e.g. as it was deactivated
+        if (pageIndexes[request.key] == request.page) {
+            pageIndexes[request.key] = request.page - 1
+        }
     }
 
     private fun sourceLoaded(
@@ -145,59 +247,14 @@ class DataManager @Inject constructor(
         source: String,
         request: InFlightRequestData
     ) {
-        loadFinished()
         if (data != null && !data.isEmpty() && sourceIsEnabled(source)) {
             setPage(data, request.page)
             setDataSource(data, source)
-            onDataLoaded(data)
-        }
-        parentJobs.remove(request)
-    }
-
-    private fun loadFailed(request: InFlightRequestData) {
-        loadFinished()
-        parentJobs.remove(request)
-    }
-
-    private fun launchLoadDesignerNewsStories(data: InFlightRequestData) = scope.launch {
-        val result = loadStories(data.page)
-        when (result) {
-            is Result.Success -> sourceLoaded(
-                result.data,
-                SOURCE_DESIGNER_NEWS_POPULAR,
-                data
-            )
-            is Result.Error -> loadFailed(data)
-        }.exhaustive
-    }
-
-    private fun loadDesignerNewsSearch(
-        sourceItem: DesignerNewsSearchSourceItem,
-        data: InFlightRequestData
-    ) = scope.launch {
-        val result = searchStories(sourceItem.key, data.page)
-        when (result) {
-            is Result.Success -> sourceLoaded(result.data, sourceItem.key, data)
-            is Result.Error -> loadFailed(data)
-        }.exhaustive
-    }
-
-    private fun loadDribbbleSearch(source: DribbbleSourceItem, data: InFlightRequestData) =
-        scope.launch {
-            val result = shotsRepository.search(source.query, data.page)
-            when (result) {
-                is Result.Success -> sourceLoaded(result.data, source.key, data)
-                is Result.Error -> loadFailed(data)
-            }.exhaustive
+            onDataLoaded(FeedPage(source, request.page, data), fromNetwork = true)
+            scope.launch(dispatcherProvider.io) {
+                feedRepository.savePage(source, request.page, data)
+            }
         }
-
-    private fun launchLoadProductHunt(data: InFlightRequestData) = scope.launch {
-        // this API's paging is 0 based but this class (& sorting) is 1 based so adjust locally
-        val result = loadPosts(data.page - 1)
-        when (result) {
-            is Result.Success -> sourceLoaded(result.data, SOURCE_PRODUCT_HUNT, data)
-            is Result.Error -> loadFailed(data)
-        }.exhaustive
     }
 
     override fun registerCallback(callback: DataLoadingSubject.DataLoadingCallbacks) {
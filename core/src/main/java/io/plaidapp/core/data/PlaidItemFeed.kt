@@ -0,0 +1,264 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import io.plaidapp.core.util.LongIntHashMap
+import java.util.Collections
+import java.util.PriorityQueue
+
+/**
+ * A contiguous range of positions in a [PlaidItemFeed] affected by an update.
+ */
+data class FeedRange(val start: Int, val count: Int)
+
+/**
+ * Weight ordered list of [PlaidItem]s, built up page by page.
+ *
+ * Every page is sorted on its own into a run, and the runs are merged k-way into the part of the
+ * feed that they overlap with. As weights are scoped to the page they belong to, that is usually
+ * only the last page or so, meaning the cost of adding a page doesn't depend on how many items
+ * are already in the feed. Items already in the feed are found through a primitive hash index of
+ * their [PlaidItemKey] rather than by comparing against every item.
+ *
+ * The feed is not thread safe; callers need to confine it to a thread or synchronize on it.
+ */
+class PlaidItemFeed(private val itemKey: PlaidItemKey = ServiceIdKey) {
+
+    private val items = ArrayList<PlaidItem>()
+    private val itemsView: List<PlaidItem> = Collections.unmodifiableList(items)
+    // the page that each item in the feed was added or replaced with, see addPage
+    private val index = LongIntHashMap()
+    // the pages of each data source that have items in the feed
+    private val pages = HashMap<String, MutableSet<Int>>()
+
+    val size: Int
+        get() = items.size
+
+    /**
+     * Copy of the items in the feed, in display order.
+     */
+    fun snapshot(): List<PlaidItem> = ArrayList(items)
+
+    /**
+     * Read-only view of the items in the feed, in display order, that reflects later updates.
+     */
+    fun asList(): List<PlaidItem> = itemsView
+
+    /**
+     * Merges a page of weighed items into the feed, skipping the ones already in it.
+     *
+     * @return the inserted ranges, in ascending order and expressed as positions in the updated
+     * feed.
+     */
+    fun add(page: List<PlaidItem>): List<FeedRange> = addPages(listOf(page))
+
+    /**
+     * Merges several pages of weighed items into the feed at once, skipping the ones already in
+     * it. Items of equal weight keep the order they were added in.
+     *
+     * @return the inserted ranges, in ascending order and expressed as positions in the updated
+     * feed.
+     */
+    fun addPages(pages: List<List<PlaidItem>>): List<FeedRange> = merge(pages, NO_PAGE)
+
+    /**
+     * Merges page [page] of [dataSource] into the feed as [add] does, remembering the page of the
+     * inserted items so that it can be replaced later on, see [hasPage].
+     *
+     * @return the inserted ranges, in ascending order and expressed as positions in the updated
+     * feed.
+     */
+    fun addPage(dataSource: String, page: Int, items: List<PlaidItem>): List<FeedRange> {
+        val inserted = merge(listOf(items), page)
+        if (inserted.isNotEmpty()) pages.getOrPut(dataSource) { HashSet() }.add(page)
+        return inserted
+    }
+
+    /**
+     * Whether the feed holds items of page [page] of [dataSource], added through [addPage] or
+     * [replacePage], e.g. the ones restored from disk. Loading such a page again needs to
+     * [replacePage] rather than [addPage].
+     */
+    fun hasPage(dataSource: String, page: Int) = pages[dataSource]?.contains(page) == true
+
+    private fun merge(pages: List<List<PlaidItem>>, pageIndex: Int): List<FeedRange> {
+        val runs = mutableListOf<List<PlaidItem>>()
+        pages.forEach { page ->
+            val run = page.filterTo(ArrayList(page.size)) {
+                index.putIfAbsent(itemKey.keyOf(it), pageIndex)
+            }
+            if (run.isNotEmpty()) {
+                // sort is stable, so equally weighed items keep the order of the API
+                run.sortWith(comparator)
+                runs.add(run)
+            }
+        }
+        if (runs.isEmpty()) return emptyList()
+
+        // only the items heavier than the lightest new item need to make room
+        val lightest = runs.minBy { it[0].weight }!![0].weight
+        val start = upperBound(lightest)
+        val tailView = items.subList(start, items.size)
+        val tail = ArrayList(tailView)
+        tailView.clear()
+        items.ensureCapacity(start + tail.size + runs.sumBy { it.size })
+
+        // the existing tail is run 0 so that it wins ties, as a stable sort would
+        val cursors = PriorityQueue<RunCursor>(runs.size + 1)
+        if (tail.isNotEmpty()) cursors.add(RunCursor(0, tail))
+        runs.forEachIndexed { i, run -> cursors.add(RunCursor(i + 1, run)) }
+
+        val inserted = mutableListOf<FeedRange>()
+        var rangeStart = -1
+        while (cursors.isNotEmpty()) {
+            val cursor = cursors.poll()
+            val position = items.size
+            items.add(cursor.current)
+            if (cursor.order != 0) {
+                if (rangeStart == -1) rangeStart = position
+            } else if (rangeStart != -1) {
+                inserted.add(FeedRange(rangeStart, position - rangeStart))
+                rangeStart = -1
+            }
+            if (cursor.advance()) cursors.add(cursor)
+        }
+        if (rangeStart != -1) {
+            inserted.add(FeedRange(rangeStart, items.size - rangeStart))
+        }
+        return inserted
+    }
+
+    /**
+     * Replaces page [page] of [dataSource] with the weighed [items], e.g. when a page restored
+     * from disk is loaded again from the network. Items already in the feed are updated in place,
+     * keeping their position, the items of the page that are not in [items] anymore are removed
+     * and the new ones are merged in as by [add]. This costs the size of the feed, so only use it
+     * for the pages the feed holds, see [hasPage].
+     */
+    fun replacePage(dataSource: String, page: Int, items: List<PlaidItem>) {
+        val fresh = LinkedHashMap<Long, PlaidItem>(items.size)
+        items.forEach { fresh.getOrPut(itemKey.keyOf(it)) { it } }
+        var kept = 0
+        var pageItems = 0
+        for (position in 0 until this.items.size) {
+            val item = this.items[position]
+            val key = itemKey.keyOf(item)
+            val update = fresh.remove(key)
+            when {
+                update != null -> {
+                    // keeping the weight keeps the feed sorted
+                    update.weight = item.weight
+                    update.dataSource = item.dataSource
+                    if (item.dataSource == dataSource) {
+                        index.put(key, page)
+                        pageItems++
+                    }
+                    this.items[kept++] = update
+                }
+                item.dataSource == dataSource && index.get(key, NO_PAGE) == page -> {
+                    index.remove(key)
+                }
+                else -> this.items[kept++] = item
+            }
+        }
+        this.items.subList(kept, this.items.size).clear()
+        pageItems += merge(listOf(fresh.values.toList()), page).sumBy { it.count }
+        if (pageItems > 0) {
+            pages.getOrPut(dataSource) { HashSet() }.add(page)
+        } else {
+            pages[dataSource]?.remove(page)
+        }
+    }
+
+    /**
+     * Removes all the items coming from [dataSource].
+     *
+     * @return the removed ranges, from the end of the feed towards the start, so that they can
+     * be applied one after the other.
+     */
+    fun removeSource(dataSource: String): List<FeedRange> {
+        val removed = mutableListOf<FeedRange>()
+        var kept = 0
+        var rangeStart = -1
+        items.forEachIndexed { position, item ->
+            if (item.dataSource == dataSource) {
+                index.remove(itemKey.keyOf(item))
+                if (rangeStart == -1) rangeStart = position
+            } else {
+                if (rangeStart != -1) {
+                    removed.add(FeedRange(rangeStart, position - rangeStart))
+                    rangeStart = -1
+                }
+                items[kept++] = item
+            }
+        }
+        if (rangeStart != -1) {
+            removed.add(FeedRange(rangeStart, items.size - rangeStart))
+        }
+        items.subList(kept, items.size).clear()
+        removed.reverse()
+        pages.remove(dataSource)
+        return removed
+    }
+
+    fun clear() {
+        items.clear()
+        index.clear()
+        pages.clear()
+    }
+
+    /**
+     * Index of the first item heavier than [weight], or the size of the feed if there is none.
+     */
+    private fun upperBound(weight: Float): Int {
+        var low = 0
+        var high = items.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (java.lang.Float.compare(items[mid].weight, weight) <= 0) {
+                low = mid + 1
+            } else {
+                high = mid
+            }
+        }
+        return low
+    }
+
+    private class RunCursor(
+        val order: Int,
+        private val run: List<PlaidItem>
+    ) : Comparable<RunCursor> {
+
+        private var position = 0
+
+        val current: PlaidItem
+            get() = run[position]
+
+        fun advance(): Boolean = ++position < run.size
+
+        override fun compareTo(other: RunCursor): Int {
+            val byWeight = java.lang.Float.compare(current.weight, other.current.weight)
+            return if (byWeight != 0) byWeight else order.compareTo(other.order)
+        }
+    }
+
+    companion object {
+        // page of the items added without one, i.e. through add
+        private const val NO_PAGE = 0
+        private val comparator = PlaidItemSorting.PlaidItemComparator()
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.producthunt.data.api.model.Post
+
+/**
+ * Computes the key identifying a [PlaidItem] across feeds. Two items with the same key are
+ * considered the same item, whichever feed they were returned by.
+ */
+interface PlaidItemKey {
+
+    fun keyOf(item: PlaidItem): Long
+}
+
+/**
+ * [PlaidItemKey] combining the service an item comes from, in the top bits, with the item's id.
+ * Ids are only unique within a service, e.g. a Dribbble shot and a Designer News story can have
+ * the same id.
+ */
+object ServiceIdKey : PlaidItemKey {
+
+    private const val SERVICE_SHIFT = 56
+    private const val ID_MASK = (1L shl SERVICE_SHIFT) - 1
+
+    private const val SERVICE_OTHER = 0L
+    private const val SERVICE_DRIBBBLE = 1L
+    private const val SERVICE_DESIGNER_NEWS = 2L
+    private const val SERVICE_PRODUCT_HUNT = 3L
+
+    override fun keyOf(item: PlaidItem) = when (item) {
+        is Shot -> shotKey(item.id)
+        is Story -> key(SERVICE_DESIGNER_NEWS, item.id)
+        is Post -> key(SERVICE_PRODUCT_HUNT, item.id)
+        else -> key(SERVICE_OTHER, item.id)
+    }
+
+    fun shotKey(id: Long) = key(SERVICE_DRIBBBLE, id)
+
+    private fun key(service: Long, id: Long) = (service shl SERVICE_SHIFT) or (id and ID_MASK)
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.api
+
+import okhttp3.Call
+import okhttp3.EventListener
+import java.util.concurrent.TimeUnit
+
+/**
+ * Estimates the bandwidth available to the app from the time it takes to read response bodies,
+ * as reported by OkHttp. Register [eventListenerFactory] on a client to measure its calls.
+ *
+ * Small bodies are ignored, as their timing is dominated by latency rather than bandwidth. The
+ * estimate is a moving average, so that it follows changes of network without jumping on every
+ * response.
+ */
+class BandwidthMeter(
+    private val clock: () -> Long = System::nanoTime
+) {
+
+    private val lock = Any()
+    private var estimate = NO_ESTIMATE
+
+    val eventListenerFactory = EventListener.Factory { BodyTimer() }
+
+    /**
+     * The estimated bandwidth, in bits per second, or null if nothing was measured yet.
+     */
+    val bitsPerSecond: Long?
+        get() = synchronized(lock) { if (estimate == NO_ESTIMATE) null else estimate.toLong() }
+
+    /**
+     * Records reading [byteCount] bytes in [durationNanos].
+     */
+    fun record(byteCount: Long, durationNanos: Long) {
+        if (byteCount < MIN_MEASURED_BYTES || durationNanos <= 0) return
+        val bitsPerSecond = byteCount * 8.0 * TimeUnit.SECONDS.toNanos(1) / durationNanos
+        synchronized(lock) {
+            estimate = if (estimate == NO_ESTIMATE) {
+                bitsPerSecond
+            } else {
+                estimate + SMOOTHING * (bitsPerSecond - estimate)
+            }
+        }
+    }
+
+    private inner class BodyTimer : EventListener() {
+
+        private var bodyStart = 0L
+
+        override fun responseBodyStart(call: Call) {
+            bodyStart = clock()
+        }
+
+        override fun responseBodyEnd(call: Call, byteCount: Long) {
+            record(byteCount, clock() - bodyStart)
+        }
+    }
+
+    companion object {
+        private const val NO_ESTIMATE = -1.0
+        private const val MIN_MEASURED_BYTES = 16 * 1024L
+        // weight of a new measure in the estimate
+        private const val SMOOTHING = 0.3
+
+        @Volatile
+        private var INSTANCE: BandwidthMeter? = null
+
+        fun getInstance(): BandwidthMeter {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: BandwidthMeter().also { INSTANCE = it }
+            }
+        }
+    }
+}
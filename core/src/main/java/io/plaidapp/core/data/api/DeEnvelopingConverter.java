@@ -20,20 +20,33 @@ package io.plaidapp.core.data.api;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
 import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import kotlin.sequences.Sequence;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
 import retrofit2.Retrofit;
 
 import javax.inject.Inject;
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * A {@link retrofit2.Converter.Factory} which removes unwanted wrapping envelopes from API
  * responses.
+ * <p>
+ * A payload array can be declared as a {@link Sequence} instead of a {@link java.util.List}: its
+ * elements are then decoded one at a time, as the sequence is iterated, rather than all at once.
+ * See {@link PayloadSequence}.
  */
 public class DeEnvelopingConverter extends Converter.Factory {
 
@@ -53,24 +66,60 @@ public class DeEnvelopingConverter extends Converter.Factory {
         final String payloadName = getPayloadName(annotations);
         if (payloadName == null) return null;
 
+        if (getRawType(type) == Sequence.class && type instanceof ParameterizedType) {
+            final Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+            return sequenceConverter(payloadName, gson.getAdapter(TypeToken.get(elementType)));
+        }
+
         final TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(type));
         return (Converter<ResponseBody, Object>) body -> {
             try (JsonReader jsonReader = gson.newJsonReader(body.charStream())) {
-                jsonReader.beginObject();
-                while (jsonReader.hasNext()) {
-                    if (payloadName.equals(jsonReader.nextName())) {
-                        return adapter.read(jsonReader);
-                    } else {
-                        jsonReader.skipValue();
-                    }
-                }
-                return null;
+                if (!moveToPayload(jsonReader, payloadName)) return null;
+                return adapter.read(jsonReader);
             } finally {
                 body.close();
             }
         };
     }
 
+    private <T> Converter<ResponseBody, PayloadSequence<T>> sequenceConverter(
+            final String payloadName, final TypeAdapter<T> elementAdapter) {
+        return body -> {
+            final JsonReader jsonReader = gson.newJsonReader(body.charStream());
+            try {
+                if (!moveToPayload(jsonReader, payloadName)
+                        || jsonReader.peek() == JsonToken.NULL) {
+                    jsonReader.close();
+                    return null;
+                }
+                jsonReader.beginArray();
+                // the reader and body are closed by the sequence once it's read
+                return new PayloadSequence<>(jsonReader, elementAdapter);
+            } catch (IOException | RuntimeException e) {
+                jsonReader.close();
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Moves {@code jsonReader} to the value of the {@code payloadName} field of the envelope.
+     *
+     * @return false if the envelope has no such field
+     */
+    private static boolean moveToPayload(JsonReader jsonReader, String payloadName)
+            throws IOException {
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            if (payloadName.equals(jsonReader.nextName())) {
+                return true;
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        return false;
+    }
+
     private @Nullable String getPayloadName(Annotation[] annotations) {
         if (annotations == null) return null;
         for (Annotation annotation : annotations) {
@@ -80,4 +129,73 @@ public class DeEnvelopingConverter extends Converter.Factory {
         }
         return null;
     }
+
+    /**
+     * Payload array whose elements are decoded as they are iterated. It can only be iterated
+     * once, and keeps the response body open until it's read to the end or closed: callers that
+     * may stop early need to close it. Decoding errors are thrown as {@link JsonParseException}s.
+     */
+    public static final class PayloadSequence<T> implements Sequence<T>, Closeable {
+
+        private final JsonReader jsonReader;
+        private final TypeAdapter<T> elementAdapter;
+        private boolean iterated = false;
+
+        PayloadSequence(JsonReader jsonReader, TypeAdapter<T> elementAdapter) {
+            this.jsonReader = jsonReader;
+            this.elementAdapter = elementAdapter;
+        }
+
+        @NonNull
+        @Override
+        public synchronized Iterator<T> iterator() {
+            if (iterated) throw new IllegalStateException("This sequence can only be read once");
+            iterated = true;
+            return new Iterator<T>() {
+                private boolean done = false;
+
+                @Override
+                public boolean hasNext() {
+                    if (done) return false;
+                    try {
+                        if (jsonReader.hasNext()) return true;
+                        done = true;
+                        jsonReader.endArray();
+                        close();
+                        return false;
+                    } catch (IOException e) {
+                        throw fail(e);
+                    }
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    try {
+                        return elementAdapter.read(jsonReader);
+                    } catch (IOException e) {
+                        throw fail(e);
+                    } catch (RuntimeException e) {
+                        fail(e);
+                        throw e;
+                    }
+                }
+
+                private JsonIOException fail(Exception e) {
+                    done = true;
+                    try {
+                        close();
+                    } catch (IOException ignored) {
+                    }
+                    return new JsonIOException(e);
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            // also closes the reader of the response body
+            jsonReader.close();
+        }
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.cache
+
+import java.lang.ref.ReferenceQueue
+import java.lang.ref.WeakReference
+import java.util.concurrent.TimeUnit
+
+/**
+ * Cache of the items loaded for feeds, that screens showing a single item look it up in.
+ *
+ * Recently loaded items are kept in a bounded and expiring [MemoryCache]. Items that left it,
+ * because they expired or memory ran low, stay reachable for as long as their owner is, e.g. the
+ * object a feed displays for them, so that opening an item still displayed never misses.
+ *
+ * It's safe to use from several threads.
+ */
+class ItemCache<K : Any, V : Any>(
+    maxSize: Int,
+    timeToLiveMillis: Long,
+    clock: () -> Long = { TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) }
+) {
+
+    private val recent = MemoryCache<K, V>(maxSize, timeToLiveMillis, clock = clock)
+
+    // guarded by itself
+    private val owned = HashMap<K, OwnedReference<K, V>>()
+    private val queue = ReferenceQueue<Any>()
+
+    operator fun get(key: K): V? {
+        val value = recent[key]
+        if (value != null) return value
+        return synchronized(owned) {
+            removeCollected()
+            owned[key]?.value()
+        }
+    }
+
+    /**
+     * Caches [value], keeping it for as long as it is reachable from elsewhere.
+     */
+    operator fun set(key: K, value: V) = put(key, value, value)
+
+    /**
+     * Caches [value], keeping it for as long as [owner] is reachable from elsewhere.
+     */
+    fun put(key: K, value: V, owner: Any) {
+        recent[key] = value
+        synchronized(owned) {
+            removeCollected()
+            owned[key] = OwnedReference(key, owner, value, queue)
+        }
+    }
+
+    private fun removeCollected() {
+        while (true) {
+            @Suppress("UNCHECKED_CAST")
+            val reference = queue.poll() as OwnedReference<K, V>? ?: return
+            // the key might have been mapped to a newer value since
+            if (owned[reference.key] === reference) {
+                owned.remove(reference.key)
+            }
+        }
+    }
+
+    private class OwnedReference<K, V : Any>(
+        val key: K,
+        owner: Any,
+        value: V,
+        queue: ReferenceQueue<Any>
+    ) : WeakReference<Any>(owner, queue) {
+
+        // not held when the value is its own owner, or it would never be collected
+        private val value: V? = if (value === owner) null else value
+
+        @Suppress("UNCHECKED_CAST")
+        fun value(): V? {
+            val owner = get() ?: return null
+            return value ?: owner as V
+        }
+    }
+}
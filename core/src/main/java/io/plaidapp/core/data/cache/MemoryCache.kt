@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.cache
+
+import android.content.ComponentCallbacks2
+import androidx.collection.LruCache
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Counters describing how well a [MemoryCache] performs.
+ */
+data class CacheStats(
+    val hitCount: Int,
+    val missCount: Int,
+    val evictionCount: Int,
+    val expiredCount: Int,
+    val size: Int,
+    val maxSize: Int
+)
+
+/**
+ * In memory cache, bounded by the total size of its entries, that evicts the least recently
+ * used entries first. Entries expire [timeToLiveMillis] after they were put in the cache.
+ *
+ * The cache is shrunk when the system is low on memory, as reported to [MemoryCaches]. It's
+ * safe to use from several threads.
+ */
+class MemoryCache<K : Any, V : Any>(
+    val maxSize: Int,
+    private val timeToLiveMillis: Long = NO_EXPIRY,
+    private val sizeOf: (V) -> Int = { 1 },
+    private val clock: () -> Long = { TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) }
+) : TrimmableCache {
+
+    private val entries = object : LruCache<K, Entry<V>>(maxSize) {
+        override fun sizeOf(key: K, value: Entry<V>) = value.size
+    }
+
+    private val hitCount = AtomicInteger()
+    private val missCount = AtomicInteger()
+    private val expiredCount = AtomicInteger()
+
+    init {
+        MemoryCaches.register(this)
+    }
+
+    operator fun get(key: K): V? {
+        val entry = entries[key]
+        if (entry == null) {
+            missCount.incrementAndGet()
+            return null
+        }
+        if (entry.expiresAt <= clock()) {
+            entries.remove(key)
+            expiredCount.incrementAndGet()
+            missCount.incrementAndGet()
+            return null
+        }
+        hitCount.incrementAndGet()
+        return entry.value
+    }
+
+    operator fun set(key: K, value: V) {
+        val expiresAt = if (timeToLiveMillis == NO_EXPIRY) {
+            Long.MAX_VALUE
+        } else {
+            clock() + timeToLiveMillis
+        }
+        entries.put(key, Entry(value, expiresAt, sizeOf(value)))
+    }
+
+    fun remove(key: K): V? = entries.remove(key)?.value
+
+    fun evictAll() = entries.evictAll()
+
+    fun stats() = CacheStats(
+        hitCount = hitCount.get(),
+        missCount = missCount.get(),
+        evictionCount = entries.evictionCount(),
+        expiredCount = expiredCount.get(),
+        size = entries.size(),
+        maxSize = maxSize
+    )
+
+    override fun onTrimMemory(level: Int) {
+        when {
+            // the process is next to be killed, nothing is worth keeping
+            level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE -> entries.evictAll()
+            level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL ->
+                entries.trimToSize(entries.size() / 2)
+        }
+    }
+
+    private class Entry<V>(val value: V, val expiresAt: Long, val size: Int)
+
+    companion object {
+        const val NO_EXPIRY = -1L
+    }
+}
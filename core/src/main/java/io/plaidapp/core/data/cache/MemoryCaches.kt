@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.cache
+
+import java.util.Collections
+import java.util.WeakHashMap
+
+/**
+ * A cache that can give memory back when the system runs low on memory.
+ */
+interface TrimmableCache {
+
+    /**
+     * @param level the level passed to [android.content.ComponentCallbacks2.onTrimMemory]
+     */
+    fun onTrimMemory(level: Int)
+}
+
+/**
+ * Registry of the in memory caches of the app, so that they can all be trimmed from
+ * [android.app.Application.onTrimMemory]. Caches are weakly referenced, so registering doesn't
+ * extend their lifetime.
+ */
+object MemoryCaches {
+
+    private val caches = Collections.newSetFromMap(WeakHashMap<TrimmableCache, Boolean>())
+
+    fun register(cache: TrimmableCache) {
+        synchronized(caches) { caches.add(cache) }
+    }
+
+    fun onTrimMemory(level: Int) {
+        val registered = synchronized(caches) { caches.toList() }
+        registered.forEach { it.onTrimMemory(level) }
+    }
+}
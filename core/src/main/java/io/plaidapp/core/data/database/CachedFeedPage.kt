@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.database
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+
+/**
+ * A page of feed items loaded for a source, as stored on disk. The items are kept as JSON, as
+ * each source returns a different type of items.
+ */
+@Entity(tableName = "feed_page", primaryKeys = ["source_key", "page"])
+data class CachedFeedPage(
+    @ColumnInfo(name = "source_key")
+    val sourceKey: String,
+
+    @ColumnInfo(name = "page")
+    val page: Int,
+
+    @ColumnInfo(name = "item_type")
+    val itemType: String,
+
+    @ColumnInfo(name = "items")
+    val items: String,
+
+    @ColumnInfo(name = "saved_at")
+    val savedAt: Long
+)
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.database
+
+import android.content.Context
+import androidx.room.Database
+import androidx.room.Room
+import androidx.room.RoomDatabase
+
+/**
+ * The Room database holding the feed displayed on start.
+ */
+@Database(entities = [CachedFeedPage::class], version = 1, exportSchema = false)
+abstract class FeedDatabase : RoomDatabase() {
+
+    abstract fun feedPageDao(): FeedPageDao
+
+    companion object {
+
+        private const val DATABASE_NAME = "plaid-feed-db"
+
+        // For Singleton instantiation
+        @Volatile private var instance: FeedDatabase? = null
+
+        fun getInstance(context: Context): FeedDatabase {
+            return instance ?: synchronized(this) {
+                instance ?: buildDatabase(context).also { instance = it }
+            }
+        }
+
+        private fun buildDatabase(context: Context): FeedDatabase {
+            return Room.databaseBuilder(
+                context.applicationContext, FeedDatabase::class.java,
+                DATABASE_NAME
+            ).fallbackToDestructiveMigration().build()
+        }
+    }
+}
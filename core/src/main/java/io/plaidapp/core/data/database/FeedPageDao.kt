@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.database
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+
+/**
+ * This Data Access Object handles Room database operations for the [CachedFeedPage] class.
+ */
+@Dao
+abstract class FeedPageDao {
+
+    @Query("SELECT * FROM feed_page WHERE source_key IN (:sourceKeys) ORDER BY page, source_key")
+    abstract suspend fun getPages(sourceKeys: List<String>): List<CachedFeedPage>
+
+    /**
+     * Stores a page for a source. Storing the first page starts a new session for the source, so
+     * the pages of the previous one are deleted.
+     */
+    @Transaction
+    open suspend fun savePage(page: CachedFeedPage) {
+        if (page.page == FIRST_PAGE) {
+            deletePages(page.sourceKey)
+        }
+        insertPage(page)
+    }
+
+    @Query("DELETE FROM feed_page WHERE source_key = :sourceKey")
+    abstract suspend fun deletePages(sourceKey: String)
+
+    /**
+     * This method should not be used. Instead, use [savePage], as that method makes sure pages
+     * of previous sessions are removed.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract suspend fun insertPage(page: CachedFeedPage)
+
+    companion object {
+        const val FIRST_PAGE = 1
+    }
+}
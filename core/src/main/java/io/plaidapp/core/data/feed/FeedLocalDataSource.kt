@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.feed
+
+import com.google.gson.Gson
+import com.google.gson.JsonParseException
+import com.google.gson.reflect.TypeToken
+import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.data.database.CachedFeedPage
+import io.plaidapp.core.data.database.FeedPageDao
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.producthunt.data.api.model.Post
+import java.lang.reflect.Type
+
+/**
+ * Local storage for the first pages of each feed source, implemented using Room.
+ */
+class FeedLocalDataSource(
+    private val dao: FeedPageDao,
+    private val gson: Gson,
+    private val maxPages: Int = MAX_PAGES
+) {
+
+    /**
+     * Pages stored for [sourceKeys], ordered by page. Pages that can't be read anymore, e.g.
+     * after a model change, are skipped.
+     */
+    suspend fun getPages(sourceKeys: List<String>): List<FeedPage> {
+        if (sourceKeys.isEmpty()) return emptyList()
+        return dao.getPages(sourceKeys).mapNotNull { it.toFeedPage() }
+    }
+
+    /**
+     * Stores a page loaded for a source. Only the first [maxPages] pages of each source are
+     * stored, as that's what's displayed on start.
+     */
+    suspend fun savePage(sourceKey: String, page: Int, items: List<PlaidItem>) {
+        if (page > maxPages || items.isEmpty()) return
+        val itemType = typeOf(items[0]) ?: return
+        dao.savePage(
+            CachedFeedPage(
+                sourceKey = sourceKey,
+                page = page,
+                itemType = itemType,
+                items = gson.toJson(items),
+                savedAt = System.currentTimeMillis()
+            )
+        )
+    }
+
+    suspend fun deletePages(sourceKey: String) = dao.deletePages(sourceKey)
+
+    private fun CachedFeedPage.toFeedPage(): FeedPage? {
+        val type = listTypes[itemType] ?: return null
+        return try {
+            val pageItems: List<PlaidItem>? = gson.fromJson(items, type)
+            pageItems?.let { FeedPage(sourceKey, page, it) }
+        } catch (e: JsonParseException) {
+            null
+        }
+    }
+
+    private fun typeOf(item: PlaidItem) = when (item) {
+        is Shot -> ITEM_TYPE_SHOT
+        is Story -> ITEM_TYPE_STORY
+        is Post -> ITEM_TYPE_POST
+        else -> null
+    }
+
+    companion object {
+        const val MAX_PAGES = 2
+
+        private const val ITEM_TYPE_SHOT = "shot"
+        private const val ITEM_TYPE_STORY = "story"
+        private const val ITEM_TYPE_POST = "post"
+
+        private val listTypes: Map<String, Type> = mapOf(
+            ITEM_TYPE_SHOT to TypeToken.getParameterized(List::class.java, Shot::class.java).type,
+            ITEM_TYPE_STORY to TypeToken.getParameterized(List::class.java, Story::class.java).type,
+            ITEM_TYPE_POST to TypeToken.getParameterized(List::class.java, Post::class.java).type
+        )
+    }
+}
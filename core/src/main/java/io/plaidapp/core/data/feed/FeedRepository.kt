@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.feed
+
+import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.designernews.data.stories.StoriesRepository
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.designernews.data.stories.model.toStoryResponse
+import io.plaidapp.core.dribbble.data.ShotsRepository
+import io.plaidapp.core.dribbble.data.api.model.Shot
+
+/**
+ * Repository for the feed pages kept on disk, so that the feed can be displayed on start
+ * before the sources are loaded from the network.
+ */
+class FeedRepository(
+    private val localDataSource: FeedLocalDataSource,
+    private val shotsRepository: ShotsRepository,
+    private val storiesRepository: StoriesRepository
+) {
+
+    /**
+     * Get the stored pages for [sourceKeys]. The items are also added to the repositories
+     * of their service, so that they can be opened like items loaded from the network.
+     */
+    suspend fun getCachedPages(sourceKeys: List<String>): List<FeedPage> {
+        val pages = localDataSource.getPages(sourceKeys)
+        pages.forEach { page ->
+            shotsRepository.cache(page.items.filterIsInstance<Shot>())
+            page.items.filterIsInstance<Story>().forEach {
+                storiesRepository.cache(it.toStoryResponse(), it)
+            }
+        }
+        return pages
+    }
+
+    suspend fun savePage(sourceKey: String, page: Int, items: List<PlaidItem>) =
+        localDataSource.savePage(sourceKey, page, items)
+
+    suspend fun removeSource(sourceKey: String) = localDataSource.deletePages(sourceKey)
+
+    companion object {
+        @Volatile
+        private var INSTANCE: FeedRepository? = null
+
+        fun getInstance(
+            localDataSource: FeedLocalDataSource,
+            shotsRepository: ShotsRepository,
+            storiesRepository: StoriesRepository
+        ): FeedRepository {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: FeedRepository(localDataSource, shotsRepository, storiesRepository)
+                    .also { INSTANCE = it }
+            }
+        }
+    }
+}
@@ -23,9 +23,14 @@ import io.plaidapp.core.dribbble.data.DribbbleSourceItem
 import io.plaidapp.core.ui.filter.FiltersChangedCallback
 import kotlinx.coroutines.withContext
 import java.util.Collections
+import java.util.concurrent.CopyOnWriteArrayList
 
 /**
  * Manage saving and retrieving data sources from disk.
+ *
+ * The sources can be read and changed from any thread: the cached sources are guarded by a lock,
+ * callers and callbacks only ever get a copy of them, and callbacks are dispatched outside of the
+ * lock.
  */
 class SourcesRepository(
     private val defaultSources: List<SourceItem>,
@@ -33,8 +38,9 @@ class SourcesRepository(
     private val dispatcherProvider: CoroutinesDispatcherProvider
 ) {
 
+    // guarded by synchronizing on itself
     private val cache = mutableListOf<SourceItem>()
-    private val callbacks = mutableListOf<FiltersChangedCallback>()
+    private val callbacks = CopyOnWriteArrayList<FiltersChangedCallback>()
 
     fun registerFilterChangedCallback(callback: FiltersChangedCallback) {
         callbacks.add(callback)
@@ -46,13 +52,21 @@ class SourcesRepository(
 
     @Deprecated("Use the suspending getSources")
     fun getSourcesSync(): List<SourceItem> {
-        if (cache.isNotEmpty()) {
-            return cache
+        synchronized(cache) {
+            if (cache.isNotEmpty()) {
+                return cache.toList()
+            }
+            // cache is empty
+            cache.addAll(loadSources())
         }
-        // cache is empty
+        dispatchSourcesUpdated()
+        return snapshot()
+    }
+
+    private fun loadSources(): List<SourceItem> {
         val sourceKeys = dataSource.getKeys()
         if (sourceKeys == null) {
-            addSources(defaultSources)
+            defaultSources.forEach { dataSource.addSource(it.key, it.active) }
             return defaultSources
         }
 
@@ -78,56 +92,56 @@ class SourcesRepository(
             }
         }
         Collections.sort(sources, SourceItem.SourceComparator())
-        cache.addAll(sources)
-        dispatchSourcesUpdated()
-        return cache
+        return sources
     }
 
     fun addSources(sources: List<SourceItem>) {
-        sources.forEach { dataSource.addSource(it.key, it.active) }
-        cache.addAll(sources)
+        synchronized(cache) {
+            sources.forEach { dataSource.addSource(it.key, it.active) }
+            cache.addAll(sources)
+        }
         dispatchSourcesUpdated()
     }
 
     fun addOrMarkActiveSources(sources: List<SourceItem>) {
         val sourcesToAdd = mutableListOf<SourceItem>()
-        sources.forEach { toAdd ->
-            // first check if it already exists
-            var sourcePresent = false
-            for (i in 0 until cache.size) {
-                val existing = cache[i]
-                if (existing.javaClass == toAdd.javaClass &&
-                        existing.key.equals(toAdd.key, ignoreCase = true)
-                ) {
-                    sourcePresent = true
-                    // already exists, just ensure it's active
-                    if (!existing.active) {
-                        changeSourceActiveState(existing.key)
-                    }
+        val sourcesToActivate = mutableListOf<String>()
+        synchronized(cache) {
+            sources.forEach { toAdd ->
+                // first check if it already exists
+                val existing = cache.filter {
+                    it.javaClass == toAdd.javaClass && it.key.equals(toAdd.key, ignoreCase = true)
                 }
-            }
-            if (!sourcePresent) {
-                // doesn't exist so needs to be added
-                sourcesToAdd += toAdd
+                if (existing.isEmpty()) {
+                    // doesn't exist so needs to be added
+                    sourcesToAdd += toAdd
+                }
+                // already exists, just ensure it's active
+                existing.filterNot { it.active }.mapTo(sourcesToActivate) { it.key }
             }
         }
+        sourcesToActivate.forEach { changeSourceActiveState(it) }
         // they didn't already exist, so add them
         addSources(sourcesToAdd)
     }
 
     fun changeSourceActiveState(sourceKey: String) {
-        cache.find { it.key == sourceKey }?.let {
-            val newActiveState = !it.active
-            it.active = newActiveState
-            dataSource.updateSource(sourceKey, newActiveState)
-            dispatchSourceChanged(it)
+        val changedSource = synchronized(cache) {
+            cache.find { it.key == sourceKey }?.also {
+                val newActiveState = !it.active
+                it.active = newActiveState
+                dataSource.updateSource(sourceKey, newActiveState)
+            }
         }
+        changedSource?.let { dispatchSourceChanged(it) }
         dispatchSourcesUpdated()
     }
 
     fun removeSource(sourceKey: String) {
-        dataSource.removeSource(sourceKey)
-        cache.removeAll { it.key == sourceKey }
+        synchronized(cache) {
+            dataSource.removeSource(sourceKey)
+            cache.removeAll { it.key == sourceKey }
+        }
         dispatchSourceRemoved(sourceKey)
         dispatchSourcesUpdated()
     }
@@ -141,8 +155,11 @@ class SourcesRepository(
                 .also { it?.active = active }
     }
 
+    private fun snapshot(): List<SourceItem> = synchronized(cache) { cache.toList() }
+
     private fun dispatchSourcesUpdated() {
-        callbacks.forEach { it.onFiltersUpdated(cache) }
+        val sources = snapshot()
+        callbacks.forEach { it.onFiltersUpdated(sources) }
     }
 
     private fun dispatchSourceChanged(source: SourceItem) {
@@ -17,14 +17,17 @@
 package io.plaidapp.core.designernews.data.stories
 
 import io.plaidapp.core.data.Result
+import io.plaidapp.core.data.cache.ItemCache
+import io.plaidapp.core.designernews.data.stories.model.Story
 import io.plaidapp.core.designernews.data.stories.model.StoryResponse
+import java.util.concurrent.TimeUnit
 
 /**
  * Repository class that handles work with Designer News Stories.
  */
 class StoriesRepository(private val remoteDataSource: StoriesRemoteDataSource) {
 
-    private val cache = mutableMapOf<Long, StoryResponse>()
+    private val cache = ItemCache<Long, StoryResponse>(MAX_CACHED_STORIES, CACHE_TIME_TO_LIVE)
 
     suspend fun loadStories(page: Int) = getData { remoteDataSource.loadStories(page) }
 
@@ -49,11 +52,22 @@ class StoriesRepository(private val remoteDataSource: StoriesRemoteDataSource) {
         }
     }
 
-    private fun cache(data: List<StoryResponse>) {
-        data.associateTo(cache) { it.id to it }
+    fun cache(data: List<StoryResponse>) {
+        data.forEach { cache[it.id] = it }
+    }
+
+    /**
+     * Caches [response], keeping it for as long as [story], created from it, is reachable, e.g.
+     * while a feed displays it.
+     */
+    fun cache(response: StoryResponse, story: Story) {
+        cache.put(response.id, response, story)
     }
 
     companion object {
+        private const val MAX_CACHED_STORIES = 1000
+        private val CACHE_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1)
+
         @Volatile
         private var INSTANCE: StoriesRepository? = null
 
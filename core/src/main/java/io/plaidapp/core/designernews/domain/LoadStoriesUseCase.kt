@@ -34,7 +34,9 @@ class LoadStoriesUseCase @Inject constructor(
         val result = storiesRepository.loadStories(page)
         when (result) {
             is Result.Success -> {
-                val stories = result.data.map { it.toStory(page) }
+                val stories = result.data.map { response ->
+                    response.toStory(page).also { storiesRepository.cache(response, it) }
+                }
                 return Result.Success(stories)
             }
             is Result.Error -> {
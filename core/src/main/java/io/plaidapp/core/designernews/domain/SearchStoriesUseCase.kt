@@ -32,7 +32,9 @@ class SearchStoriesUseCase @Inject constructor(private val storiesRepository: St
         val result = storiesRepository.search(query, page)
         when (result) {
             is Result.Success -> {
-                val stories = result.data.map { it.toStory(page) }
+                val stories = result.data.map { response ->
+                    response.toStory(page).also { storiesRepository.cache(response, it) }
+                }
                 return Result.Success(stories)
             }
             is Result.Error -> return result
@@ -17,15 +17,17 @@
 package io.plaidapp.core.dribbble.data
 
 import io.plaidapp.core.data.Result
+import io.plaidapp.core.data.cache.ItemCache
 import io.plaidapp.core.dribbble.data.api.model.Shot
 import io.plaidapp.core.dribbble.data.search.SearchRemoteDataSource
+import java.util.concurrent.TimeUnit
 
 /**
  * Repository class that handles working with Dribbble.
  */
 class ShotsRepository constructor(private val remoteDataSource: SearchRemoteDataSource) {
 
-    private val shotCache = mutableMapOf<Long, Shot>()
+    private val shotCache = ItemCache<Long, Shot>(MAX_CACHED_SHOTS, CACHE_TIME_TO_LIVE)
 
     suspend fun search(query: String, page: Int): Result<List<Shot>> {
         val result = remoteDataSource.search(query, page)
@@ -44,11 +46,14 @@ class ShotsRepository constructor(private val remoteDataSource: SearchRemoteData
         }
     }
 
-    private fun cache(shots: List<Shot>) {
-        shots.associateTo(shotCache) { it.id to it }
+    fun cache(shots: List<Shot>) {
+        shots.forEach { shotCache[it.id] = it }
     }
 
     companion object {
+        private const val MAX_CACHED_SHOTS = 1000
+        private val CACHE_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1)
+
         @Volatile
         private var INSTANCE: ShotsRepository? = null
 
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.dribbble.data.search
+
+import io.plaidapp.core.dribbble.data.api.model.Images
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.dribbble.data.api.model.User
+import io.plaidapp.core.dribbble.data.search.HtmlTokenizer.Companion.END_DOCUMENT
+import io.plaidapp.core.dribbble.data.search.HtmlTokenizer.Companion.END_TAG
+import io.plaidapp.core.dribbble.data.search.HtmlTokenizer.Companion.START_TAG
+import io.plaidapp.core.dribbble.data.search.HtmlTokenizer.Companion.TEXT
+import java.io.Reader
+import java.text.ParseException
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+import java.util.regex.Pattern
+
+private const val HOST = "https://dribbble.com"
+private const val SHOTS = "/shots/"
+private const val SCREENSHOT_ID_PREFIX = "screenshot-"
+
+private val PATTERN_PLAYER_ID = Pattern.compile("users/(\\d+?)/", Pattern.DOTALL)
+
+/**
+ * Extracts the shots of a Dribbble search results page while streaming through its HTML.
+ *
+ * Rather than building a document and querying it, the selectors a shot is read with, relative
+ * to its `li[id^=screenshot]` element, are hardcoded into a [ShotParser] fed with the tokens of
+ * that element. Shots are emitted as soon as their element ends.
+ */
+internal class DribbbleSearchParser(reader: Reader) {
+
+    private val tokenizer = HtmlTokenizer(reader)
+    // SimpleDateFormat isn't thread safe, so every page gets its own
+    private val dateFormat = SimpleDateFormat("MMMM d, yyyy", Locale.US)
+
+    fun parse(onShot: (Shot) -> Unit) {
+        var shot: ShotParser? = null
+        while (true) {
+            when (tokenizer.next()) {
+                START_TAG -> if (shot != null) {
+                    shot.startTag(tokenizer)
+                } else if (tokenizer.name == "li") {
+                    val id = tokenizer.attribute("id")
+                    if (id != null && id.startsWith(SCREENSHOT_ID_PREFIX)) {
+                        shot = ShotParser(id.removePrefix(SCREENSHOT_ID_PREFIX).toLong())
+                    }
+                }
+                END_TAG -> if (shot != null && shot.endTag(tokenizer.name)) {
+                    onShot(shot.build(dateFormat))
+                    shot = null
+                }
+                TEXT -> shot?.text(tokenizer.text)
+                END_DOCUMENT -> return
+            }
+        }
+    }
+}
+
+/**
+ * State of the selectors of a shot while going through the tokens of its element.
+ *
+ * - description block: the first `a.dribbble-over`, holding the title (first `strong`), the
+ * description (every `span.comment`) and the creation date (first `em.timestamp`)
+ * - image: the first `img`
+ * - likes and views: the first child of the first `li.fav` and `li.views`
+ * - player: the first `a.url` of the first `h2`, and the first `img.photo` within it
+ */
+private class ShotParser(private val id: Long) {
+
+    private var itemDepth = 1
+    private val descriptionBlock = Selection("a")
+    private val attribution = Selection("h2")
+    private val userBlock = Selection("a")
+
+    private var title: String? = null
+    private val description = StringBuilder()
+    private var timestamp: String? = null
+    private var imageUrl: String? = null
+    private var likesCount: String? = null
+    private var viewsCount: String? = null
+    private var userUrl: String? = null
+    private var userName: String? = null
+    private var avatarUrl: String? = null
+
+    private var pendingChildOf: Field? = null
+    private var captured: Field? = null
+    private var capturedElement = ""
+    private var capturedDepth = 0
+    private val capturedText = StringBuilder()
+
+    fun startTag(tokenizer: HtmlTokenizer) {
+        val name = tokenizer.name
+        if (captured != null) {
+            if (name == capturedElement) capturedDepth++
+            if (name == "br") capturedText.append(' ')
+        }
+        pendingChildOf?.let {
+            pendingChildOf = null
+            capture(it, name)
+        }
+        when (name) {
+            "li" -> {
+                itemDepth++
+                if (likesCount == null && tokenizer.hasClass("fav")) {
+                    pendingChildOf = Field.LIKES
+                } else if (viewsCount == null && tokenizer.hasClass("views")) {
+                    pendingChildOf = Field.VIEWS
+                }
+            }
+            "a" -> {
+                descriptionBlock.enter(tokenizer.hasClass("dribbble-over"))
+                if (attribution.isOpen && userBlock.enter(tokenizer.hasClass("url"))) {
+                    userUrl = tokenizer.attribute("href").orEmpty()
+                    capture(Field.USER_NAME, name)
+                }
+            }
+            "h2" -> attribution.enter(true)
+            "strong" -> if (descriptionBlock.isOpen && title == null) {
+                capture(Field.TITLE, name)
+            }
+            "span" -> if (descriptionBlock.isOpen && tokenizer.hasClass("comment")) {
+                capture(Field.DESCRIPTION, name)
+            }
+            "em" -> if (descriptionBlock.isOpen && timestamp == null &&
+                tokenizer.hasClass("timestamp")
+            ) {
+                capture(Field.TIMESTAMP, name)
+            }
+            "img" -> {
+                if (imageUrl == null) imageUrl = tokenizer.attribute("src").orEmpty()
+                if (userBlock.isOpen && avatarUrl == null && tokenizer.hasClass("photo")) {
+                    avatarUrl = tokenizer.attribute("src").orEmpty()
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if this ends the element of the shot.
+     */
+    fun endTag(name: String): Boolean {
+        if (captured != null && name == capturedElement && --capturedDepth == 0) {
+            endCapture()
+        }
+        when (name) {
+            "li" -> {
+                // an element without children
+                pendingChildOf = null
+                return --itemDepth == 0
+            }
+            "a" -> {
+                descriptionBlock.exit()
+                userBlock.exit()
+            }
+            "h2" -> attribution.exit()
+        }
+        return false
+    }
+
+    fun text(text: String) {
+        if (captured != null) capturedText.append(text)
+    }
+
+    fun build(dateFormat: SimpleDateFormat): Shot {
+        if (captured != null) endCapture()
+
+        // API responses wrap description in a <p> tag. Do the same for consistent display.
+        var description = normalizeWhitespace(description)
+        if (description.isNotEmpty()) {
+            description = "<p>$description</p>"
+        }
+        var imgUrl = checkNotNull(imageUrl) { "No image for shot $id" }
+        if (imgUrl.contains("_teaser.")) {
+            imgUrl = imgUrl.replace("_teaser.", ".")
+        }
+        val createdAt: Date? = try {
+            timestamp?.let { dateFormat.parse(it) }
+        } catch (e: ParseException) {
+            null
+        }
+
+        return Shot(
+            id = id,
+            htmlUrl = HOST + SHOTS + id,
+            title = checkNotNull(title) { "No title for shot $id" },
+            page = 0,
+            description = description,
+            images = Images(normal = imgUrl),
+            animated = imgUrl.endsWith(".gif", ignoreCase = true),
+            createdAt = createdAt,
+            // in case the shot doesn't have any likes, the tag is missing completely
+            likesCount = likesCount?.let { parseCount(it) } ?: 0,
+            viewsCount = parseCount(checkNotNull(viewsCount) { "No views for shot $id" }),
+            user = buildPlayer()
+        )
+    }
+
+    private fun buildPlayer(): User {
+        var avatarUrl = checkNotNull(avatarUrl) { "No player avatar for shot $id" }
+        if (avatarUrl.contains("/mini/")) {
+            avatarUrl = avatarUrl.replace("/mini/", "/normal/")
+        }
+        val matchId = PATTERN_PLAYER_ID.matcher(avatarUrl)
+        var playerId: Long = -1L
+        if (matchId.find() && matchId.groupCount() == 1) {
+            playerId = matchId.group(1).toLong()
+        }
+        val slashUsername = checkNotNull(userUrl) { "No player for shot $id" }
+
+        return User(
+            id = playerId,
+            name = userName.orEmpty(),
+            username = slashUsername.substring(1),
+            avatarUrl = avatarUrl
+        )
+    }
+
+    private fun capture(field: Field, element: String) {
+        if (captured != null) return
+        captured = field
+        capturedElement = element
+        capturedDepth = 1
+        capturedText.setLength(0)
+    }
+
+    private fun endCapture() {
+        val text = normalizeWhitespace(capturedText)
+        when (captured) {
+            Field.TITLE -> title = text
+            Field.DESCRIPTION -> {
+                if (description.isNotEmpty() && text.isNotEmpty()) description.append(' ')
+                description.append(text)
+            }
+            Field.TIMESTAMP -> timestamp = text
+            Field.LIKES -> likesCount = text
+            Field.VIEWS -> viewsCount = text
+            Field.USER_NAME -> userName = text
+        }
+        captured = null
+    }
+
+    private fun parseCount(count: String) = count.replace(",", "").toInt()
+
+    private enum class Field { TITLE, DESCRIPTION, TIMESTAMP, LIKES, VIEWS, USER_NAME }
+
+    /**
+     * Tracks the first element named [element] matching a selector, while it's open.
+     */
+    private class Selection(private val element: String) {
+
+        private var depth = 0
+        private var done = false
+
+        val isOpen: Boolean
+            get() = depth > 0
+
+        /**
+         * Called on every start tag named [element] within the shot.
+         *
+         * @return true if the tag opens the selected element.
+         */
+        fun enter(matches: Boolean): Boolean {
+            if (isOpen) {
+                depth++
+                return false
+            }
+            if (!done && matches) {
+                depth = 1
+                return true
+            }
+            return false
+        }
+
+        fun exit() {
+            if (isOpen && --depth == 0) done = true
+        }
+    }
+
+    companion object {
+
+        /**
+         * Collapses runs of whitespace into single spaces and trims the text, as the text of an
+         * element is displayed.
+         */
+        fun normalizeWhitespace(text: CharSequence): String {
+            val normalized = StringBuilder(text.length)
+            var pendingSpace = false
+            for (char in text) {
+                // also covers non breaking spaces
+                if (char.isWhitespace()) {
+                    pendingSpace = normalized.isNotEmpty()
+                } else {
+                    if (pendingSpace) normalized.append(' ')
+                    pendingSpace = false
+                    normalized.append(char)
+                }
+            }
+            return normalized.toString()
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.dribbble.data.search
+
+import java.io.Reader
+
+/**
+ * Minimal pull tokenizer for HTML, reading the markup incrementally from a [Reader] rather than
+ * building a document out of it. It reports start tags with their attributes, end tags and runs
+ * of text; comments, doctypes and the content of `script` and `style` elements are skipped.
+ *
+ * Element names are lower cased. Entities are decoded in text and attribute values, as far as
+ * the common named ones and numeric references go.
+ */
+internal class HtmlTokenizer(private val reader: Reader) {
+
+    private val buffer = CharArray(BUFFER_SIZE)
+    private var position = 0
+    private var limit = 0
+    private var rawTextElement: String? = null
+
+    /** Name of the current start or end tag. */
+    var name = ""
+        private set
+
+    /** Text of the current [TEXT] token. */
+    var text = ""
+        private set
+
+    private val attributes = HashMap<String, String>()
+    private val builder = StringBuilder()
+
+    /**
+     * Moves to the next token.
+     *
+     * @return the type of the token: [START_TAG], [END_TAG], [TEXT] or [END_DOCUMENT].
+     */
+    fun next(): Int {
+        rawTextElement?.let {
+            rawTextElement = null
+            if (skipRawText(it)) return END_TAG
+        }
+        while (true) {
+            val c = read()
+            if (c == EOF) return END_DOCUMENT
+            if (c != '<'.toInt()) return readText(c)
+            val next = peek()
+            when {
+                next == '/'.toInt() -> {
+                    read()
+                    readName()
+                    skipPast('>')
+                    return END_TAG
+                }
+                next == '!'.toInt() -> {
+                    read()
+                    if (read() == '-'.toInt() && peek() == '-'.toInt()) {
+                        read()
+                        skipComment()
+                    } else {
+                        skipPast('>')
+                    }
+                }
+                next == '?'.toInt() -> skipPast('>')
+                next != EOF && Character.isLetter(next) -> {
+                    readName()
+                    readAttributes()
+                    if (name == "script" || name == "style") rawTextElement = name
+                    return START_TAG
+                }
+                else -> return readText(c)
+            }
+        }
+    }
+
+    /**
+     * Value of the attribute [attributeName] of the current start tag, or null if it doesn't
+     * have it.
+     */
+    fun attribute(attributeName: String): String? = attributes[attributeName]
+
+    /**
+     * Whether the current start tag has [className] amongst its classes.
+     */
+    fun hasClass(className: String): Boolean {
+        val classes = attributes["class"] ?: return false
+        var start = classes.indexOf(className)
+        while (start >= 0) {
+            val end = start + className.length
+            if ((start == 0 || classes[start - 1].isWhitespace()) &&
+                (end == classes.length || classes[end].isWhitespace())
+            ) {
+                return true
+            }
+            start = classes.indexOf(className, end)
+        }
+        return false
+    }
+
+    private fun readText(first: Int): Int {
+        builder.setLength(0)
+        builder.append(first.toChar())
+        while (true) {
+            val c = peek()
+            if (c == EOF || c == '<'.toInt()) break
+            builder.append(read().toChar())
+        }
+        text = unescape(builder)
+        return TEXT
+    }
+
+    private fun readName() {
+        builder.setLength(0)
+        while (true) {
+            val c = peek()
+            if (c == EOF || c == '>'.toInt() || c == '/'.toInt() || isWhitespace(c)) break
+            builder.append(Character.toLowerCase(read().toChar()))
+        }
+        name = builder.toString()
+    }
+
+    private fun readAttributes() {
+        attributes.clear()
+        while (true) {
+            skipWhitespace()
+            val c = read()
+            if (c == EOF || c == '>'.toInt()) return
+            if (c == '/'.toInt()) continue
+
+            builder.setLength(0)
+            builder.append(Character.toLowerCase(c.toChar()))
+            while (true) {
+                val next = peek()
+                if (next == EOF || next == '='.toInt() || next == '>'.toInt() ||
+                    next == '/'.toInt() || isWhitespace(next)
+                ) {
+                    break
+                }
+                builder.append(Character.toLowerCase(read().toChar()))
+            }
+            val attributeName = builder.toString()
+            skipWhitespace()
+            if (peek() == '='.toInt()) {
+                read()
+                skipWhitespace()
+                attributes[attributeName] = readAttributeValue()
+            } else {
+                attributes[attributeName] = ""
+            }
+        }
+    }
+
+    private fun readAttributeValue(): String {
+        builder.setLength(0)
+        val quote = peek()
+        if (quote == '"'.toInt() || quote == '\''.toInt()) {
+            read()
+            while (true) {
+                val c = read()
+                if (c == EOF || c == quote) break
+                builder.append(c.toChar())
+            }
+        } else {
+            while (true) {
+                val c = peek()
+                if (c == EOF || c == '>'.toInt() || isWhitespace(c)) break
+                builder.append(read().toChar())
+            }
+        }
+        return unescape(builder)
+    }
+
+    /**
+     * Skips the content of [element] up to its end tag.
+     *
+     * @return true if the end tag was found, in which case it's the current token.
+     */
+    private fun skipRawText(element: String): Boolean {
+        // -2 while looking for '<', -1 for '/', then the number of characters of the name matched
+        var matched = -2
+        while (true) {
+            val c = read()
+            if (c == EOF) return false
+            val char = Character.toLowerCase(c.toChar())
+            matched = when {
+                char == '<' -> -1
+                matched == -1 && char == '/' -> 0
+                matched >= 0 && char == element[matched] -> matched + 1
+                else -> -2
+            }
+            if (matched == element.length) {
+                name = element
+                skipPast('>')
+                return true
+            }
+        }
+    }
+
+    private fun skipComment() {
+        var dashes = 0
+        while (true) {
+            val c = read()
+            if (c == EOF || (c == '>'.toInt() && dashes >= 2)) return
+            dashes = if (c == '-'.toInt()) dashes + 1 else 0
+        }
+    }
+
+    private fun skipPast(char: Char) {
+        while (true) {
+            val c = read()
+            if (c == EOF || c == char.toInt()) return
+        }
+    }
+
+    private fun skipWhitespace() {
+        while (isWhitespace(peek())) read()
+    }
+
+    private fun isWhitespace(c: Int) = c != EOF && Character.isWhitespace(c)
+
+    private fun peek(): Int {
+        if (position == limit) {
+            var count = reader.read(buffer)
+            while (count == 0) count = reader.read(buffer)
+            if (count < 0) return EOF
+            position = 0
+            limit = count
+        }
+        return buffer[position].toInt()
+    }
+
+    private fun read(): Int {
+        val c = peek()
+        if (c != EOF) position++
+        return c
+    }
+
+    companion object {
+        const val START_TAG = 1
+        const val END_TAG = 2
+        const val TEXT = 3
+        const val END_DOCUMENT = 4
+
+        private const val EOF = -1
+        private const val BUFFER_SIZE = 8 * 1024
+        private const val MAX_ENTITY_LENGTH = 10
+
+        private val NAMED_ENTITIES = mapOf(
+            "amp" to "&",
+            "lt" to "<",
+            "gt" to ">",
+            "quot" to "\"",
+            "apos" to "'",
+            "nbsp" to "\u00A0",
+            "hellip" to "…",
+            "mdash" to "—",
+            "ndash" to "–",
+            "lsquo" to "‘",
+            "rsquo" to "’",
+            "ldquo" to "“",
+            "rdquo" to "”",
+            "copy" to "©"
+        )
+
+        /**
+         * Decodes the entities in [value]. Unknown or malformed ones are kept as they are.
+         */
+        fun unescape(value: CharSequence): String {
+            var ampersand = value.indexOf('&')
+            if (ampersand < 0) return value.toString()
+            val decoded = StringBuilder(value.length)
+            var start = 0
+            while (ampersand >= 0) {
+                val semicolon = value.indexOf(';', ampersand + 1)
+                if (semicolon < 0) break
+                val entity = if (semicolon - ampersand <= MAX_ENTITY_LENGTH) {
+                    decodeEntity(value.substring(ampersand + 1, semicolon))
+                } else {
+                    null
+                }
+                if (entity != null) {
+                    decoded.append(value, start, ampersand).append(entity)
+                    start = semicolon + 1
+                }
+                ampersand = value.indexOf('&', ampersand + 1)
+            }
+            return decoded.append(value, start, value.length).toString()
+        }
+
+        private fun decodeEntity(entity: String): String? {
+            if (!entity.startsWith("#")) return NAMED_ENTITIES[entity]
+            val codePoint = if (entity.startsWith("#x") || entity.startsWith("#X")) {
+                entity.substring(2).toIntOrNull(16)
+            } else {
+                entity.substring(1).toIntOrNull()
+            }
+            return if (codePoint != null && Character.isValidCodePoint(codePoint)) {
+                String(Character.toChars(codePoint))
+            } else {
+                null
+            }
+        }
+    }
+}
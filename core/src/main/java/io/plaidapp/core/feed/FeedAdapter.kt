@@ -32,6 +32,7 @@ import android.widget.ProgressBar
 import androidx.annotation.ColorInt
 import androidx.browser.customtabs.CustomTabsIntent
 import androidx.core.content.ContextCompat
+import androidx.recyclerview.widget.AdapterListUpdateCallback
 import androidx.recyclerview.widget.RecyclerView
 import com.bumptech.glide.ListPreloader
 import com.bumptech.glide.RequestBuilder
@@ -41,9 +42,10 @@ import com.bumptech.glide.load.engine.GlideException
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions
 import com.bumptech.glide.request.RequestListener
 import com.bumptech.glide.request.target.Target
-import com.bumptech.glide.util.ViewPreloadSizeProvider
 import io.plaidapp.core.R
 import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.data.PlaidItemKey
+import io.plaidapp.core.data.ServiceIdKey
 import io.plaidapp.core.data.pocket.PocketUtils
 import io.plaidapp.core.designernews.data.stories.model.Story
 import io.plaidapp.core.designernews.ui.stories.StoryViewHolder
@@ -54,9 +56,13 @@ import io.plaidapp.core.ui.DribbbleShotHolder
 import io.plaidapp.core.ui.HomeGridItemAnimator
 import io.plaidapp.core.ui.transitions.ReflowText
 import io.plaidapp.core.util.Activities
+import io.plaidapp.core.util.LongIntHashMap
 import io.plaidapp.core.util.customtabs.CustomTabActivityHelper
 import io.plaidapp.core.util.glide.DribbbleTarget
 import io.plaidapp.core.util.glide.GlideApp
+import io.plaidapp.core.util.glide.ShotImageSelector
+import io.plaidapp.core.util.glide.loadShotImage
+import io.plaidapp.core.util.glide.loadShotImageProgressively
 import io.plaidapp.core.util.intentTo
 
 /**
@@ -67,11 +73,17 @@ class FeedAdapter(
     private val host: Activity,
     private val columns: Int,
     private val pocketIsInstalled: Boolean,
-    private val isDarkTheme: Boolean
-) : RecyclerView.Adapter<RecyclerView.ViewHolder>(), ListPreloader.PreloadModelProvider<Shot> {
+    private val isDarkTheme: Boolean,
+    private val itemKey: PlaidItemKey = ServiceIdKey,
+    private val imageSelector: ShotImageSelector = ShotImageSelector.getInstance()
+) : RecyclerView.Adapter<RecyclerView.ViewHolder>(),
+    ListPreloader.PreloadModelProvider<Shot>,
+    ListPreloader.PreloadSizeProvider<Shot> {
     private val layoutInflater: LayoutInflater = LayoutInflater.from(host)
     private val shotLoadingPlaceholders: Array<ColorDrawable?>
-    private val shotPreloadSizeProvider = ViewPreloadSizeProvider<Shot>()
+
+    // estimated from the screen until a shot is laid out
+    private var shotCellWidth = host.resources.displayMetrics.widthPixels / columns
 
     @ColorInt
     private val initialGifBadgeColor: Int
@@ -79,12 +91,23 @@ class FeedAdapter(
     private val loadingMoreItemPosition: Int
         get() = if (showLoadingMore) itemCount - 1 else RecyclerView.NO_POSITION
 
-    var items: List<PlaidItem> = emptyList()
+    // item id to position, built lazily on the first lookup after the items change
+    private val itemPositions = LongIntHashMap()
+    private var itemPositionsStale = true
+
+    private var displayedItems: List<PlaidItem> = emptyList()
+    // version of the submitted FeedUiModel the displayed items are at
+    private var displayedVersion = NO_VERSION
+
+    var items: List<PlaidItem>
+        get() = displayedItems
         /**
-         * Main entry point for setting items to this adapter.
+         * Replaces the items of this adapter, rebinding all of them.
          */
         set(value) {
-            field = value
+            displayedItems = value
+            displayedVersion = NO_VERSION
+            itemPositionsStale = true
             notifyDataSetChanged()
         }
 
@@ -113,6 +136,23 @@ class FeedAdapter(
         a.recycle()
     }
 
+    /**
+     * Main entry point for setting items to this adapter. Applies the precomputed updates of the
+     * [uiModel] when they were computed against the items currently displayed, falling back to
+     * rebinding everything otherwise (e.g. for a new adapter after a configuration change).
+     */
+    fun submit(uiModel: FeedUiModel) {
+        val previousItems = displayedItems
+        val previousVersion = displayedVersion
+        displayedItems = uiModel.items
+        displayedVersion = uiModel.version
+        itemPositionsStale = true
+        val callback = AdapterListUpdateCallback(this)
+        if (!uiModel.dispatchUpdatesTo(previousItems, previousVersion, callback)) {
+            notifyDataSetChanged()
+        }
+    }
+
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): RecyclerView.ViewHolder {
         return when (viewType) {
             TYPE_DESIGNER_NEWS_STORY -> createDesignerNewsStoryHolder(parent)
@@ -139,6 +179,8 @@ class FeedAdapter(
 
     override fun onViewRecycled(holder: RecyclerView.ViewHolder) {
         if (holder is DribbbleShotHolder) {
+            // release the image, and the decoder of GIFs, rather than waiting for the next bind
+            GlideApp.with(host).clear(holder.image)
             // reset the badge & ripple which are dynamically determined
             holder.reset()
         }
@@ -229,9 +271,14 @@ class FeedAdapter(
         holder: DribbbleShotHolder,
         position: Int
     ) {
-        val imageSize = shot.images.bestSize()
+        if (holder.image.width > 0) {
+            shotCellWidth = holder.image.width
+        }
         GlideApp.with(host)
-            .load(shot.images.best())
+            .loadShotImageProgressively(
+                shot.images,
+                imageSelector.select(shot.images, shotCellWidth)
+            )
             .listener(object : RequestListener<Drawable> {
                 override fun onResourceReady(
                     resource: Drawable,
@@ -256,10 +303,8 @@ class FeedAdapter(
             })
             .placeholder(shotLoadingPlaceholders[position % shotLoadingPlaceholders.size])
             .diskCacheStrategy(DiskCacheStrategy.DATA)
-            .fitCenter()
             .transition(DrawableTransitionOptions.withCrossFade())
-            .override(imageSize.width, imageSize.height)
-            .into(DribbbleTarget(holder.image, false))
+            .into(DribbbleTarget(holder.image, false, shot.images.best()))
         // need both placeholder & background to prevent seeing through shot as it fades in
         shotLoadingPlaceholders[position % shotLoadingPlaceholders.size]?.apply {
             holder.prepareForFade(
@@ -269,7 +314,6 @@ class FeedAdapter(
                 shot.htmlUrl
             )
         }
-        shotPreloadSizeProvider.setView(holder.image)
     }
 
     private fun createProductHuntStoryHolder(parent: ViewGroup): ProductHuntPostHolder {
@@ -330,15 +374,22 @@ class FeedAdapter(
         return if (getItemViewType(position) == TYPE_LOADING_MORE) {
             -1L
         } else {
-            getItem(position)?.id ?: -1L
+            getItem(position)?.let { itemKey.keyOf(it) } ?: -1L
         }
     }
 
+    /**
+     * Position of the item with the given stable [itemId], as returned by [getItemId].
+     */
     fun getItemPosition(itemId: Long): Int {
-        items.forEachIndexed { index, plaidItem ->
-            if (plaidItem.id == itemId) return index
+        if (itemPositionsStale) {
+            itemPositions.clear()
+            items.forEachIndexed { index, plaidItem ->
+                itemPositions.put(itemKey.keyOf(plaidItem), index)
+            }
+            itemPositionsStale = false
         }
-        return RecyclerView.NO_POSITION
+        return itemPositions.get(itemId, RecyclerView.NO_POSITION)
     }
 
     override fun getItemCount(): Int {
@@ -368,7 +419,14 @@ class FeedAdapter(
     }
 
     override fun getPreloadRequestBuilder(item: Shot): RequestBuilder<Drawable>? {
-        return GlideApp.with(host).load(item.images.best())
+        return GlideApp.with(host)
+            .loadShotImage(imageSelector.select(item.images, shotCellWidth))
+            .diskCacheStrategy(DiskCacheStrategy.DATA)
+    }
+
+    override fun getPreloadSize(item: Shot, adapterPosition: Int, perItemPosition: Int): IntArray {
+        val image = imageSelector.select(item.images, shotCellWidth)
+        return intArrayOf(image.width, image.height)
     }
 
     private class LoadingMoreHolder internal constructor(itemView: View) :
@@ -390,6 +448,9 @@ class FeedAdapter(
         private const val TYPE_PRODUCT_HUNT_POST = 2
         private const val TYPE_LOADING_MORE = -1
 
+        // FeedDiffer versions start at 1
+        private const val NO_VERSION = 0
+
         fun createSharedElementReenterCallback(
             context: Context
         ): SharedElementCallback {
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.feed
+
+import androidx.recyclerview.widget.DiffUtil
+import androidx.recyclerview.widget.ListUpdateCallback
+import io.plaidapp.core.data.FeedRange
+import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.data.PlaidItemKey
+import io.plaidapp.core.data.ServiceIdKey
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import java.util.Collections
+
+/**
+ * Lays out the items of a feed in a grid of [columns] and creates [FeedUiModel]s holding the
+ * [FeedUpdates] from the previously created model.
+ *
+ * The first Dribbble shot of every page, the most popular one according to the weighing and
+ * sorting of the feed, is expanded over the whole row. As the layout of an item only depends on
+ * the items before it, only the items from the first changed position on are laid out again.
+ * Insertions and removals are reported from the [FeedRange]s of the feed, so that adding a page
+ * costs about the size of the page rather than the size of the feed; [diff] compares all the
+ * items instead, for updates that change items in place.
+ *
+ * The displayed items are updated in place, so the differ has to be used on the main thread, the
+ * one the adapter reads them on.
+ */
+class FeedDiffer(
+    val columns: Int,
+    private val itemKey: PlaidItemKey = ServiceIdKey
+) {
+
+    private val displayed = ArrayList<PlaidItem>()
+    // positions in the feed of the expanded items, in ascending order
+    private val expandedPositions = ArrayList<Int>()
+    private var version = 0
+
+    /**
+     * Lays out [items] and works out the updates by comparing them to the displayed items, e.g.
+     * when the items of a page were replaced.
+     */
+    fun diff(items: List<PlaidItem>): FeedUiModel {
+        val previousItems = ArrayList(displayed)
+        // items are mutable, so remember the column spans they were displayed with
+        val previousColspans = IntArray(previousItems.size) { previousItems[it].colspan }
+        layOut(items, 0)
+        val changes = mutableListOf<FeedChange>()
+        val callback = ItemCallback(previousItems, previousColspans, displayed)
+        DiffUtil.calculateDiff(callback).dispatchUpdatesTo(object : ListUpdateCallback {
+            override fun onInserted(position: Int, count: Int) {
+                changes.add(FeedChange.Inserted(position, count))
+            }
+
+            override fun onRemoved(position: Int, count: Int) {
+                changes.add(FeedChange.Removed(position, count))
+            }
+
+            override fun onMoved(fromPosition: Int, toPosition: Int) {
+                changes.add(FeedChange.Moved(fromPosition, toPosition))
+            }
+
+            override fun onChanged(position: Int, count: Int, payload: Any?) {
+                changes.add(FeedChange.Changed(position, count))
+            }
+        })
+        return createUiModel(changes)
+    }
+
+    /**
+     * Lays out [items], the feed after the items at the [inserted] ranges were added to it.
+     */
+    fun inserted(items: List<PlaidItem>, inserted: List<FeedRange>): FeedUiModel {
+        val start = restartPosition(inserted.firstOrNull()?.start ?: items.size)
+        val previousItems = ArrayList(displayed.subList(start, displayed.size))
+        val previousColspans = IntArray(previousItems.size) { previousItems[it].colspan }
+        layOut(items, start)
+
+        val changes = inserted.mapTo(mutableListOf<FeedChange>()) {
+            FeedChange.Inserted(it.start, it.count)
+        }
+        // once the insertions are applied, the other positions still hold the previous items
+        val changed = ChangedRanges(changes)
+        var previous = 0
+        var range = 0
+        for (position in start until displayed.size) {
+            while (range < inserted.size && inserted[range].end <= position) range++
+            if (range < inserted.size && inserted[range].start <= position) continue
+            changed.compare(position, previousItems[previous], previousColspans[previous])
+            previous++
+        }
+        changed.flush()
+        return createUiModel(changes)
+    }
+
+    /**
+     * Lays out [items], the feed after the items at the [removed] ranges were removed from it.
+     * The ranges go from the end of the feed towards the start, as returned by the feed.
+     */
+    fun removed(items: List<PlaidItem>, removed: List<FeedRange>): FeedUiModel {
+        val start = restartPosition(removed.lastOrNull()?.start ?: displayed.size)
+        val previousItems = ArrayList(displayed.subList(start, displayed.size))
+        val previousColspans = IntArray(previousItems.size) { previousItems[it].colspan }
+        layOut(items, start)
+
+        val changes = removed.mapTo(mutableListOf<FeedChange>()) {
+            FeedChange.Removed(it.start, it.count)
+        }
+        // once the removals are applied, the remaining previous items shift to fill the gaps
+        val changed = ChangedRanges(changes)
+        var position = start
+        var range = removed.size - 1
+        previousItems.forEachIndexed { previous, item ->
+            val previousPosition = start + previous
+            while (range >= 0 && removed[range].end <= previousPosition) range--
+            if (range < 0 || removed[range].start > previousPosition) {
+                changed.compare(position++, item, previousColspans[previous])
+            }
+        }
+        changed.flush()
+        return createUiModel(changes)
+    }
+
+    private fun createUiModel(changes: List<FeedChange>): FeedUiModel {
+        val updates = if (version == 0) null else FeedUpdates(version, changes)
+        version++
+        return FeedUiModel(displayed, version, updates)
+    }
+
+    /**
+     * The position to lay out the items again from when the items from [position] on changed.
+     * That is earlier than [position] if an expanded item before it could have been swapped with
+     * an item at or after it.
+     */
+    private fun restartPosition(position: Int): Int {
+        var start = minOf(position, displayed.size)
+        var expanded = expandedPositions.size
+        while (expanded > 0 && expandedPositions[expanded - 1] >= start) expanded--
+        while (expanded > 0 && expandedPositions[expanded - 1] + columns - 1 >= start) {
+            start = expandedPositions[--expanded]
+        }
+        return start
+    }
+
+    /**
+     * Lays out [items] from [start], a position returned by [restartPosition], on.
+     */
+    private fun layOut(items: List<PlaidItem>, start: Int) {
+        var kept = expandedPositions.size
+        while (kept > 0 && expandedPositions[kept - 1] >= start) kept--
+        expandedPositions.subList(kept, expandedPositions.size).clear()
+        displayed.subList(start, displayed.size).clear()
+        displayed.ensureCapacity(items.size)
+
+        // for now just expand the first dribbble image per page which should be
+        // the most popular according to our weighing & sorting
+        var page = if (kept > 0) (items[expandedPositions[kept - 1]] as Shot).page else -1
+        for (position in start until items.size) {
+            val item = items[position]
+            if (item is Shot && item.page > page) {
+                item.colspan = columns
+                page = item.page
+                expandedPositions.add(position)
+            } else {
+                item.colspan = 1
+            }
+            displayed.add(item)
+        }
+
+        // make sure that any expanded items are at the start of a row
+        // so that we don't leave any gaps in the grid
+        for (expanded in kept until expandedPositions.size) {
+            val position = expandedPositions[expanded]
+            val extraSpannedSpaces = expanded * (columns - 1)
+            val rowPosition = (position + extraSpannedSpaces) % columns
+            if (rowPosition != 0) {
+                val swapWith = position + (columns - rowPosition)
+                if (swapWith < displayed.size) {
+                    Collections.swap(displayed, position, swapWith)
+                }
+            }
+        }
+    }
+
+    private val FeedRange.end: Int
+        get() = start + count
+
+    /**
+     * Adds the positions whose item or column span differs from the previous ones to [changes],
+     * as [FeedChange.Changed] ranges.
+     */
+    private inner class ChangedRanges(private val changes: MutableList<FeedChange>) {
+
+        private var rangeStart = -1
+        private var rangeEnd = -1
+
+        fun compare(position: Int, previousItem: PlaidItem, previousColspan: Int) {
+            val item = displayed[position]
+            if (item === previousItem && item.colspan == previousColspan) return
+            if (position != rangeEnd) {
+                flush()
+                rangeStart = position
+            }
+            rangeEnd = position + 1
+        }
+
+        fun flush() {
+            if (rangeStart != -1) {
+                changes.add(FeedChange.Changed(rangeStart, rangeEnd - rangeStart))
+                rangeStart = -1
+            }
+        }
+    }
+
+    private inner class ItemCallback(
+        private val oldItems: List<PlaidItem>,
+        private val oldColspans: IntArray,
+        private val newItems: List<PlaidItem>
+    ) : DiffUtil.Callback() {
+
+        override fun getOldListSize() = oldItems.size
+
+        override fun getNewListSize() = newItems.size
+
+        override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+            itemKey.keyOf(oldItems[oldItemPosition]) == itemKey.keyOf(newItems[newItemPosition])
+
+        override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+            oldItems[oldItemPosition] === newItems[newItemPosition] &&
+                oldColspans[oldItemPosition] == newItems[newItemPosition].colspan
+    }
+}
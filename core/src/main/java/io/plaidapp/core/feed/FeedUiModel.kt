@@ -16,15 +16,65 @@
 
 package io.plaidapp.core.feed
 
+import androidx.recyclerview.widget.ListUpdateCallback
 import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.util.exhaustive
 
 /**
- * UI model for feed data
+ * UI model for feed data. The [items] are updated in place by the [FeedDiffer] that created the
+ * model, on the main thread, and [version] tells which update they were at.
  */
 data class FeedUiModel(
-    val items: List<PlaidItem>
+    val items: List<PlaidItem>,
+    val version: Int = 0,
+    val updates: FeedUpdates? = null
+) {
+
+    /**
+     * Dispatches the [updates] to [callback], if they were computed against [displayedItems] at
+     * [displayedVersion].
+     *
+     * @return whether the updates were dispatched; if not, all the items need to be rebound.
+     */
+    fun dispatchUpdatesTo(
+        displayedItems: List<PlaidItem>,
+        displayedVersion: Int,
+        callback: ListUpdateCallback
+    ): Boolean {
+        val updates = updates
+        val displayed = items === displayedItems && updates?.previousVersion == displayedVersion
+        if (updates == null || !displayed) return false
+        updates.changes.forEach { change ->
+            when (change) {
+                is FeedChange.Inserted -> callback.onInserted(change.position, change.count)
+                is FeedChange.Removed -> callback.onRemoved(change.position, change.count)
+                is FeedChange.Moved -> callback.onMoved(change.fromPosition, change.toPosition)
+                is FeedChange.Changed -> callback.onChanged(change.position, change.count, null)
+            }.exhaustive
+        }
+        return true
+    }
+}
+
+/**
+ * Granular changes, keyed on the stable ids of the items, that turn the items at
+ * [previousVersion] into the items of a [FeedUiModel].
+ */
+data class FeedUpdates(
+    val previousVersion: Int,
+    val changes: List<FeedChange>
 )
 
+/**
+ * A single change to the displayed items, in the order it has to be applied.
+ */
+sealed class FeedChange {
+    data class Inserted(val position: Int, val count: Int) : FeedChange()
+    data class Removed(val position: Int, val count: Int) : FeedChange()
+    data class Moved(val fromPosition: Int, val toPosition: Int) : FeedChange()
+    data class Changed(val position: Int, val count: Int) : FeedChange()
+}
+
 data class FeedProgressUiModel(
     val isLoading: Boolean
 )
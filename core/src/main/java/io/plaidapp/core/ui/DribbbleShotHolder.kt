@@ -31,6 +31,7 @@ import io.plaidapp.core.ui.widget.BadgedFourThreeImageView
 import io.plaidapp.core.util.AnimUtils
 import io.plaidapp.core.util.ObservableColorMatrix
 import io.plaidapp.core.util.asGif
+import io.plaidapp.core.util.glide.AnimatedImages
 
 private const val NIGHT_MODE_RGB_SCALE = 0.85f
 private const val ALPHA_SCALE = 1.0f
@@ -39,7 +40,8 @@ class DribbbleShotHolder constructor(
     itemView: View,
     private val initialGifBadgeColor: Int,
     private val isNightMode: Boolean,
-    private val onItemClicked: (image: View, position: Int) -> Unit
+    private val onItemClicked: (image: View, position: Int) -> Unit,
+    private val animatedImages: AnimatedImages = AnimatedImages.getInstance()
 ) : RecyclerView.ViewHolder(itemView) {
 
     val image: BadgedFourThreeImageView = itemView as BadgedFourThreeImageView
@@ -63,10 +65,10 @@ class DribbbleShotHolder constructor(
             // get the image and check if it's an animated GIF
             val drawable = image.drawable ?: return@setOnTouchListener false
             val gif = drawable.asGif() ?: return@setOnTouchListener false
-            // GIF found, start/stop it on press/lift
+            // GIF found, start/stop it on press/lift, if it fits in the budget of playing GIFs
             when (action) {
-                MotionEvent.ACTION_DOWN -> gif.start()
-                MotionEvent.ACTION_UP, MotionEvent.ACTION_CANCEL -> gif.stop()
+                MotionEvent.ACTION_DOWN -> animatedImages.start(gif)
+                MotionEvent.ACTION_UP, MotionEvent.ACTION_CANCEL -> animatedImages.stop(gif)
             }
             return@setOnTouchListener false
         }
@@ -18,8 +18,11 @@
 
 package io.plaidapp.core.ui
 
+import io.plaidapp.core.data.FeedRange
 import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.data.PlaidItemFeed
 import io.plaidapp.core.data.PlaidItemSorting
+import io.plaidapp.core.data.feed.FeedPage
 import io.plaidapp.core.designernews.data.stories.model.Story
 import io.plaidapp.core.designernews.domain.StoryWeigher
 import io.plaidapp.core.dribbble.data.api.ShotWeigher
@@ -27,62 +30,37 @@ import io.plaidapp.core.dribbble.data.api.model.Shot
 import io.plaidapp.core.producthunt.data.ProductHuntSourceItem.Companion.SOURCE_PRODUCT_HUNT
 import io.plaidapp.core.producthunt.data.api.PostWeigher
 import io.plaidapp.core.producthunt.data.api.model.Post
-import java.util.Collections
 
 /**
- * Prepares items for display of de-duplicating items and sorting them (depending on the data
- * source).
+ * Prepares items for display by weighing them (depending on the data source) and merging them
+ * into the [PlaidItemFeed], which de-duplicates and keeps them sorted.
+ *
+ * @return the ranges of positions at which items were inserted.
  */
-
-fun getPlaidItemsForDisplayExpanded(
-    oldItems: List<PlaidItem>,
-    newItems: List<PlaidItem>,
-    columns: Int
-): List<PlaidItem> {
-    val itemsToBeDisplayed = getPlaidItemsForDisplay(oldItems, newItems)
-    expandPopularItems(itemsToBeDisplayed, columns)
-    return itemsToBeDisplayed
+fun PlaidItemFeed.addForDisplay(newItems: List<PlaidItem>): List<FeedRange> {
+    weighItems(newItems)
+    return add(newItems)
 }
 
-fun getPlaidItemsForDisplay(
-    oldItems: List<PlaidItem>,
-    newItems: List<PlaidItem>
-): List<PlaidItem> {
-    val itemsToBeDisplayed = oldItems.toMutableList()
-    weighItems(newItems.toMutableList())
-    deduplicateAndAdd(itemsToBeDisplayed, newItems)
-    sort(itemsToBeDisplayed)
-    return itemsToBeDisplayed
+/**
+ * Prepares a loaded [page] for display as [addForDisplay] does, remembering the page of its items
+ * so that loading it again replaces them, see [replaceForDisplay].
+ *
+ * @return the ranges of positions at which items were inserted.
+ */
+fun PlaidItemFeed.addForDisplay(page: FeedPage): List<FeedRange> {
+    weighItems(page.items)
+    return addPage(page.sourceKey, page.page, page.items)
 }
 
-fun expandPopularItems(items: List<PlaidItem>, columns: Int) {
-    // for now just expand the first dribbble image per page which should be
-    // the most popular according to our weighing & sorting
-    val expandedPositions = mutableListOf<Int>()
-    var page = -1
-    items.forEachIndexed { index, item ->
-        if (item is Shot && item.page > page) {
-            item.colspan = columns
-            page = item.page
-            expandedPositions.add(index)
-        } else {
-            item.colspan = 1
-        }
-    }
-
-    // make sure that any expanded items are at the start of a row
-    // so that we don't leave any gaps in the grid
-    expandedPositions.indices.forEach { expandedPos ->
-        val pos = expandedPositions[expandedPos]
-        val extraSpannedSpaces = expandedPos * (columns - 1)
-        val rowPosition = (pos + extraSpannedSpaces) % columns
-        if (rowPosition != 0) {
-            val swapWith = pos + (columns - rowPosition)
-            if (swapWith < items.size) {
-                Collections.swap(items, pos, swapWith)
-            }
-        }
-    }
+/**
+ * Prepares a loaded [page] for display as [addForDisplay] does, replacing the items displayed
+ * for the same page of its source, e.g. the ones restored from disk. Only use it for the pages
+ * that the feed holds, see [PlaidItemFeed.hasPage].
+ */
+fun PlaidItemFeed.replaceForDisplay(page: FeedPage) {
+    weighItems(page.items)
+    replacePage(page.sourceKey, page.page, page.items)
 }
 
 /**
@@ -91,8 +69,8 @@ fun expandPopularItems(items: List<PlaidItem>, columns: Int) {
  * the order returned by the API. Weights are 'scoped' to the page they belong to and lower
  * weights are sorted earlier in the grid (i.e. in ascending weight).
  */
-private fun weighItems(items: MutableList<out PlaidItem>?) {
-    if (items == null || items.isEmpty()) return
+private fun weighItems(items: List<PlaidItem>) {
+    if (items.isEmpty()) return
 
     // some sources should just use the natural order i.e. as returned by the API as users
     // have an expectation about the order they appear in
@@ -112,27 +90,3 @@ private fun weighItems(items: MutableList<out PlaidItem>?) {
         PostWeigher().weigh(this as List<Post>)
     }
 }
-
-/**
- * De-dupe as the same item can be returned by multiple feeds
- */
-private fun deduplicateAndAdd(oldItems: MutableList<PlaidItem>, newItems: List<PlaidItem>) {
-    val count = oldItems.count()
-    newItems.forEach { newItem ->
-        var add = true
-        for (i in 0 until count) {
-            val existingItem = oldItems[i]
-            if (newItem == existingItem) {
-                add = false
-                break
-            }
-        }
-        if (add) {
-            oldItems.add(newItem)
-        }
-    }
-}
-
-private fun sort(items: MutableList<out PlaidItem>?) {
-    Collections.sort<PlaidItem>(items, PlaidItemSorting.PlaidItemComparator()) // sort by weight
-}
@@ -20,24 +20,28 @@ import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
 
 /**
- * A scroll listener for RecyclerView to load more items as you approach the end.
+ * A scroll listener for RecyclerView to load more items as you approach the end. How close to the
+ * end is decided by the [PrefetchController], from the scroll velocity and page latency.
  *
  * Adapted from https://gist.github.com/ssinss/e06f12ef66c51252563e
  */
 abstract class InfiniteScrollListener(
-    private val layoutManager: LinearLayoutManager
+    private val layoutManager: LinearLayoutManager,
+    private val prefetchController: PrefetchController = PrefetchController()
 ) : RecyclerView.OnScrollListener() {
     private val loadMoreRunnable = Runnable { onLoadMore() }
 
     override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+        val totalItemCount = layoutManager.itemCount
+        val firstVisibleItem = layoutManager.findFirstVisibleItemPosition()
+        prefetchController.onScrolled(firstVisibleItem)
+
         // bail out if scrolling upward or already loading data
         if (dy < 0 || isDataLoading()) return
 
         val visibleItemCount = recyclerView.childCount
-        val totalItemCount = layoutManager.itemCount
-        val firstVisibleItem = layoutManager.findFirstVisibleItemPosition()
-
-        if (totalItemCount - visibleItemCount <= firstVisibleItem + VISIBLE_THRESHOLD) {
+        val threshold = prefetchController.loadThreshold
+        if (totalItemCount - visibleItemCount <= firstVisibleItem + threshold) {
             recyclerView.post(loadMoreRunnable)
         }
     }
@@ -45,9 +49,4 @@ abstract class InfiniteScrollListener(
     abstract fun onLoadMore()
 
     abstract fun isDataLoading(): Boolean
-
-    companion object {
-        // The minimum number of items remaining before we should loading more.
-        private const val VISIBLE_THRESHOLD = 5
-    }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.ui.recyclerview
+
+import android.os.SystemClock
+import androidx.recyclerview.widget.RecyclerView
+import kotlin.math.ceil
+
+/**
+ * Decides how far ahead of the visible items a list should load pages and preload images, from
+ * how fast the user scrolls through it and how long pages take to load.
+ *
+ * A page needs to be requested at least as many items before the end of the list as the user
+ * scrolls past while it loads, otherwise the loading spinner shows up at the end of the list.
+ * The scroll velocity, in items per second, and the page latency are both moving averages, so
+ * that a single fling or slow response doesn't make the window jump around.
+ *
+ * Not thread safe, it is meant to be used from the main thread.
+ */
+class PrefetchController(
+    private val clock: () -> Long = SystemClock::uptimeMillis
+) {
+
+    private var itemsPerSecond = 0.0
+    private var lastPosition = RecyclerView.NO_POSITION
+    private var lastSampleTime = NO_TIME
+
+    private var pageLatencyMillis = NO_ESTIMATE
+    private var loadStartTime = NO_TIME
+
+    /**
+     * Number of items before the end of the list at which the next page should be requested.
+     */
+    val loadThreshold: Int
+        get() {
+            val latencyMillis = if (pageLatencyMillis == NO_ESTIMATE) {
+                DEFAULT_PAGE_LATENCY_MILLIS
+            } else {
+                pageLatencyMillis
+            }
+            val items = ceil(itemsPerSecond * latencyMillis / 1000 * SAFETY_FACTOR).toInt()
+            return items.coerceIn(MIN_LOAD_THRESHOLD, MAX_LOAD_THRESHOLD)
+        }
+
+    /**
+     * Number of items after the last visible one whose images should be preloaded.
+     */
+    val preloadDepth: Int
+        get() {
+            val items = ceil(itemsPerSecond * PRELOAD_AHEAD_MILLIS / 1000).toInt()
+            return items.coerceIn(MIN_PRELOAD_DEPTH, MAX_PRELOAD_DEPTH)
+        }
+
+    /**
+     * Records the position of the list, as it is scrolled.
+     */
+    fun onScrolled(firstVisiblePosition: Int) {
+        if (firstVisiblePosition == RecyclerView.NO_POSITION) return
+        val now = clock()
+        val elapsed = now - lastSampleTime
+        when {
+            lastPosition == RecyclerView.NO_POSITION || elapsed > MAX_SAMPLE_INTERVAL_MILLIS -> {
+                // the list was idle, so there is nothing to measure the velocity against
+                itemsPerSecond = 0.0
+            }
+            // positions only change by whole items, so measure over a few frames at least
+            elapsed < MIN_SAMPLE_INTERVAL_MILLIS -> return
+            else -> {
+                // scrolling back doesn't need anything to be prefetched
+                val scrolled = (firstVisiblePosition - lastPosition).coerceAtLeast(0)
+                val sample = scrolled * 1000.0 / elapsed
+                itemsPerSecond += SMOOTHING * (sample - itemsPerSecond)
+            }
+        }
+        lastPosition = firstVisiblePosition
+        lastSampleTime = now
+    }
+
+    /**
+     * Records a page starting or finishing to load.
+     */
+    fun onLoadingChanged(isLoading: Boolean) {
+        val now = clock()
+        if (isLoading) {
+            if (loadStartTime != NO_TIME) return
+            loadStartTime = now
+        } else if (loadStartTime != NO_TIME) {
+            val latency = (now - loadStartTime).toDouble()
+            pageLatencyMillis = if (pageLatencyMillis == NO_ESTIMATE) {
+                latency
+            } else {
+                pageLatencyMillis + SMOOTHING * (latency - pageLatencyMillis)
+            }
+            loadStartTime = NO_TIME
+        }
+    }
+
+    companion object {
+        private const val NO_TIME = -1L
+        private const val NO_ESTIMATE = -1.0
+        // weight of a new measure in the estimates
+        private const val SMOOTHING = 0.3
+        private const val MIN_SAMPLE_INTERVAL_MILLIS = 100L
+        private const val MAX_SAMPLE_INTERVAL_MILLIS = 1000L
+        // until a page was measured
+        private const val DEFAULT_PAGE_LATENCY_MILLIS = 1000.0
+        // latency varies a lot between pages, so start loading a bit earlier than the average
+        private const val SAFETY_FACTOR = 1.5
+        private const val MIN_LOAD_THRESHOLD = 5
+        private const val MAX_LOAD_THRESHOLD = 100
+        private const val PRELOAD_AHEAD_MILLIS = 1000.0
+        private const val MIN_PRELOAD_DEPTH = 4
+        internal const val MAX_PRELOAD_DEPTH = 24
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.ui.recyclerview
+
+import android.graphics.drawable.Drawable
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import com.bumptech.glide.ListPreloader
+import com.bumptech.glide.RequestBuilder
+import com.bumptech.glide.RequestManager
+import com.bumptech.glide.request.Request
+import com.bumptech.glide.request.target.SizeReadyCallback
+import com.bumptech.glide.request.target.Target
+import com.bumptech.glide.request.transition.Transition
+import java.util.ArrayDeque
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * A scroll listener for RecyclerView preloading the images of the items following the visible
+ * ones, as you scroll down. Register [adapterDataObserver] with the adapter, so that the items
+ * are preloaded again when they change.
+ *
+ * Unlike Glide's RecyclerViewPreloader, the number of items preloaded isn't fixed but follows the
+ * [PrefetchController], so that fast scrolls preload further ahead. Like it, preloads go into a
+ * bounded pool of [maxPreload] targets, so that starting a preload cancels the oldest one rather
+ * than queueing every item of a fling.
+ */
+class PrefetchPreloader<T>(
+    private val requestManager: RequestManager,
+    private val layoutManager: LinearLayoutManager,
+    private val modelProvider: ListPreloader.PreloadModelProvider<T>,
+    private val sizeProvider: ListPreloader.PreloadSizeProvider<T>,
+    private val prefetchController: PrefetchController,
+    maxPreload: Int = PrefetchController.MAX_PRELOAD_DEPTH
+) : RecyclerView.OnScrollListener() {
+
+    // last position preloaded, so that items aren't requested again on every frame
+    private var preloadedUntil = RecyclerView.NO_POSITION
+
+    private val targets = ArrayDeque<PreloadTarget>(maxPreload).apply {
+        repeat(maxPreload) { add(PreloadTarget()) }
+    }
+
+    val adapterDataObserver = object : RecyclerView.AdapterDataObserver() {
+        override fun onChanged() {
+            // e.g. the items were cleared, so the ones being preloaded aren't needed anymore
+            cancelAll()
+            preloadedUntil = RecyclerView.NO_POSITION
+        }
+
+        override fun onItemRangeChanged(positionStart: Int, itemCount: Int) {
+            preloadFrom(positionStart)
+        }
+
+        override fun onItemRangeInserted(positionStart: Int, itemCount: Int) {
+            preloadFrom(positionStart)
+        }
+
+        override fun onItemRangeRemoved(positionStart: Int, itemCount: Int) {
+            preloadFrom(positionStart)
+        }
+
+        override fun onItemRangeMoved(fromPosition: Int, toPosition: Int, itemCount: Int) {
+            preloadFrom(min(fromPosition, toPosition))
+        }
+    }
+
+    override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+        val lastVisibleItem = layoutManager.findLastVisibleItemPosition()
+        if (lastVisibleItem == RecyclerView.NO_POSITION) return
+        if (dy < 0) {
+            // start over from the visible items when scrolling down again
+            cancelAll()
+            preloadedUntil = lastVisibleItem
+            return
+        }
+
+        val from = max(lastVisibleItem, preloadedUntil) + 1
+        val to = min(
+            lastVisibleItem + prefetchController.preloadDepth,
+            layoutManager.itemCount - 1
+        )
+        if (from > to) return
+        for (position in from..to) {
+            preload(position)
+        }
+        preloadedUntil = to
+    }
+
+    /**
+     * Makes the next scroll preload the items from [position] on again, if they were preloaded.
+     */
+    private fun preloadFrom(position: Int) {
+        if (position <= preloadedUntil) preloadedUntil = position - 1
+    }
+
+    private fun preload(position: Int) {
+        modelProvider.getPreloadItems(position).forEachIndexed { i, item ->
+            val size = sizeProvider.getPreloadSize(item, position, i) ?: return@forEachIndexed
+            @Suppress("UNCHECKED_CAST")
+            val request = modelProvider.getPreloadRequestBuilder(item) as RequestBuilder<Any>?
+            request?.into(nextTarget(size[0], size[1]))
+        }
+    }
+
+    /**
+     * The least recently used target, loading into which cancels its previous preload.
+     */
+    private fun nextTarget(width: Int, height: Int): PreloadTarget {
+        val target = targets.poll()
+        targets.offer(target)
+        target.width = width
+        target.height = height
+        return target
+    }
+
+    private fun cancelAll() {
+        targets.forEach { requestManager.clear(it) }
+    }
+
+    private class PreloadTarget : Target<Any> {
+
+        var width = 0
+        var height = 0
+        private var currentRequest: Request? = null
+
+        override fun getSize(cb: SizeReadyCallback) = cb.onSizeReady(width, height)
+
+        override fun removeCallback(cb: SizeReadyCallback) {}
+
+        override fun setRequest(request: Request?) {
+            currentRequest = request
+        }
+
+        override fun getRequest() = currentRequest
+
+        override fun onLoadStarted(placeholder: Drawable?) {}
+
+        override fun onLoadFailed(errorDrawable: Drawable?) {}
+
+        override fun onResourceReady(resource: Any, transition: Transition<in Any>?) {}
+
+        override fun onLoadCleared(placeholder: Drawable?) {}
+
+        override fun onStart() {}
+
+        override fun onStop() {}
+
+        override fun onDestroy() {}
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import `in`.uncod.android.bypass.LoadImageCallback
+import `in`.uncod.android.bypass.Markdown
+import `in`.uncod.android.bypass.style.ImageLoadingSpan
+import android.content.res.ColorStateList
+import androidx.annotation.ColorInt
+import javax.inject.Inject
+
+/**
+ * Renders the markdown of comments into styled text.
+ */
+class CommentMarkdownRenderer @Inject constructor(private val markdown: Markdown) {
+
+    /**
+     * Render the given markdown, and the plain links in it, using spans that respond to touch.
+     * [onImage] is called with the placeholder span of every image in the input.
+     */
+    fun render(
+        input: String,
+        linkTextColor: ColorStateList,
+        @ColorInt linkHighlightColor: Int,
+        onImage: (src: String, loadingSpan: ImageLoadingSpan) -> Unit
+    ): CharSequence = HtmlUtils.parseMarkdownAndPlainLinks(
+        input,
+        markdown,
+        linkTextColor,
+        linkHighlightColor,
+        LoadImageCallback { src, loadingSpan -> onImage(src, loadingSpan) }
+    )
+}
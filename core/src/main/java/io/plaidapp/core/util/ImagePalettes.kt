@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import android.content.Context
+import android.content.res.ColorStateList
+import android.graphics.Bitmap
+import android.graphics.Color
+import android.graphics.Rect
+import android.graphics.drawable.ColorDrawable
+import android.graphics.drawable.RippleDrawable
+import android.os.Handler
+import android.os.Looper
+import android.os.Process
+import androidx.annotation.ColorInt
+import androidx.annotation.FloatRange
+import androidx.palette.graphics.Palette
+import io.plaidapp.core.data.cache.MemoryCache
+import io.plaidapp.core.util.glide.GlideApp
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Future
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Colors of an image, extracted with [Palette], that views displaying it are styled with.
+ *
+ * @param rippleColor color of the swatch to use for ripples, if any was found
+ * @param isRippleColorLight whether [rippleColor] comes from a light swatch
+ * @param regions colors of the regions of the image extracted so far, e.g. the area covered by
+ * a badge in the feed and the one covered by the status bar on the shot screen
+ */
+data class ImageColors(
+    @ColorInt val rippleColor: Int?,
+    val isRippleColorLight: Boolean,
+    val regions: Map<Rect, RegionColors> = emptyMap()
+) {
+
+    /**
+     * Copy of these colors also holding the [colors] of [region]. Only the most recently added
+     * regions are kept.
+     */
+    fun withRegion(region: Rect, colors: RegionColors): ImageColors {
+        val newRegions = LinkedHashMap(regions)
+        newRegions.remove(region)
+        // rects are mutable, so keep a copy
+        newRegions[Rect(region)] = colors
+        if (newRegions.size > MAX_REGIONS) newRegions.remove(newRegions.keys.first())
+        return copy(regions = newRegions)
+    }
+
+    fun createRipple(
+        @FloatRange(from = 0.0, to = 1.0) darkAlpha: Float,
+        @FloatRange(from = 0.0, to = 1.0) lightAlpha: Float,
+        @ColorInt fallbackColor: Int,
+        bounded: Boolean
+    ): RippleDrawable {
+        val color = if (rippleColor == null) {
+            fallbackColor
+        } else {
+            ColorUtils.modifyAlpha(rippleColor, if (isRippleColorLight) lightAlpha else darkAlpha)
+        }
+        return RippleDrawable(
+            ColorStateList.valueOf(color),
+            null,
+            if (bounded) ColorDrawable(Color.WHITE) else null
+        )
+    }
+
+    companion object {
+        private const val MAX_REGIONS = 4
+    }
+}
+
+/**
+ * Colors of a region of an image, e.g. the area covered by a badge or the status bar.
+ *
+ * @param mostPopulousColor the most common color of the region, if palette found one
+ */
+data class RegionColors(
+    @ColorInt val mostPopulousColor: Int?,
+    val isDark: Boolean
+)
+
+/**
+ * Extracts [ImageColors] from images on a small pool of background threads and keeps them by image
+ * url, so that an image bound again, or shown on another screen, doesn't need to be quantized
+ * again.
+ *
+ * Colors are extracted from a small software thumbnail of the image, decoded from Glide's disk
+ * cache, rather than from the bitmap displayed. Displayed bitmaps can then be hardware bitmaps,
+ * whose pixels can't be read, and can be recycled while the colors are being extracted.
+ */
+object ImagePalettes {
+
+    private const val MAX_CACHED_COLORS = 200
+    // palette scales images down to about 112x112 anyway
+    private const val THUMBNAIL_SIZE = 128
+    private const val MAX_THREADS = 2
+    private const val KEEP_ALIVE_SECONDS = 1L
+
+    private val cache = MemoryCache<String, ImageColors>(MAX_CACHED_COLORS)
+
+    private val executor = ThreadPoolExecutor(
+        MAX_THREADS,
+        MAX_THREADS,
+        KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        LinkedBlockingQueue<Runnable>(),
+        ThreadFactory { runnable ->
+            Thread({
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND)
+                runnable.run()
+            }, "ImagePalettes")
+        }
+    ).apply { allowCoreThreadTimeOut(true) }
+
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    /**
+     * The colors cached for [url], covering [region] if not null.
+     */
+    operator fun get(url: String, region: Rect? = null): ImageColors? {
+        val colors = cache[url] ?: return null
+        return if (region == null || region in colors.regions) colors else null
+    }
+
+    /**
+     * Gets the colors of the image loaded from [url], covering [region] if not null: its colors
+     * are then in [ImageColors.regions]. Colors that are cached are delivered right away, the
+     * others are extracted in the background and delivered on the main thread. Nothing is
+     * delivered if the image can't be loaded.
+     *
+     * @param imageWidth the width of the image displayed, that [region] is expressed against
+     * @return the running extraction, which callers should cancel when the image isn't displayed
+     * anymore, or null if the colors were cached
+     */
+    fun extract(
+        context: Context,
+        url: String,
+        imageWidth: Int,
+        region: Rect? = null,
+        onExtracted: (ImageColors) -> Unit
+    ): Extraction? {
+        val cached = get(url, region)
+        if (cached != null) {
+            onExtracted(cached)
+            return null
+        }
+        val appContext = context.applicationContext
+        val extraction = Extraction()
+        extraction.future = executor.submit(Runnable {
+            if (extraction.isCancelled) return@Runnable
+            val colors = extractColors(appContext, url, imageWidth, region) ?: return@Runnable
+            mainHandler.post {
+                if (!extraction.isCancelled) onExtracted(colors)
+            }
+        })
+        return extraction
+    }
+
+    private fun extractColors(
+        context: Context,
+        url: String,
+        imageWidth: Int,
+        region: Rect?
+    ): ImageColors? {
+        val thumbnail = GlideApp.with(context)
+            .asBitmap()
+            .load(url)
+            .override(THUMBNAIL_SIZE)
+            .disallowHardwareConfig()
+            .submit()
+        try {
+            val bitmap = thumbnail.get()
+            val rippleColors = cache[url] ?: extractRippleColor(bitmap)
+            val regionColors = region?.let {
+                // the region is expressed against the displayed image, which is larger
+                val scale = bitmap.width.toFloat() / imageWidth.coerceAtLeast(1)
+                val scaledRegion = Rect(
+                    (it.left * scale).toInt(),
+                    (it.top * scale).toInt(),
+                    (it.right * scale).toInt(),
+                    (it.bottom * scale).toInt()
+                )
+                extractRegionColors(bitmap, scaledRegion)
+            }
+            // other regions of the image might have been added in the meantime
+            return synchronized(cache) {
+                val colors = cache[url] ?: rippleColors
+                val updated = if (region != null && regionColors != null) {
+                    colors.withRegion(region, regionColors)
+                } else {
+                    colors
+                }
+                updated.also { cache[url] = it }
+            }
+        } catch (e: ExecutionException) {
+            return null
+        } finally {
+            GlideApp.with(context).clear(thumbnail)
+        }
+    }
+
+    private fun extractRippleColor(bitmap: Bitmap): ImageColors {
+        // by default palette ignores certain hues (e.g. pure black/white) but we don't want this
+        val palette = Palette.from(bitmap).clearFilters().generate()
+        // the named swatches, in order of preference
+        val swatches = listOf(
+            palette.vibrantSwatch to false,
+            palette.lightVibrantSwatch to true,
+            palette.darkVibrantSwatch to false,
+            palette.mutedSwatch to false,
+            palette.lightMutedSwatch to true,
+            palette.darkMutedSwatch to false
+        )
+        val (swatch, isLight) = swatches.firstOrNull { it.first != null } ?: null to false
+        return ImageColors(swatch?.rgb, isLight)
+    }
+
+    private fun extractRegionColors(bitmap: Bitmap, region: Rect): RegionColors {
+        if (bitmap.width < 2 || bitmap.height < 2) {
+            return RegionColors(null, ColorUtils.isDark(bitmap.getPixel(0, 0)))
+        }
+        // keep clear of the right and bottom edges to work around
+        // https://code.google.com/p/android/issues/detail?id=191013
+        val left = region.left.coerceIn(0, bitmap.width - 1)
+        val top = region.top.coerceIn(0, bitmap.height - 1)
+        val right = region.right.coerceIn(left + 1, bitmap.width - 1)
+        val bottom = region.bottom.coerceIn(top + 1, bitmap.height - 1)
+        val palette = Palette.from(bitmap)
+            .maximumColorCount(3)
+            .clearFilters()
+            .setRegion(left, top, right, bottom)
+            .generate()
+        val mostPopulous = ColorUtils.getMostPopulousSwatch(palette)
+        val isDark = if (mostPopulous != null) {
+            ColorUtils.isDark(mostPopulous.rgb)
+        } else {
+            // if palette failed, then check the color of the center of the region
+            ColorUtils.isDark(bitmap.getPixel((left + right) / 2, (top + bottom) / 2))
+        }
+        return RegionColors(mostPopulous?.rgb, isDark)
+    }
+
+    /**
+     * An extraction of colors running in the background.
+     */
+    class Extraction internal constructor() {
+
+        @Volatile
+        var isCancelled = false
+            private set
+
+        internal var future: Future<*>? = null
+
+        /**
+         * Stops the extraction if it didn't start yet, and drops its result otherwise.
+         */
+        fun cancel() {
+            isCancelled = true
+            future?.cancel(false)
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+/**
+ * Hash map from primitive `long` keys to `int` values, using open addressing so that lookups
+ * and insertions don't box or allocate.
+ *
+ * Not thread safe.
+ */
+class LongIntHashMap(expectedSize: Int = 16) {
+
+    private var keys: LongArray
+    private var values: IntArray
+    private var used: BooleanArray
+    private var mask: Int
+
+    var size = 0
+        private set
+
+    init {
+        val capacity = capacityFor(expectedSize)
+        keys = LongArray(capacity)
+        values = IntArray(capacity)
+        used = BooleanArray(capacity)
+        mask = capacity - 1
+    }
+
+    operator fun contains(key: Long) = slotOf(key) >= 0
+
+    /**
+     * Value for [key], or [defaultValue] if there is no mapping for it.
+     */
+    fun get(key: Long, defaultValue: Int): Int {
+        val slot = slotOf(key)
+        return if (slot >= 0) values[slot] else defaultValue
+    }
+
+    fun put(key: Long, value: Int) {
+        var slot = hash(key)
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value
+                return
+            }
+            slot = (slot + 1) and mask
+        }
+        insertAt(slot, key, value)
+    }
+
+    /**
+     * Maps [key] to [value] unless it's already mapped.
+     *
+     * @return true if the mapping was added.
+     */
+    fun putIfAbsent(key: Long, value: Int): Boolean {
+        var slot = hash(key)
+        while (used[slot]) {
+            if (keys[slot] == key) return false
+            slot = (slot + 1) and mask
+        }
+        insertAt(slot, key, value)
+        return true
+    }
+
+    /**
+     * Removes the mapping for [key].
+     *
+     * @return true if there was a mapping to remove.
+     */
+    fun remove(key: Long): Boolean {
+        var slot = slotOf(key)
+        if (slot < 0) return false
+        // shift back the following entries of the probe sequence, so that no tombstones are needed
+        var next = (slot + 1) and mask
+        while (used[next]) {
+            val ideal = hash(keys[next])
+            // move the entry if its ideal slot isn't cyclically within (slot, next]
+            val distanceToNext = (next - ideal) and mask
+            val distanceToSlot = (slot - ideal) and mask
+            if (distanceToSlot < distanceToNext) {
+                keys[slot] = keys[next]
+                values[slot] = values[next]
+                slot = next
+            }
+            next = (next + 1) and mask
+        }
+        used[slot] = false
+        size--
+        return true
+    }
+
+    fun clear() {
+        used.fill(false)
+        size = 0
+    }
+
+    private fun insertAt(slot: Int, key: Long, value: Int) {
+        keys[slot] = key
+        values[slot] = value
+        used[slot] = true
+        if (++size > (mask + 1) * MAX_LOAD_FACTOR) {
+            rehash((mask + 1) * 2)
+        }
+    }
+
+    private fun slotOf(key: Long): Int {
+        var slot = hash(key)
+        while (used[slot]) {
+            if (keys[slot] == key) return slot
+            slot = (slot + 1) and mask
+        }
+        return -1
+    }
+
+    private fun hash(key: Long): Int {
+        // fibonacci hashing spreads sequential ids over the whole table
+        val mixed = key * GOLDEN_RATIO
+        return (mixed xor (mixed ushr 32)).toInt() and mask
+    }
+
+    private fun rehash(capacity: Int) {
+        val oldKeys = keys
+        val oldValues = values
+        val oldUsed = used
+        keys = LongArray(capacity)
+        values = IntArray(capacity)
+        used = BooleanArray(capacity)
+        mask = capacity - 1
+        size = 0
+        for (i in oldKeys.indices) {
+            if (oldUsed[i]) put(oldKeys[i], oldValues[i])
+        }
+    }
+
+    companion object {
+        private const val MAX_LOAD_FACTOR = 0.5f
+        private const val GOLDEN_RATIO = -7046029254386353131L
+
+        private fun capacityFor(expectedSize: Int): Int {
+            var capacity = 8
+            while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+                capacity = capacity shl 1
+            }
+            return capacity
+        }
+    }
+}
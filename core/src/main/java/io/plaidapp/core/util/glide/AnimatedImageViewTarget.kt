@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import android.graphics.drawable.Drawable
+import android.widget.ImageView
+import com.bumptech.glide.load.resource.gif.GifDrawable
+import com.bumptech.glide.request.target.DrawableImageViewTarget
+import com.bumptech.glide.request.transition.Transition
+import io.plaidapp.core.util.asGif
+
+/**
+ * A Glide [com.bumptech.glide.request.target.ViewTarget] playing animated images through
+ * [AnimatedImages], so that they stay within its memory budget. GIFs that don't [autoplay], or
+ * that don't fit in the budget, show their first frame.
+ */
+open class AnimatedImageViewTarget(
+    view: ImageView,
+    private val autoplay: Boolean = true,
+    private val animatedImages: AnimatedImages = AnimatedImages.getInstance()
+) : DrawableImageViewTarget(view) {
+
+    private var gif: GifDrawable? = null
+
+    override fun onResourceReady(drawable: Drawable, transition: Transition<in Drawable>?) {
+        releaseGif()
+        super.onResourceReady(drawable, transition)
+        gif = drawable.asGif()?.also {
+            if (!autoplay || !animatedImages.start(it)) {
+                it.stop()
+            }
+        }
+    }
+
+    override fun onLoadCleared(placeholder: Drawable?) {
+        releaseGif()
+        super.onLoadCleared(placeholder)
+    }
+
+    override fun onStart() {
+        val gif = gif ?: return
+        if (autoplay) {
+            animatedImages.start(gif)
+        }
+    }
+
+    override fun onStop() {
+        gif?.let { animatedImages.stop(it) }
+    }
+
+    private fun releaseGif() {
+        gif?.let { animatedImages.stop(it) }
+        gif = null
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import com.bumptech.glide.load.resource.gif.GifDrawable
+
+/**
+ * Keeps the memory used by playing animated images within a budget.
+ *
+ * A playing GIF holds its encoded data, its decoder and a couple of frames at the size it was
+ * decoded at, which adds up quickly with several large GIFs on screen. At most [maxPlaying] GIFs
+ * play at once, within [budgetBytes]: starting a GIF stops the ones that have been playing the
+ * longest to make room for it, and a GIF too large for the whole budget stays on its first frame.
+ *
+ * Not thread safe, GIFs are started and stopped from the main thread.
+ */
+class AnimatedImages(
+    private val budgetBytes: Long,
+    private val maxPlaying: Int
+) {
+
+    // in the order they were started in
+    private val playing = LinkedHashMap<GifDrawable, Long>()
+    private var usedBytes = 0L
+
+    val playingCount: Int
+        get() = playing.size
+
+    /**
+     * Starts [gif] if it fits in the budget.
+     *
+     * @return whether the GIF is playing
+     */
+    fun start(gif: GifDrawable): Boolean {
+        if (playing.containsKey(gif)) {
+            gif.start()
+            return true
+        }
+        val cost = costOf(gif)
+        if (cost > budgetBytes) return false
+        while (playing.isNotEmpty() &&
+            (playing.size >= maxPlaying || usedBytes + cost > budgetBytes)
+        ) {
+            stop(playing.keys.first())
+        }
+        playing[gif] = cost
+        usedBytes += cost
+        gif.start()
+        return true
+    }
+
+    /**
+     * Stops [gif], releasing its share of the budget.
+     */
+    fun stop(gif: GifDrawable) {
+        gif.stop()
+        val cost = playing.remove(gif) ?: return
+        usedBytes -= cost
+    }
+
+    private fun costOf(gif: GifDrawable): Long {
+        // the size reported by Glide covers the data, the decoder and the first frame, on top of
+        // which playing needs the frame being displayed and the next one
+        val frameBytes = gif.intrinsicWidth.toLong() * gif.intrinsicHeight * BYTES_PER_PIXEL
+        return gif.size + FRAMES_PER_PLAYING_GIF * frameBytes
+    }
+
+    companion object {
+        private const val BYTES_PER_PIXEL = 4
+        private const val FRAMES_PER_PLAYING_GIF = 2
+        private const val MAX_PLAYING = 2
+        // share of the heap that playing GIFs can use
+        private const val HEAP_FRACTION = 8
+
+        @Volatile
+        private var INSTANCE: AnimatedImages? = null
+
+        fun getInstance(): AnimatedImages {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: AnimatedImages(
+                    Runtime.getRuntime().maxMemory() / HEAP_FRACTION,
+                    MAX_PLAYING
+                ).also { INSTANCE = it }
+            }
+        }
+    }
+}
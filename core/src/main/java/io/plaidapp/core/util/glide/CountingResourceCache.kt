@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import com.bumptech.glide.load.Key
+import com.bumptech.glide.load.engine.Resource
+import com.bumptech.glide.load.engine.cache.LruResourceCache
+import io.plaidapp.core.data.cache.CacheStats
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Glide's memory cache, counting how often images are found in it.
+ *
+ * Images still displayed somewhere are served by Glide before it looks in the memory cache, so
+ * they aren't counted.
+ */
+class CountingResourceCache(maxSize: Long) : LruResourceCache(maxSize) {
+
+    private val hitCount = AtomicInteger()
+    private val missCount = AtomicInteger()
+    private val evictionCount = AtomicInteger()
+
+    override fun remove(key: Key): Resource<*>? {
+        // Glide takes resources out of the cache when loading them
+        val resource = super.remove(key)
+        if (resource == null) {
+            missCount.incrementAndGet()
+        } else {
+            hitCount.incrementAndGet()
+        }
+        return resource
+    }
+
+    override fun onItemEvicted(key: Key, item: Resource<*>?) {
+        evictionCount.incrementAndGet()
+        super.onItemEvicted(key, item)
+    }
+
+    fun stats() = CacheStats(
+        hitCount = hitCount.get(),
+        missCount = missCount.get(),
+        evictionCount = evictionCount.get(),
+        expiredCount = 0,
+        size = currentSize.toInt(),
+        maxSize = maxSize.toInt()
+    )
+}
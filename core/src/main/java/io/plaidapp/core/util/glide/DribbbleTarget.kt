@@ -17,76 +17,88 @@
 package io.plaidapp.core.util.glide
 
 import android.graphics.Bitmap
+import android.graphics.Rect
 import android.graphics.drawable.Drawable
 import androidx.core.content.ContextCompat
-import androidx.palette.graphics.Palette
-import com.bumptech.glide.load.resource.gif.GifDrawable
-import com.bumptech.glide.request.target.DrawableImageViewTarget
 import com.bumptech.glide.request.transition.Transition
 import io.plaidapp.core.R
 import io.plaidapp.core.ui.widget.BadgedFourThreeImageView
-import io.plaidapp.core.util.ColorUtils
-import io.plaidapp.core.util.ViewUtils
+import io.plaidapp.core.util.ImageColors
+import io.plaidapp.core.util.ImagePalettes
 import io.plaidapp.core.util.isAnimated
 import io.plaidapp.core.util.measured
 
 /**
  * A Glide [com.bumptech.glide.request.target.ViewTarget] for [BadgedFourThreeImageView]s.
  * It applies a badge for animated images, can prevent GIFs from auto-playing & applies a palette
- * generated ripple.
+ * generated ripple. Colors are extracted in the background by [ImagePalettes], once per
+ * [imageUrl]. GIFs play within the budget of [AnimatedImages].
  */
 class DribbbleTarget(
     private val badgedImageView: BadgedFourThreeImageView,
-    private val autoplayGifs: Boolean
-) : DrawableImageViewTarget(badgedImageView), Palette.PaletteAsyncListener {
+    autoplayGifs: Boolean,
+    private val imageUrl: String
+) : AnimatedImageViewTarget(badgedImageView, autoplayGifs) {
+
+    private var extraction: ImagePalettes.Extraction? = null
 
     override fun onResourceReady(drawable: Drawable, transition: Transition<in Drawable>?) {
         super.onResourceReady(drawable, transition)
         val isAnimated = drawable.isAnimated()
-        if (!autoplayGifs && isAnimated) {
-            (drawable as GifDrawable).stop()
-        }
+        extraction?.cancel()
         val bitmap = drawable.getBitmap() ?: return
-        Palette.from(bitmap).clearFilters().generate(this)
         if (isAnimated) {
             // look at the area the badge covers to determine its color
-            badgedImageView.measured(this::setBadgeColor)
+            badgedImageView.measured { extractColors(bitmap, badgeRegion(bitmap)) }
+        } else {
+            extractColors(bitmap, null)
         }
     }
 
-    override fun onStart() {
-        if (autoplayGifs) {
-            super.onStart()
-        }
+    override fun onLoadCleared(placeholder: Drawable?) {
+        extraction?.cancel()
+        extraction = null
+        super.onLoadCleared(placeholder)
     }
 
-    override fun onStop() {
-        if (autoplayGifs) {
-            super.onStop()
-        }
+    private fun extractColors(bitmap: Bitmap, region: Rect?) {
+        extraction = ImagePalettes.extract(
+            badgedImageView.context,
+            imageUrl,
+            bitmap.width,
+            region
+        ) { colors -> applyColors(colors, region) }
     }
 
-    override fun onGenerated(palette: Palette?) {
-        badgedImageView.foreground = ViewUtils.createRipple(palette, 0.25f, 0.5f,
-                ContextCompat.getColor(view.context, R.color.mid_grey), true)
+    private fun applyColors(colors: ImageColors, region: Rect?) {
+        val context = badgedImageView.context
+        badgedImageView.foreground = colors.createRipple(
+            0.25f, 0.5f, ContextCompat.getColor(context, R.color.mid_grey), true
+        )
+        val badgeColors = if (region != null) colors.regions[region] else null
+        badgeColors?.let {
+            badgedImageView.setBadgeColor(
+                ContextCompat.getColor(
+                    context,
+                    if (it.isDark) R.color.gif_badge_dark_image else R.color.gif_badge_light_image
+                )
+            )
+        }
     }
 
-    private fun setBadgeColor() {
-        val biv = badgedImageView
-        biv.drawable.getBitmap()?.let {
-            val badgePos = biv.badgeBounds
-            // badge position in view coordinates but bitmap might be smaller, so need to scale it
-            // to sample the correct portion that the badge will overlay
-            val scale = it.width.toFloat() / biv.width
-            val left = (badgePos.left * scale).toInt()
-            val top = (badgePos.top * scale).toInt()
-            val width = (badgePos.width() * scale).toInt()
-            val height = (badgePos.height() * scale).toInt()
-            val corner = Bitmap.createBitmap(it, left, top, width, height)
-            val isDark = ColorUtils.isDark(corner)
-            corner.recycle()
-            biv.setBadgeColor(ContextCompat.getColor(biv.context,
-                    if (isDark) R.color.gif_badge_dark_image else R.color.gif_badge_light_image))
-        }
+    /**
+     * The area of [bitmap] that the badge covers.
+     */
+    private fun badgeRegion(bitmap: Bitmap): Rect {
+        val badgePos = badgedImageView.badgeBounds
+        // badge position in view coordinates but bitmap might be smaller, so need to scale it
+        // to sample the correct portion that the badge will overlay
+        val scale = bitmap.width.toFloat() / badgedImageView.width
+        return Rect(
+            (badgePos.left * scale).toInt(),
+            (badgePos.top * scale).toInt(),
+            (badgePos.right * scale).toInt(),
+            (badgePos.bottom * scale).toInt()
+        )
     }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import kotlin.math.roundToInt
+
+/**
+ * Class of device, from how much memory apps get on it.
+ */
+enum class DeviceTier {
+    LOW,
+    MID,
+    HIGH
+}
+
+/**
+ * Sizes of Glide's caches, in bytes.
+ */
+data class GlideCacheSizes(
+    val tier: DeviceTier,
+    val memoryCacheBytes: Int,
+    val bitmapPoolBytes: Int,
+    val diskCacheBytes: Long
+) {
+
+    companion object {
+        private const val MEGABYTE = 1024 * 1024
+        private const val BYTES_PER_PIXEL = 4
+
+        private const val MID_TIER_MEMORY_CLASS = 128
+        private const val HIGH_TIER_MEMORY_CLASS = 256
+
+        // share of the heap that the memory cache and bitmap pool can use together, as Glide does
+        private const val MAX_HEAP_FRACTION = 0.4f
+        private const val LOW_TIER_MAX_HEAP_FRACTION = 0.33f
+
+        // with hardware bitmaps, the pool only serves software bitmaps, e.g. GIF frames
+        private const val HARDWARE_BITMAP_POOL_SCREENS = 1f
+
+        /**
+         * Sizes the caches from the memory class of the device and the size of its screen: the
+         * more shots fit on screen, the more are worth keeping in memory, as long as it fits
+         * the heap.
+         *
+         * @param memoryClassMegabytes as returned by [android.app.ActivityManager.getMemoryClass]
+         * @param hardwareBitmaps whether images can be decoded as hardware bitmaps
+         */
+        fun forDevice(
+            memoryClassMegabytes: Int,
+            isLowRamDevice: Boolean,
+            screenWidth: Int,
+            screenHeight: Int,
+            hardwareBitmaps: Boolean
+        ): GlideCacheSizes {
+            val tier = when {
+                isLowRamDevice || memoryClassMegabytes < MID_TIER_MEMORY_CLASS -> DeviceTier.LOW
+                memoryClassMegabytes < HIGH_TIER_MEMORY_CLASS -> DeviceTier.MID
+                else -> DeviceTier.HIGH
+            }
+            val screenBytes = screenWidth.toFloat() * screenHeight * BYTES_PER_PIXEL
+            val bitmapPoolScreens =
+                if (hardwareBitmaps) HARDWARE_BITMAP_POOL_SCREENS else tier.bitmapPoolScreens
+            var memoryCache = screenBytes * tier.memoryCacheScreens
+            var bitmapPool = screenBytes * bitmapPoolScreens
+
+            val heapFraction =
+                if (tier == DeviceTier.LOW) LOW_TIER_MAX_HEAP_FRACTION else MAX_HEAP_FRACTION
+            val maxBytes = memoryClassMegabytes.toFloat() * MEGABYTE * heapFraction
+            if (memoryCache + bitmapPool > maxBytes) {
+                // keep the proportions of both, within the heap
+                val scale = maxBytes / (memoryCache + bitmapPool)
+                memoryCache *= scale
+                bitmapPool *= scale
+            }
+            return GlideCacheSizes(
+                tier,
+                memoryCache.roundToInt(),
+                bitmapPool.roundToInt(),
+                tier.diskCacheMegabytes.toLong() * MEGABYTE
+            )
+        }
+
+        private val DeviceTier.memoryCacheScreens: Float
+            get() = when (this) {
+                DeviceTier.LOW -> 1f
+                DeviceTier.MID -> 2f
+                DeviceTier.HIGH -> 3f
+            }
+
+        private val DeviceTier.bitmapPoolScreens: Float
+            get() = when (this) {
+                DeviceTier.LOW -> 2f
+                DeviceTier.MID -> 3f
+                DeviceTier.HIGH -> 4f
+            }
+
+        private val DeviceTier.diskCacheMegabytes: Int
+            get() = when (this) {
+                DeviceTier.LOW -> 100
+                DeviceTier.MID -> 250
+                DeviceTier.HIGH -> 500
+            }
+    }
+}
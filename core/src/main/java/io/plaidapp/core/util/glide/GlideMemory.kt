@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import android.app.ActivityManager
+import android.content.ComponentCallbacks2
+import android.content.Context
+import android.os.Build
+import com.bumptech.glide.Glide
+import com.bumptech.glide.GlideBuilder
+import com.bumptech.glide.MemoryCategory
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory
+import io.plaidapp.core.data.cache.CacheStats
+import io.plaidapp.core.data.cache.MemoryCaches
+import io.plaidapp.core.data.cache.TrimmableCache
+
+/**
+ * Sizes Glide's caches for the device the app runs on, see [GlideCacheSizes], and keeps an eye
+ * on them: the memory cache and bitmap pool are shrunk while the system is low on memory, and
+ * the memory cache reports how often images are found in it.
+ */
+object GlideMemory : TrimmableCache {
+
+    @Volatile
+    private var appContext: Context? = null
+    @Volatile
+    private var memoryCache: CountingResourceCache? = null
+
+    /**
+     * The sizes Glide was configured with, or null if it wasn't initialized yet.
+     */
+    @Volatile
+    var sizes: GlideCacheSizes? = null
+        private set
+
+    @JvmStatic
+    fun applyTo(context: Context, builder: GlideBuilder) {
+        val activityManager =
+            context.getSystemService(Context.ACTIVITY_SERVICE) as ActivityManager
+        val displayMetrics = context.resources.displayMetrics
+        val sizes = GlideCacheSizes.forDevice(
+            activityManager.memoryClass,
+            activityManager.isLowRamDevice,
+            displayMetrics.widthPixels,
+            displayMetrics.heightPixels,
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+        )
+        val memoryCache = CountingResourceCache(sizes.memoryCacheBytes.toLong())
+        builder.setMemoryCache(memoryCache)
+            .setBitmapPool(LruBitmapPool(sizes.bitmapPoolBytes.toLong()))
+            .setDiskCache(InternalCacheDiskCacheFactory(context, sizes.diskCacheBytes))
+        this.appContext = context.applicationContext
+        this.memoryCache = memoryCache
+        this.sizes = sizes
+        MemoryCaches.register(this)
+    }
+
+    /**
+     * How well the memory cache performs, or null if Glide wasn't initialized yet.
+     */
+    fun stats(): CacheStats? = memoryCache?.stats()
+
+    override fun onTrimMemory(level: Int) {
+        val context = appContext ?: return
+        // Glide trims the content of its caches by itself, this lowers their maximum size
+        val category = when {
+            level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL -> MemoryCategory.LOW
+            // back to full size for the next time the app is used
+            level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN -> MemoryCategory.NORMAL
+            else -> return
+        }
+        Glide.get(context).setMemoryCategory(category)
+    }
+}
@@ -19,6 +19,7 @@ package io.plaidapp.core.util.glide;
 
 import android.app.ActivityManager;
 import android.content.Context;
+import android.os.Build;
 
 import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.annotation.GlideModule;
@@ -42,9 +43,15 @@ public class PlaidGlideModule extends AppGlideModule {
         ActivityManager activityManager =
                 (ActivityManager) context.getSystemService(ACTIVITY_SERVICE);
         defaultOptions.format(activityManager.isLowRamDevice() ? PREFER_RGB_565 : PREFER_ARGB_8888);
-        // Disable hardware bitmaps as they don't play nicely with Palette
-        defaultOptions.disallowHardwareConfig();
+        // Hardware bitmaps keep pixel data off the Java heap and palettes are extracted from
+        // separately decoded thumbnails, see ImagePalettes. Before O_MR1 they break shared element
+        // transitions though, so they're only allowed from there on
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O_MR1) {
+            defaultOptions.disallowHardwareConfig();
+        }
         builder.setDefaultRequestOptions(defaultOptions);
+        // Size the caches for the device
+        GlideMemory.applyTo(context, builder);
     }
 
     @Override
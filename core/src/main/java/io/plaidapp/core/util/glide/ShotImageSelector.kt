@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import io.plaidapp.core.data.api.BandwidthMeter
+import io.plaidapp.core.data.cache.MemoryCache
+import io.plaidapp.core.dribbble.data.api.model.Images
+import io.plaidapp.core.dribbble.data.api.model.Images.ImageSize.NORMAL_IMAGE_SIZE
+import io.plaidapp.core.dribbble.data.api.model.Images.ImageSize.TWO_X_IMAGE_SIZE
+
+/**
+ * A variant of a shot image, and the size to decode it at.
+ */
+data class ShotImage(val url: String, val width: Int, val height: Int)
+
+/**
+ * Chooses the variant of shot images to load, and their decode size, for the cells they're
+ * displayed in.
+ *
+ * The smallest variant at least as wide as the cell is picked, since a larger one would be
+ * downscaled anyway. On a slow network the normal variant is preferred, even if it has to be
+ * upscaled, as the hidpi one takes several times longer to download. Images are never decoded
+ * larger than the cell.
+ *
+ * The last image selected for every shot is kept, so that other screens can start from the image
+ * displayed in the grid, see [selected].
+ *
+ * @param bitsPerSecond the current bandwidth estimate, or null if there is none
+ */
+class ShotImageSelector(private val bitsPerSecond: () -> Long?) {
+
+    private val selections = MemoryCache<String, ShotImage>(MAX_SELECTIONS)
+
+    fun select(images: Images, cellWidth: Int): ShotImage {
+        val hidpi = images.hidpi
+        val normal = images.normal
+        val useHidpi = hidpi != null &&
+            (normal == null || (cellWidth > NORMAL_IMAGE_SIZE.width && !isNetworkSlow()))
+        val (url, size) = if (useHidpi) {
+            hidpi!! to TWO_X_IMAGE_SIZE
+        } else {
+            normal!! to NORMAL_IMAGE_SIZE
+        }
+        val width = cellWidth.coerceIn(1, size.width)
+        val image = ShotImage(url, width, width * size.height / size.width)
+        selections[images.best()] = image
+        return image
+    }
+
+    /**
+     * The image last selected for [images], if any.
+     */
+    fun selected(images: Images): ShotImage? = selections[images.best()]
+
+    private fun isNetworkSlow(): Boolean {
+        val estimate = bitsPerSecond() ?: return false
+        return estimate < SLOW_NETWORK_BITS_PER_SECOND
+    }
+
+    companion object {
+        // about 3s for a hidpi shot
+        const val SLOW_NETWORK_BITS_PER_SECOND = 1_000_000L
+        private const val MAX_SELECTIONS = 200
+
+        @Volatile
+        private var INSTANCE: ShotImageSelector? = null
+
+        fun getInstance(): ShotImageSelector {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: ShotImageSelector(BandwidthMeter.getInstance()::bitsPerSecond)
+                    .also { INSTANCE = it }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import android.graphics.drawable.Drawable
+import com.bumptech.glide.RequestBuilder
+import com.bumptech.glide.load.DecodeFormat
+import io.plaidapp.core.dribbble.data.api.model.Images
+import io.plaidapp.core.dribbble.data.api.model.Images.ImageSize.NORMAL_IMAGE_SIZE
+
+/**
+ * The best image of a shot, at its full size.
+ */
+fun Images.bestImage(): ShotImage {
+    val (width, height) = bestSize()
+    return ShotImage(best(), width, height)
+}
+
+/**
+ * This image, scaled down to be at most [maxWidth] wide if it's wider, e.g. to decode it at the
+ * size of the view it's displayed in.
+ */
+fun ShotImage.scaledToFit(maxWidth: Int): ShotImage {
+    if (width <= maxWidth || maxWidth <= 0) return this
+    return copy(width = maxWidth, height = height * maxWidth / width)
+}
+
+/**
+ * Request for a variant of a shot image, at the given size. Requests for the same [ShotImage]
+ * share the decoded image through the memory cache, e.g. the grid and its preloader.
+ *
+ * Opaque images, i.e. JPEG shots, are decoded as RGB_565, halving their size, unless Glide
+ * decodes them as hardware bitmaps which don't take space on the heap anyway. Images with
+ * transparency are still decoded as ARGB_8888.
+ */
+fun GlideRequests.loadShotImage(image: ShotImage): GlideRequest<Drawable> {
+    return load(image.url)
+        .fitCenter()
+        .override(image.width, image.height)
+        .format(DecodeFormat.PREFER_RGB_565)
+}
+
+/**
+ * Like [loadShotImage], showing smaller images while [image] loads, the first one available of:
+ * - [displayed], the image of the shot displayed elsewhere, e.g. in the grid, if it's cached;
+ * - the normal variant if it's cached, when loading the hidpi one;
+ * - the teaser, which is small enough to arrive well before the other variants.
+ */
+fun GlideRequests.loadShotImageProgressively(
+    images: Images,
+    image: ShotImage = images.bestImage(),
+    displayed: ShotImage? = null
+): GlideRequest<Drawable> {
+    val thumbnails = mutableListOf<RequestBuilder<Drawable>>()
+    if (displayed != null && displayed != image) {
+        thumbnails += loadShotImage(displayed).onlyRetrieveFromCache(true)
+    }
+    if (image.url == images.hidpi && images.normal != null) {
+        val (width, height) = NORMAL_IMAGE_SIZE
+        thumbnails += loadShotImage(ShotImage(images.normal, width, height))
+            .onlyRetrieveFromCache(true)
+    }
+    if (images.teaser != null && image.url != images.teaser) {
+        thumbnails += load(images.teaser).fitCenter()
+    }
+    val request = loadShotImage(image)
+    return if (thumbnails.isEmpty()) request else request.thumbnail(*thumbnails.toTypedArray())
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.async
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.yield
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.IOException
+
+/**
+ * Tests for [BatchLoader].
+ */
+class BatchLoaderTest {
+
+    private val batches = mutableListOf<List<Int>>()
+
+    @Test
+    fun load_concurrently_loadsOneBatch() = runBlocking {
+        // Given a loader
+        val loader = BatchLoader<Int, String>(this, maxBatchSize = 10)
+
+        // When loading overlapping keys at the same time
+        val first = async { loader.load(listOf(1, 2)) { loadBatch(it) } }
+        val second = async { loader.load(listOf(2, 3)) { loadBatch(it) } }
+
+        // Then every key is loaded once, in a single batch
+        assertEquals(mapOf(1 to "1", 2 to "2"), first.await())
+        assertEquals(mapOf(2 to "2", 3 to "3"), second.await())
+        assertEquals(listOf(listOf(1, 2, 3)), batches)
+    }
+
+    @Test
+    fun load_keyInFlight_joinsLoad() = runBlocking {
+        // Given a batch being loaded
+        val gate = CompletableDeferred<Unit>()
+        val loader = BatchLoader<Int, String>(this, maxBatchSize = 10)
+        val first = async {
+            loader.load(listOf(1)) { keys ->
+                batches.add(keys)
+                gate.await()
+                keys.associateWith { it.toString() }
+            }
+        }
+        while (batches.isEmpty()) yield()
+
+        // When loading the same key and a new one
+        val second = async { loader.load(listOf(1, 2)) { loadBatch(it) } }
+        gate.complete(Unit)
+
+        // Then only the new key is loaded again
+        assertEquals(mapOf(1 to "1"), first.await())
+        assertEquals(mapOf(1 to "1", 2 to "2"), second.await())
+        assertEquals(listOf(listOf(1), listOf(2)), batches)
+    }
+
+    @Test
+    fun load_manyKeys_loadsChunks() = runBlocking {
+        // Given a loader with small batches
+        val loader = BatchLoader<Int, String>(this, maxBatchSize = 2)
+
+        // When loading more keys than fit in a batch
+        val result = loader.load(listOf(1, 2, 3, 4, 5)) { loadBatch(it) }
+
+        // Then the keys are loaded in chunks
+        assertEquals(listOf(listOf(1, 2), listOf(3, 4), listOf(5)), batches)
+        assertEquals(5, result.size)
+    }
+
+    @Test
+    fun load_missingKeys_areLeftOut() = runBlocking {
+        // Given a loader that finds only some of the keys
+        val loader = BatchLoader<Int, String>(this, maxBatchSize = 10)
+
+        // When loading the keys
+        val result = loader.load(listOf(1, 2, 3, 4)) { keys ->
+            keys.filter { it % 2 == 0 }.associateWith { it.toString() }
+        }
+
+        // Then only the found values are returned
+        assertEquals(mapOf(2 to "2", 4 to "4"), result)
+    }
+
+    @Test
+    fun load_joiningBatch_isLoadedByFirstCaller() = runBlocking {
+        // Given a loader
+        val loader = BatchLoader<Int, String>(this, maxBatchSize = 10)
+
+        // When two callers with their own load functions load keys at the same time
+        val first = async { loader.load(listOf(1)) { loadBatch(it) } }
+        val second = async {
+            loader.load(listOf(2)) { keys -> keys.associateWith { "other $it" } }
+        }
+
+        // Then the batch is loaded by the caller that started it
+        assertEquals(mapOf(1 to "1"), first.await())
+        assertEquals(mapOf(2 to "2"), second.await())
+        assertEquals(listOf(listOf(1, 2)), batches)
+    }
+
+    @Test
+    fun load_batchThrows_returnsNoValues() = runBlocking {
+        // Given a loader
+        val loader = BatchLoader<Int, String>(this, maxBatchSize = 10)
+
+        // When the batch fails to load
+        val result = loader.load(listOf(1, 2)) { throw IOException("Error") }
+
+        // Then the keys are missing from the result, and can be loaded again
+        assertEquals(emptyMap<Int, String>(), result)
+        assertEquals(mapOf(1 to "1"), loader.load(listOf(1)) { loadBatch(it) })
+    }
+
+    private fun loadBatch(keys: List<Int>): Map<Int, String> {
+        batches.add(keys)
+        return keys.associateWith { it.toString() }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.whenever
+import io.plaidapp.core.data.feed.FeedPage
+import io.plaidapp.core.data.feed.FeedRepository
+import io.plaidapp.core.data.prefs.SourcesLocalDataSource
+import io.plaidapp.core.data.prefs.SourcesRepository
+import io.plaidapp.core.designernews.data.DesignerNewsSearchSourceItem
+import io.plaidapp.core.designernews.data.stories.model.Story
+import io.plaidapp.core.designernews.domain.LoadStoriesUseCase
+import io.plaidapp.core.designernews.domain.SearchStoriesUseCase
+import io.plaidapp.core.designernews.storyLinks
+import io.plaidapp.core.designernews.userId
+import io.plaidapp.core.dribbble.data.ShotsRepository
+import io.plaidapp.core.producthunt.domain.LoadPostsUseCase
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.joinAll
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.io.IOException
+import java.util.Collections
+import java.util.Date
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Tests for [DataManager], mostly stress tests loading and toggling sources from many coroutines
+ * running in parallel.
+ */
+class DataManagerTest {
+
+    private val sourceA = DesignerNewsSearchSourceItem("a")
+    private val sourceB = DesignerNewsSearchSourceItem("b")
+
+    private val searchStories: SearchStoriesUseCase = mock()
+    private val feedRepository: FeedRepository = mock()
+    private val sourcesLocalDataSource: SourcesLocalDataSource = mock()
+    private val sourcesRepository = SourcesRepository(
+        listOf(sourceA, sourceB),
+        sourcesLocalDataSource,
+        CoroutinesDispatcherProvider(Dispatchers.Default, Dispatchers.Default, Dispatchers.IO)
+    )
+
+    // pages requested for each source, in the order they were requested
+    private val requestedPages = ConcurrentHashMap<String, MutableList<Int>>()
+    private val loadingStarted = AtomicInteger()
+    private val loadingFinished = AtomicInteger()
+    @Volatile
+    private var loading = false
+
+    private val dataManager by lazy {
+        DataManager(
+            mock<LoadStoriesUseCase>(),
+            mock<LoadPostsUseCase>(),
+            searchStories,
+            mock<ShotsRepository>(),
+            sourcesRepository,
+            feedRepository,
+            CoroutinesDispatcherProvider(Dispatchers.Default, Dispatchers.Default, Dispatchers.IO)
+        ).apply {
+            registerCallback(object : DataLoadingSubject.DataLoadingCallbacks {
+                override fun dataStartedLoading() {
+                    loadingStarted.incrementAndGet()
+                    loading = true
+                }
+
+                override fun dataFinishedLoading() {
+                    loadingFinished.incrementAndGet()
+                    loading = false
+                }
+            })
+        }
+    }
+
+    @Before
+    fun setUp() = runBlocking {
+        // only the default sources are used
+        whenever(sourcesLocalDataSource.getKeys()).thenReturn(null)
+        whenever(searchStories(any(), any())).thenAnswer { invocation ->
+            val query = invocation.getArgument<String>(0)
+            val page = invocation.getArgument<Int>(1)
+            requestedPages.computeIfAbsent(query) { Collections.synchronizedList(mutableListOf()) }
+                .add(page)
+            Result.Success(listOf(story(query, page)))
+        }
+        whenever(feedRepository.getCachedPages(any())).thenReturn(emptyList())
+    }
+
+    @Test
+    fun loadMore_concurrently_requestsEveryPageOnce() = runBlocking {
+        // When loading more from many coroutines at the same time
+        (1..CONCURRENCY).map {
+            launch(Dispatchers.Default) { dataManager.loadMore() }
+        }.joinAll()
+        awaitLoadingFinished()
+
+        // Then every source requested its pages in order, without skipping or repeating one
+        assertEquals(setOf(sourceA.key, sourceB.key), requestedPages.keys)
+        requestedPages.values.forEach { pages ->
+            assertEquals((1..pages.size).toList(), pages)
+        }
+    }
+
+    @Test
+    fun toggleSource_whileLoadingMore_keepsStateConsistent() = runBlocking {
+        // When toggling a source while loading more from many coroutines at the same time
+        (1..CONCURRENCY).map { i ->
+            launch(Dispatchers.Default) {
+                if (i % 2 == 0) {
+                    dataManager.loadMore()
+                } else {
+                    sourcesRepository.changeSourceActiveState(sourceA.key)
+                }
+            }
+        }.joinAll()
+        awaitLoadingFinished()
+
+        // Then every started load was finished, including the cancelled ones
+        assertEquals(loadingStarted.get(), loadingFinished.get())
+        // And the source that wasn't toggled still requested its pages in order
+        val pages = requestedPages.getValue(sourceB.key)
+        assertEquals((1..pages.size).toList(), pages)
+    }
+
+    @Test
+    fun loadMore_replacesRestoredPagesWithFreshOnes() = runBlocking {
+        // Given pages stored on disk, the first of which differs from the one on the network
+        whenever(feedRepository.getCachedPages(any())).thenReturn(
+            listOf(
+                FeedPage(sourceA.key, 1, listOf(story(sourceA.key, 1, id = STALE_ID))),
+                FeedPage(sourceA.key, 2, listOf(story(sourceA.key, 2)))
+            )
+        )
+        val feed = PlaidItemFeed()
+        dataManager.setOnDataLoadedCallback(object : OnDataLoadedCallback<FeedPage> {
+            override fun onDataLoaded(data: FeedPage) = synchronized(feed) {
+                feed.replacePage(data.sourceKey, data.page, data.items)
+            }
+        })
+
+        // When loading the feed
+        dataManager.loadMore()
+        awaitLoadingFinished()
+        withTimeout(TIMEOUT_MILLIS) {
+            while (synchronized(feed) { feed.snapshot().none { it.id == 2L } }) delay(10)
+        }
+
+        // Then the stale item was replaced by the fresh one, next to the other restored page
+        assertEquals(setOf(1L, 2L), synchronized(feed) { feed.snapshot().map { it.id }.toSet() })
+
+        // When loading more
+        dataManager.loadMore()
+        awaitLoadingFinished()
+
+        // Then the source carries on after the restored pages
+        assertEquals(listOf(1, 3), requestedPages.getValue(sourceA.key))
+    }
+
+    @Test
+    fun loadMore_afterFailedPage_requestsThePageAgain() = runBlocking {
+        // Given a source whose first page throws, then fails, before loading
+        val attempts = AtomicInteger()
+        whenever(searchStories(any(), any())).thenAnswer { invocation ->
+            val query = invocation.getArgument<String>(0)
+            val page = invocation.getArgument<Int>(1)
+            requestedPages.computeIfAbsent(query) { Collections.synchronizedList(mutableListOf()) }
+                .add(page)
+            when {
+                query != sourceA.key -> Result.Success(listOf(story(query, page)))
+                attempts.incrementAndGet() == 1 -> throw IllegalStateException("Boom")
+                attempts.get() == 2 -> Result.Error(IOException("Error"))
+                else -> Result.Success(listOf(story(query, page)))
+            }
+        }
+
+        // When loading more after every failure
+        repeat(4) {
+            dataManager.loadMore()
+            awaitLoadingFinished()
+        }
+
+        // Then the failed page was requested again rather than skipped
+        assertEquals(listOf(1, 1, 1, 2), requestedPages.getValue(sourceA.key))
+        assertEquals(loadingStarted.get(), loadingFinished.get())
+    }
+
+    private suspend fun awaitLoadingFinished() = withTimeout(TIMEOUT_MILLIS) {
+        while (loading) delay(10)
+    }
+
+    private fun story(query: String, page: Int, id: Long = page.toLong()) = Story(
+        id = id,
+        title = "$query $page",
+        page = page,
+        createdAt = Date(),
+        userId = userId,
+        links = storyLinks
+    )
+
+    companion object {
+        private const val CONCURRENCY = 200
+        private const val TIMEOUT_MILLIS = 5000L
+        private const val STALE_ID = 100L
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data
+
+import io.plaidapp.core.dribbble.data.api.model.Images
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.dribbble.data.player
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [PlaidItemFeed] verifying that pages are merged in weight order.
+ */
+class PlaidItemFeedTest {
+
+    private val feed = PlaidItemFeed()
+
+    private fun shot(id: Long, weight: Float, source: String = "dribbble") = Shot(
+        id = id,
+        title = "Shot $id",
+        page = weight.toInt(),
+        description = "",
+        images = Images(),
+        user = player
+    ).apply {
+        this.weight = weight
+        dataSource = source
+    }
+
+    @Test
+    fun add_sortsPageByWeight() {
+        // Given a page of items in a random order
+        val page = listOf(shot(1, 1.5f), shot(2, 1.1f), shot(3, 1.9f))
+
+        // When adding it to an empty feed
+        val inserted = feed.add(page)
+
+        // Then the items are sorted by weight
+        assertEquals(listOf(2L, 1L, 3L), feed.snapshot().map { it.id })
+        // And reported as a single insertion
+        assertEquals(listOf(FeedRange(0, 3)), inserted)
+    }
+
+    @Test
+    fun add_mergesIntoExistingItems() {
+        // Given a feed with a page
+        feed.add(listOf(shot(1, 1.2f), shot(2, 1.6f)))
+
+        // When adding a page overlapping the existing one
+        val inserted = feed.add(listOf(shot(3, 1.4f), shot(4, 1.8f), shot(5, 1.9f)))
+
+        // Then the items are merged in weight order
+        assertEquals(listOf(1L, 3L, 2L, 4L, 5L), feed.snapshot().map { it.id })
+        // And the inserted positions are reported in the updated feed
+        assertEquals(listOf(FeedRange(1, 1), FeedRange(3, 2)), inserted)
+    }
+
+    @Test
+    fun add_keepsExistingItemsFirst_forEqualWeights() {
+        // Given a feed with an item
+        feed.add(listOf(shot(1, 1.5f)))
+
+        // When adding an item with the same weight
+        feed.add(listOf(shot(2, 1.5f)))
+
+        // Then the existing item stays first
+        assertEquals(listOf(1L, 2L), feed.snapshot().map { it.id })
+    }
+
+    @Test
+    fun add_skipsItemsAlreadyInFeed() {
+        // Given a feed with a page
+        val existing = shot(1, 1.2f)
+        feed.add(listOf(existing))
+
+        // When adding the same item again
+        val inserted = feed.add(listOf(existing))
+
+        // Then nothing is inserted
+        assertEquals(1, feed.size)
+        assertTrue(inserted.isEmpty())
+    }
+
+    @Test
+    fun add_skipsSameItemFromAnotherFeed() {
+        // Given a feed with a shot
+        feed.add(listOf(shot(1, 1.2f, "a")))
+
+        // When another source returns the same shot, on another page
+        val inserted = feed.add(listOf(shot(1, 2.4f, "b")))
+
+        // Then it's not added again
+        assertEquals(1, feed.size)
+        assertTrue(inserted.isEmpty())
+    }
+
+    @Test
+    fun addPages_mergesAllPages() {
+        // When adding several pages at once
+        feed.addPages(
+            listOf(
+                listOf(shot(1, 2.5f), shot(2, 2.1f)),
+                listOf(shot(3, 1.3f), shot(4, 1.7f)),
+                listOf(shot(5, 2.2f))
+            )
+        )
+
+        // Then all items are in weight order
+        assertEquals(listOf(3L, 4L, 2L, 5L, 1L), feed.snapshot().map { it.id })
+    }
+
+    @Test
+    fun removeSource_removesItemsOfSource() {
+        // Given a feed with items from two sources
+        feed.add(
+            listOf(
+                shot(1, 1.1f, "a"),
+                shot(2, 1.2f, "b"),
+                shot(3, 1.3f, "b"),
+                shot(4, 1.4f, "a"),
+                shot(5, 1.5f, "b")
+            )
+        )
+
+        // When removing one of the sources
+        val removed = feed.removeSource("b")
+
+        // Then only the items of the other source are left
+        assertEquals(listOf(1L, 4L), feed.snapshot().map { it.id })
+        // And the removed ranges are reported from the end of the feed
+        assertEquals(listOf(FeedRange(4, 1), FeedRange(1, 2)), removed)
+    }
+
+    @Test
+    fun replacePage_replacesItemsOfPage() {
+        // Given a feed with two pages of a source
+        feed.replacePage("a", 1, listOf(shot(1, 1.1f, "a"), shot(2, 1.2f, "a")))
+        feed.replacePage("a", 2, listOf(shot(3, 2.1f, "a")))
+
+        // When the first page is replaced with a newer version of it
+        val updated = shot(2, 1.5f, "a")
+        feed.replacePage("a", 1, listOf(updated, shot(4, 1.3f, "a")))
+
+        // Then the item not in the page anymore is removed and the new one is merged in
+        assertEquals(listOf(2L, 4L, 3L), feed.snapshot().map { it.id })
+        // And the item still in the page is updated in place
+        assertTrue(feed.snapshot()[0] === updated)
+        assertEquals(1.2f, updated.weight, 0f)
+    }
+
+    @Test
+    fun replacePage_keepsItemsOfOtherSources() {
+        // Given a feed with the same page of two sources
+        feed.replacePage("a", 1, listOf(shot(1, 1.1f, "a")))
+        feed.replacePage("b", 1, listOf(shot(2, 1.2f, "b")))
+
+        // When replacing the page of one source
+        feed.replacePage("a", 1, listOf(shot(3, 1.3f, "a")))
+
+        // Then the items of the other source are kept
+        assertEquals(listOf(2L, 3L), feed.snapshot().map { it.id })
+    }
+
+    @Test
+    fun addPage_holdsPage() {
+        // When adding a page of a source
+        val inserted = feed.addPage("a", 1, listOf(shot(1, 1.1f, "a"), shot(2, 1.2f, "a")))
+
+        // Then the items are inserted as by add
+        assertEquals(listOf(FeedRange(0, 2)), inserted)
+        // And the feed holds the page, for that source only
+        assertTrue(feed.hasPage("a", 1))
+        assertFalse(feed.hasPage("a", 2))
+        assertFalse(feed.hasPage("b", 1))
+    }
+
+    @Test
+    fun replacePage_replacesItemsOfAddedPage() {
+        // Given a feed with an added page
+        feed.addPage("a", 1, listOf(shot(1, 1.1f, "a"), shot(2, 1.2f, "a")))
+
+        // When the page is replaced
+        feed.replacePage("a", 1, listOf(shot(3, 1.3f, "a")))
+
+        // Then only the items of the new version of the page are left
+        assertEquals(listOf(3L), feed.snapshot().map { it.id })
+        assertTrue(feed.hasPage("a", 1))
+    }
+
+    @Test
+    fun replacePage_withoutItems_forgetsPage() {
+        // Given a feed with an added page
+        feed.addPage("a", 1, listOf(shot(1, 1.1f, "a")))
+
+        // When the page is replaced by an empty one
+        feed.replacePage("a", 1, emptyList())
+
+        // Then the feed doesn't hold the page anymore
+        assertFalse(feed.hasPage("a", 1))
+    }
+
+    @Test
+    fun removeSource_forgetsPages() {
+        // Given a feed with a page of two sources
+        feed.addPage("a", 1, listOf(shot(1, 1.1f, "a")))
+        feed.addPage("b", 1, listOf(shot(2, 1.2f, "b")))
+
+        // When removing one of the sources
+        feed.removeSource("a")
+
+        // Then the feed only holds the page of the other source
+        assertFalse(feed.hasPage("a", 1))
+        assertTrue(feed.hasPage("b", 1))
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.api
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+/**
+ * Tests for [BandwidthMeter].
+ */
+class BandwidthMeterTest {
+
+    private val meter = BandwidthMeter()
+    private val oneSecond = TimeUnit.SECONDS.toNanos(1)
+
+    @Test
+    fun bitsPerSecond_nothingRecorded_isNull() {
+        assertNull(meter.bitsPerSecond)
+    }
+
+    @Test
+    fun record_firstMeasure_isEstimate() {
+        // When reading 125kB in a second
+        meter.record(125_000, oneSecond)
+
+        // Then the estimate is 1Mbps
+        assertEquals(1_000_000L, meter.bitsPerSecond)
+    }
+
+    @Test
+    fun record_smallBody_isIgnored() {
+        // When reading a small body
+        meter.record(1_000, oneSecond)
+
+        // Then it's not taken into account
+        assertNull(meter.bitsPerSecond)
+    }
+
+    @Test
+    fun record_newMeasure_movesEstimate() {
+        // Given an estimate of 1Mbps
+        meter.record(125_000, oneSecond)
+
+        // When the network gets faster
+        meter.record(250_000, oneSecond)
+
+        // Then the estimate moves towards the new measure, without reaching it
+        assertEquals(1_300_000L, meter.bitsPerSecond)
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.api
+
+import com.google.gson.Gson
+import com.google.gson.JsonParseException
+import com.google.gson.reflect.TypeToken
+import okhttp3.ResponseBody
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.fail
+import org.junit.Test
+import retrofit2.Converter
+import retrofit2.Retrofit
+import java.lang.reflect.Type
+
+/**
+ * Tests for [DeEnvelopingConverter] using static test data.
+ */
+class DeEnvelopingConverterTest {
+
+    private data class Item(val id: Long)
+
+    private interface ItemsService {
+        @EnvelopePayload("items")
+        fun items(): List<Item>
+    }
+
+    private val factory = DeEnvelopingConverter(Gson())
+    private val retrofit = Retrofit.Builder()
+        .baseUrl("https://www.designernews.co/")
+        .build()
+    private val annotations = ItemsService::class.java.getDeclaredMethod("items").annotations
+
+    private val listType = object : TypeToken<List<Item>>() {}.type
+    private val sequenceType = object : TypeToken<Sequence<Item>>() {}.type
+
+    @Test
+    fun convert_list_removesEnvelope() {
+        // Given a response with a payload in an envelope
+        val body = body("""{"meta":{"count":2},"items":[{"id":1},{"id":2}]}""")
+
+        // When converting it to a list
+        val items = converter(listType).convert(body)
+
+        // Then the payload is returned
+        assertEquals(listOf(Item(1), Item(2)), items)
+    }
+
+    @Test
+    fun convert_sequence_removesEnvelope() {
+        // Given a response with a payload in an envelope
+        val body = body("""{"meta":{"count":2},"items":[{"id":1},{"id":2}]}""")
+
+        // When converting it to a sequence
+        val items = converter(sequenceType).convert(body) as Sequence<*>
+
+        // Then the payload is returned
+        assertEquals(listOf(Item(1), Item(2)), items.toList())
+    }
+
+    @Test
+    fun convert_sequence_decodesElementsLazily() {
+        // Given a response whose payload is cut short after the first element
+        val body = body("""{"items":[{"id":1},{"id":""")
+
+        // When converting it to a sequence
+        val items = (converter(sequenceType).convert(body) as Sequence<*>).iterator()
+
+        // Then the first element is decoded
+        assertEquals(Item(1), items.next())
+        // Then the error is only thrown when reading the broken element
+        try {
+            items.next()
+            fail("Expected a JsonParseException")
+        } catch (expected: JsonParseException) {
+        }
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun convert_sequence_canOnlyBeReadOnce() {
+        // Given a converted sequence that was read
+        val body = body("""{"items":[{"id":1}]}""")
+        val items = converter(sequenceType).convert(body) as Sequence<*>
+        items.toList()
+
+        // When reading it again
+        items.toList()
+
+        // Then an exception is thrown
+    }
+
+    @Test
+    fun convert_missingPayload_returnsNull() {
+        // Given a response without the payload
+        val body = body("""{"meta":{"count":0}}""")
+
+        // When converting it
+        val items = converter(sequenceType).convert(body)
+
+        // Then there's no result
+        assertNull(items)
+    }
+
+    private fun converter(type: Type): Converter<ResponseBody, *> =
+        factory.responseBodyConverter(type, annotations, retrofit)!!
+
+    private fun body(json: String) = ResponseBody.create(null, json)
+}
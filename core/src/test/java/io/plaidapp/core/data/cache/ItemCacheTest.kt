@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.cache
+
+import android.content.ComponentCallbacks2
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+/**
+ * Tests for [ItemCache] using a fake clock.
+ */
+class ItemCacheTest {
+
+    private var now = 0L
+    private val cache = ItemCache<Long, Item>(
+        maxSize = 2,
+        timeToLiveMillis = 100L,
+        clock = { now }
+    )
+
+    private data class Item(val id: Long)
+
+    @Test
+    fun get_afterTimeToLive_returnsReferencedItem() {
+        // Given a cached item, still referenced, e.g. by a feed
+        val item = Item(1L)
+        cache[item.id] = item
+
+        // When getting it after it expired
+        now = 200L
+        val value = cache[item.id]
+
+        // Then it is still returned
+        assertSame(item, value)
+    }
+
+    @Test
+    fun get_afterTrim_returnsReferencedItem() {
+        // Given a cached item, still referenced
+        val item = Item(1L)
+        cache[item.id] = item
+
+        // When the system runs out of memory
+        MemoryCaches.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE)
+
+        // Then the item is still returned
+        assertSame(item, cache[item.id])
+    }
+
+    @Test
+    fun get_afterEviction_returnsItemOfReferencedOwner() {
+        // Given an object displaying each item
+        val owners = (0L..2L).map { Any() }
+
+        // When caching more items than the cache holds
+        owners.forEachIndexed { i, owner -> cache.put(i.toLong(), Item(i.toLong()), owner) }
+
+        // Then all of them can still be retrieved while their owners are referenced
+        (0L..2L).forEach { assertEquals(Item(it), cache[it]) }
+        assertEquals(3, owners.size)
+    }
+
+    @Test
+    fun set_sameKey_returnsNewestItem() {
+        // Given a cached item
+        val old = Item(1L)
+        cache[1L] = old
+
+        // When caching another item for the same key, after the first one expired
+        now = 200L
+        val new = Item(1L)
+        cache[1L] = new
+
+        // Then the newest item is returned
+        assertSame(new, cache[1L])
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.cache
+
+import android.content.ComponentCallbacks2
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+/**
+ * Tests for [MemoryCache] using a fake clock.
+ */
+class MemoryCacheTest {
+
+    private var now = 0L
+    private val cache = MemoryCache<Long, String>(
+        maxSize = 4,
+        timeToLiveMillis = 100L,
+        clock = { now }
+    )
+
+    @Test
+    fun get_returnsCachedValue() {
+        // Given a cached value
+        cache[1L] = "one"
+
+        // When getting it before it expires
+        now = 99L
+        val value = cache[1L]
+
+        // Then the value is returned
+        assertEquals("one", value)
+        assertEquals(1, cache.stats().hitCount)
+    }
+
+    @Test
+    fun get_expiredValue_returnsNull() {
+        // Given a cached value
+        cache[1L] = "one"
+
+        // When getting it after it expired
+        now = 100L
+        val value = cache[1L]
+
+        // Then nothing is returned
+        assertNull(value)
+        val stats = cache.stats()
+        assertEquals(1, stats.missCount)
+        assertEquals(1, stats.expiredCount)
+        assertEquals(0, stats.size)
+    }
+
+    @Test
+    fun set_overMaxSize_evictsLeastRecentlyUsed() {
+        // Given a full cache
+        (1L..4L).forEach { cache[it] = "$it" }
+        // And the first value recently used
+        cache[1L]
+
+        // When adding one more value
+        cache[5L] = "5"
+
+        // Then the least recently used value is evicted
+        assertNull(cache[2L])
+        assertEquals("1", cache[1L])
+        assertEquals(1, cache.stats().evictionCount)
+        assertEquals(4, cache.stats().size)
+    }
+
+    @Test
+    fun onTrimMemory_moderate_halvesCache() {
+        // Given a full cache
+        (1L..4L).forEach { cache[it] = "$it" }
+
+        // When memory is getting low
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE)
+
+        // Then the most recently used half is kept
+        assertEquals(2, cache.stats().size)
+        assertEquals("4", cache[4L])
+    }
+
+    @Test
+    fun onTrimMemory_complete_evictsAll() {
+        // Given a full cache
+        (1L..4L).forEach { cache[it] = "$it" }
+
+        // When the process is about to be killed
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE)
+
+        // Then the cache is emptied
+        assertEquals(0, cache.stats().size)
+    }
+
+    @Test
+    fun onTrimMemory_uiHidden_keepsCache() {
+        // Given a full cache
+        (1L..4L).forEach { cache[it] = "$it" }
+
+        // When the UI is hidden
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)
+
+        // Then nothing is evicted
+        assertEquals(4, cache.stats().size)
+    }
+}
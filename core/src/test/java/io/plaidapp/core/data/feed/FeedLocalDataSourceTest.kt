@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.data.feed
+
+import com.google.gson.Gson
+import io.plaidapp.core.data.database.CachedFeedPage
+import io.plaidapp.core.data.database.FeedPageDao
+import io.plaidapp.core.dribbble.data.shots
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [FeedLocalDataSource] using a fake DAO.
+ */
+class FeedLocalDataSourceTest {
+
+    private val dao = FakeFeedPageDao()
+    private val dataSource = FeedLocalDataSource(dao, Gson(), maxPages = 2)
+
+    @Test
+    fun savePage_thenGetPages() = runBlocking {
+        // Given a saved page of shots
+        dataSource.savePage("dribbble", 1, shots)
+
+        // When getting the pages for the source
+        val pages = dataSource.getPages(listOf("dribbble"))
+
+        // Then the shots are read back
+        assertEquals(listOf(FeedPage("dribbble", 1, shots)), pages)
+    }
+
+    @Test
+    fun savePage_afterMaxPages_isIgnored() = runBlocking {
+        // When saving a page after the maximum number of pages
+        dataSource.savePage("dribbble", 3, shots)
+
+        // Then nothing is stored
+        assertTrue(dao.pages.isEmpty())
+    }
+
+    @Test
+    fun savePage_firstPage_replacesPreviousSession() = runBlocking {
+        // Given two saved pages
+        dataSource.savePage("dribbble", 1, shots)
+        dataSource.savePage("dribbble", 2, shots)
+
+        // When saving the first page again
+        dataSource.savePage("dribbble", 1, shots.take(1))
+
+        // Then only the new first page is stored
+        val pages = dataSource.getPages(listOf("dribbble"))
+        assertEquals(listOf(FeedPage("dribbble", 1, shots.take(1))), pages)
+    }
+
+    @Test
+    fun getPages_skipsUnreadablePages() = runBlocking {
+        // Given a page that can't be parsed
+        dao.insertPage(CachedFeedPage("dribbble", 1, "shot", "{not json", 0L))
+
+        // When getting the pages
+        val pages = dataSource.getPages(listOf("dribbble"))
+
+        // Then the page is skipped
+        assertTrue(pages.isEmpty())
+    }
+
+    class FakeFeedPageDao : FeedPageDao() {
+        val pages = mutableListOf<CachedFeedPage>()
+
+        override suspend fun getPages(sourceKeys: List<String>) =
+            pages.filter { it.sourceKey in sourceKeys }.sortedBy { it.page }
+
+        override suspend fun deletePages(sourceKey: String) {
+            pages.removeAll { it.sourceKey == sourceKey }
+        }
+
+        override suspend fun insertPage(page: CachedFeedPage) {
+            pages.removeAll { it.sourceKey == page.sourceKey && it.page == page.page }
+            pages.add(page)
+        }
+    }
+}
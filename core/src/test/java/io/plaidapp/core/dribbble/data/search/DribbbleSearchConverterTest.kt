@@ -17,6 +17,7 @@
 package io.plaidapp.core.dribbble.data.search
 
 import okhttp3.ResponseBody
+import org.jsoup.Jsoup
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
 import org.junit.Test
@@ -48,6 +49,84 @@ class DribbbleSearchConverterTest {
         }
     }
 
+    @Test
+    fun parsesShotFields() {
+        // Given a response from a dribbble search
+        val response = ResponseBody.create(null, loadData("/dribbble_search.html"))
+
+        // When we convert this
+        val shot = DribbbleSearchConverter.convert(response).first()
+
+        // Then the fields of the shot are read from its markup
+        assertEquals(5613296L, shot.id)
+        assertEquals("Product promotional presentation powerpoint template design", shot.title)
+        assertEquals(
+            "https://cdn.dribbble.com/users/692409/screenshots/5613296/thumbnail_1.png",
+            shot.images.normal
+        )
+        assertEquals(7, shot.likesCount)
+        assertEquals(33, shot.viewsCount)
+        assertEquals(692409L, shot.user.id)
+        assertEquals("Rivat Fauzi", shot.user.name)
+        assertEquals("rivatxfz", shot.user.username)
+    }
+
+    @Test
+    fun parsesSameShotsAsDocument() {
+        // Given a response from a dribbble search
+        val html = loadData("/dribbble_search.html")
+
+        // When we convert this
+        val shots = DribbbleSearchConverter.convert(ResponseBody.create(null, html))
+
+        // Then the shots match the ones queried from the parsed document
+        val elements = Jsoup.parse(html).select("li[id^=screenshot]")
+        assertEquals(elements.size, shots.size)
+        elements.zip(shots).forEach { (element, shot) ->
+            val descriptionBlock = element.select("a.dribbble-over").first()
+            assertEquals(element.id().removePrefix("screenshot-").toLong(), shot.id)
+            assertEquals(descriptionBlock.select("strong").first().text(), shot.title)
+            assertEquals(
+                descriptionBlock.select("span.comment").text().trim(),
+                shot.description.removeSurrounding("<p>", "</p>")
+            )
+            assertEquals(
+                element.select("li.views").first().child(0).text().replace(",", "").toInt(),
+                shot.viewsCount
+            )
+            assertEquals(element.select("h2 a.url").first().text(), shot.user.name)
+        }
+    }
+
+    @Test
+    fun skipsScriptsAndDecodesEntities() {
+        // Given a page with a script containing markup, and entities in a shot
+        val html = """
+            <script>var template = '<li id="screenshot-1"></li>';</script>
+            <!-- <li id="screenshot-2"></li> -->
+            <li id="screenshot-3">
+              <a class="dribbble-over"><strong>Cats &amp; dogs&#33;</strong></a>
+              <img src="https://cdn.dribbble.com/users/4/screenshots/3/cat_teaser.gif">
+              <ul><li class="views"><span>1,024</span></li></ul>
+              <h2><a class="url" href="/cat"><img class="photo" src="/users/4/a/mini/c.png">
+                Cat</a></h2>
+            </li>
+        """.trimIndent()
+
+        // When we convert this
+        val shots = DribbbleSearchConverter.convert(ResponseBody.create(null, html))
+
+        // Then only the shot outside of the script and comment is read
+        assertEquals(1, shots.size)
+        val shot = shots[0]
+        assertEquals(3L, shot.id)
+        assertEquals("Cats & dogs!", shot.title)
+        assertEquals(true, shot.animated)
+        assertEquals(0, shot.likesCount)
+        assertEquals(1024, shot.viewsCount)
+        assertEquals("Cat", shot.user.name)
+    }
+
     private fun loadData(path: String): String {
         val inputStream = DribbbleSearchConverterTest::class.java.getResourceAsStream(path)
         return inputStream.bufferedReader().use { it.readText() }
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.feed
+
+import io.plaidapp.core.data.FeedRange
+import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.dribbble.data.api.model.Images
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.dribbble.data.player
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [FeedDiffer].
+ */
+class FeedDifferTest {
+
+    // a single column doesn't move expanded items, so the items keep the order of the feed
+    private val differ = FeedDiffer(1)
+
+    private val shots = (1L..4L).map { shot(it) }
+
+    @Test
+    fun diff_firstItems_hasNoUpdates() {
+        // When diffing the first items
+        val uiModel = differ.diff(shots)
+
+        // Then there are no updates, as there is nothing to update
+        assertEquals(shots, uiModel.items)
+        assertNull(uiModel.updates)
+    }
+
+    @Test
+    fun diff_reportsUpdatesAgainstPreviousVersion() {
+        // Given previous items
+        val previous = differ.diff(listOf(shots[0], shots[1]))
+
+        // When an item is inserted between them
+        val uiModel = differ.diff(listOf(shots[0], shots[2], shots[1]))
+
+        // Then the insertion is reported against the previous version
+        assertEquals(previous.version, uiModel.updates!!.previousVersion)
+        assertEquals(listOf(FeedChange.Inserted(1, 1)), uiModel.updates!!.changes)
+    }
+
+    @Test
+    fun diff_removedItem() {
+        // Given previous items
+        differ.diff(listOf(shots[0], shots[1], shots[2]))
+
+        // When an item is removed
+        val updates = differ.diff(listOf(shots[0], shots[2])).updates!!
+
+        // Then the removal is reported
+        assertEquals(listOf(FeedChange.Removed(1, 1)), updates.changes)
+    }
+
+    @Test
+    fun diff_movedItem() {
+        // Given previous items
+        val previous = listOf(shots[0], shots[1], shots[2], shots[3])
+        differ.diff(previous)
+
+        // When an item moves
+        val items = listOf(shots[3], shots[0], shots[1], shots[2])
+        val updates = differ.diff(items).updates!!
+
+        // Then only moves are reported
+        assertTrue(updates.changes.isNotEmpty())
+        assertTrue(updates.changes.all { it is FeedChange.Moved })
+        // And they turn the previous items into the new ones
+        assertEquals(items, applyMoves(previous, updates.changes))
+    }
+
+    @Test
+    fun diff_sameItems_hasNoChanges() {
+        // Given previous items
+        differ.diff(listOf(shots[0], shots[1]))
+
+        // When diffing the same items again, in a new list
+        val updates = differ.diff(listOf(shots[0], shots[1])).updates!!
+
+        // Then there are no changes
+        assertTrue(updates.changes.isEmpty())
+    }
+
+    @Test
+    fun diff_newInstanceOfItem_isChanged() {
+        // Given previous items
+        differ.diff(listOf(shots[0], shots[1]))
+
+        // When an item is replaced by a newer version of it
+        val updates = differ.diff(listOf(shots[0], shot(2))).updates!!
+
+        // Then it's reported as changed, in place
+        assertEquals(listOf(FeedChange.Changed(1, 1)), updates.changes)
+    }
+
+    @Test
+    fun diff_expandsFirstShotOfEveryPage() {
+        // Given a differ for 2 columns
+        val differ = FeedDiffer(2)
+        val first = shot(1, page = 1)
+        val second = shot(2, page = 1)
+        val third = shot(3, page = 2)
+        val fourth = shot(4, page = 2)
+
+        // When laying out 2 pages
+        val items = differ.diff(listOf(first, second, third, fourth)).items
+
+        // Then the first shot of every page spans all the columns
+        assertEquals(listOf(2, 1, 1, 2), items.map { it.colspan })
+        // And it's moved to the start of a row, so that there are no gaps
+        assertEquals(listOf(first, second, fourth, third), items)
+    }
+
+    @Test
+    fun inserted_reportsInsertedRanges() {
+        // Given previous items
+        differ.diff(listOf(shots[0], shots[1]))
+
+        // When items are inserted into the feed
+        val feed = listOf(shots[2], shots[0], shots[3], shots[1])
+        val uiModel = differ.inserted(feed, listOf(FeedRange(0, 1), FeedRange(2, 1)))
+
+        // Then the inserted ranges are reported, without any other change
+        assertEquals(
+            listOf(FeedChange.Inserted(0, 1), FeedChange.Inserted(2, 1)),
+            uiModel.updates!!.changes
+        )
+        assertEquals(feed, uiModel.items)
+    }
+
+    @Test
+    fun inserted_movedExpandedItem_isChanged() {
+        // Given a differ for 2 columns, having moved an expanded item to the start of a row
+        val differ = FeedDiffer(2)
+        val first = shot(1, page = 1)
+        val second = shot(2, page = 1)
+        val third = shot(3, page = 2)
+        val fourth = shot(4, page = 2)
+        differ.diff(listOf(first, second, third, fourth))
+
+        // When an item is inserted before it, so that it doesn't need to move anymore
+        val inserted = shot(5, page = 1)
+        val feed = listOf(first, second, inserted, third, fourth)
+        val uiModel = differ.inserted(feed, listOf(FeedRange(2, 1)))
+
+        // Then the items after the insertion are reported as changed
+        assertEquals(
+            listOf(FeedChange.Inserted(2, 1), FeedChange.Changed(3, 2)),
+            uiModel.updates!!.changes
+        )
+        assertEquals(feed, uiModel.items)
+    }
+
+    @Test
+    fun inserted_laysOutAsDiff() {
+        // Given a differ for 3 columns that laid out a page
+        val differ = FeedDiffer(3)
+        val page1 = (1L..5L).map { shot(it, page = 1) }
+        val page2 = (6L..10L).map { shot(it, page = 2) }
+        val previous = ArrayList(differ.diff(page1).items)
+
+        // When the next page is inserted, partly among the items of the previous page
+        val feed = page1.take(3) + page2.take(2) + page1.drop(3) + page2.drop(2)
+        val uiModel = differ.inserted(feed, listOf(FeedRange(3, 2), FeedRange(7, 3)))
+
+        // Then the items are laid out as if they were laid out at once
+        val items = ArrayList(uiModel.items)
+        val colspans = items.map { it.colspan }
+        val expected = FeedDiffer(3).diff(feed)
+        assertEquals(expected.items, items)
+        assertEquals(expected.items.map { it.colspan }, colspans)
+        // And the updates turn the previous items into them
+        assertEquals(items, applyChanges(previous, uiModel.updates!!.changes, items))
+    }
+
+    @Test
+    fun removed_reportsRemovedRanges() {
+        // Given previous items
+        differ.diff(shots)
+
+        // When items are removed from the feed
+        val feed = listOf(shots[1], shots[3])
+        val uiModel = differ.removed(feed, listOf(FeedRange(2, 1), FeedRange(0, 1)))
+
+        // Then the removed ranges are reported, without any other change
+        assertEquals(
+            listOf(FeedChange.Removed(2, 1), FeedChange.Removed(0, 1)),
+            uiModel.updates!!.changes
+        )
+        assertEquals(feed, uiModel.items)
+    }
+
+    @Test
+    fun removed_laysOutAsDiff() {
+        // Given a differ for 3 columns that laid out 2 pages
+        val differ = FeedDiffer(3)
+        val page1 = (1L..5L).map { shot(it, page = 1) }
+        val page2 = (6L..10L).map { shot(it, page = 2) }
+        val previous = ArrayList(differ.diff(page1 + page2).items)
+
+        // When items of both pages are removed
+        val feed = page1.take(2) + page1.drop(3) + page2.drop(1)
+        val uiModel = differ.removed(feed, listOf(FeedRange(5, 1), FeedRange(2, 1)))
+
+        // Then the items are laid out as if they were laid out at once
+        val items = ArrayList(uiModel.items)
+        val colspans = items.map { it.colspan }
+        val expected = FeedDiffer(3).diff(feed)
+        assertEquals(expected.items, items)
+        assertEquals(expected.items.map { it.colspan }, colspans)
+        // And the updates turn the previous items into them
+        assertEquals(items, applyChanges(previous, uiModel.updates!!.changes, items))
+    }
+
+    /**
+     * Applies the moves among [changes] to [items].
+     */
+    private fun applyMoves(items: List<PlaidItem>, changes: List<FeedChange>): List<PlaidItem> {
+        val result = items.toMutableList()
+        changes.filterIsInstance<FeedChange.Moved>().forEach { move ->
+            result.add(move.toPosition, result.removeAt(move.fromPosition))
+        }
+        return result
+    }
+
+    /**
+     * Applies [changes] to [items] as an adapter would, binding inserted and changed positions to
+     * the [updated] items.
+     */
+    private fun applyChanges(
+        items: List<PlaidItem>,
+        changes: List<FeedChange>,
+        updated: List<PlaidItem>
+    ): List<PlaidItem> {
+        val result = items.toMutableList()
+        changes.forEach { change ->
+            when (change) {
+                is FeedChange.Inserted -> result.addAll(
+                    change.position,
+                    updated.subList(change.position, change.position + change.count)
+                )
+                is FeedChange.Removed -> result.subList(
+                    change.position,
+                    change.position + change.count
+                ).clear()
+                is FeedChange.Moved -> result.add(
+                    change.toPosition,
+                    result.removeAt(change.fromPosition)
+                )
+                is FeedChange.Changed -> (change.position until change.position + change.count)
+                    .forEach { result[it] = updated[it] }
+            }
+        }
+        return result
+    }
+
+    private fun shot(id: Long, page: Int = 1) = Shot(
+        id = id,
+        title = "Shot $id",
+        page = page,
+        description = "",
+        images = Images(),
+        user = player
+    )
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.feed
+
+import androidx.recyclerview.widget.ListUpdateCallback
+import io.plaidapp.core.dribbble.data.api.model.Images
+import io.plaidapp.core.dribbble.data.api.model.Shot
+import io.plaidapp.core.dribbble.data.player
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [FeedUiModel.dispatchUpdatesTo], which [FeedAdapter.submit] uses to update the
+ * displayed items.
+ */
+class FeedUiModelTest {
+
+    private val shots = (1L..3L).map { shot(it) }
+    private val differ = FeedDiffer(1)
+
+    private val dispatched = mutableListOf<FeedChange>()
+    private val callback = object : ListUpdateCallback {
+        override fun onInserted(position: Int, count: Int) {
+            dispatched.add(FeedChange.Inserted(position, count))
+        }
+
+        override fun onRemoved(position: Int, count: Int) {
+            dispatched.add(FeedChange.Removed(position, count))
+        }
+
+        override fun onMoved(fromPosition: Int, toPosition: Int) {
+            dispatched.add(FeedChange.Moved(fromPosition, toPosition))
+        }
+
+        override fun onChanged(position: Int, count: Int, payload: Any?) {
+            dispatched.add(FeedChange.Changed(position, count))
+        }
+    }
+
+    @Test
+    fun dispatchUpdatesTo_previousVersionDisplayed_dispatchesChanges() {
+        // Given the items displayed
+        val displayed = differ.diff(listOf(shots[0], shots[2]))
+
+        // When dispatching the updates of the next items
+        val uiModel = differ.diff(listOf(shots[0], shots[1]))
+        val result = uiModel.dispatchUpdatesTo(displayed.items, displayed.version, callback)
+
+        // Then the changes are dispatched
+        assertTrue(result)
+        assertEquals(uiModel.updates!!.changes, dispatched)
+        assertTrue(dispatched.isNotEmpty())
+    }
+
+    @Test
+    fun dispatchUpdatesTo_olderVersionDisplayed_fallsBackToRefresh() {
+        // Given the items displayed, before an update that wasn't dispatched
+        val displayed = differ.diff(listOf(shots[0]))
+        differ.diff(listOf(shots[0], shots[1]))
+
+        // When dispatching the updates of the next items
+        val uiModel = differ.diff(shots)
+        val result = uiModel.dispatchUpdatesTo(displayed.items, displayed.version, callback)
+
+        // Then nothing is dispatched, so that all the items are rebound
+        assertFalse(result)
+        assertTrue(dispatched.isEmpty())
+    }
+
+    @Test
+    fun dispatchUpdatesTo_otherItemsDisplayed_fallsBackToRefresh() {
+        // Given updates computed against other items than the displayed ones, e.g. by an adapter
+        // created after a configuration change
+        val displayed = differ.diff(listOf(shots[0]))
+        val uiModel = differ.diff(listOf(shots[0], shots[1]))
+
+        // When dispatching the updates
+        val result = uiModel.dispatchUpdatesTo(listOf(shots[0]), displayed.version, callback)
+
+        // Then nothing is dispatched, so that all the items are rebound
+        assertFalse(result)
+        assertTrue(dispatched.isEmpty())
+    }
+
+    @Test
+    fun dispatchUpdatesTo_noUpdates_fallsBackToRefresh() {
+        // Given the first items, without updates
+        val uiModel = differ.diff(shots)
+
+        // When dispatching the updates
+        val result = uiModel.dispatchUpdatesTo(emptyList(), 0, callback)
+
+        // Then nothing is dispatched, so that all the items are bound
+        assertFalse(result)
+        assertTrue(dispatched.isEmpty())
+    }
+
+    @Test
+    fun dispatchUpdatesTo_nothingChanged_dispatchesNothing() {
+        // Given the items displayed
+        val displayed = differ.diff(listOf(shots[0], shots[1]))
+
+        // When dispatching the updates of the same items
+        val uiModel = differ.diff(listOf(shots[0], shots[1]))
+        val result = uiModel.dispatchUpdatesTo(displayed.items, displayed.version, callback)
+
+        // Then the updates are applied, without any change
+        assertTrue(result)
+        assertTrue(dispatched.isEmpty())
+    }
+
+    private fun shot(id: Long) = Shot(
+        id = id,
+        title = "Shot $id",
+        page = 1,
+        description = "",
+        images = Images(),
+        user = player
+    )
+}
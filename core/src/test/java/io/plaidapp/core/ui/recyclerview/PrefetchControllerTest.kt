@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.ui.recyclerview
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Tests for [PrefetchController].
+ */
+class PrefetchControllerTest {
+
+    private var now = 0L
+    private val controller = PrefetchController { now }
+
+    private fun scroll(itemsPerSecond: Int, samples: Int = 30) {
+        var position = 0
+        repeat(samples) {
+            controller.onScrolled(position)
+            position += itemsPerSecond / 10
+            now += 100
+        }
+    }
+
+    private fun loadPage(latencyMillis: Long) {
+        controller.onLoadingChanged(true)
+        now += latencyMillis
+        controller.onLoadingChanged(false)
+    }
+
+    @Test
+    fun notScrolling_usesMinimumWindow() {
+        assertEquals(5, controller.loadThreshold)
+        assertEquals(4, controller.preloadDepth)
+    }
+
+    @Test
+    fun fastScroll_loadsAheadOfPageLatency() {
+        // Given pages taking 2 seconds to load
+        loadPage(2000)
+
+        // When scrolling through 20 items per second
+        scroll(itemsPerSecond = 20)
+
+        // Then the next page is requested 40 items, and a margin, before the end
+        assertEquals(60, controller.loadThreshold)
+        // And images are preloaded a second ahead
+        assertEquals(20, controller.preloadDepth)
+    }
+
+    @Test
+    fun fastScroll_windowIsCapped() {
+        // Given pages taking 10 seconds to load
+        loadPage(10_000)
+
+        // When scrolling through 100 items per second
+        scroll(itemsPerSecond = 100)
+
+        // Then the window doesn't grow past its maximum
+        assertEquals(100, controller.loadThreshold)
+        assertEquals(24, controller.preloadDepth)
+    }
+
+    @Test
+    fun scrollAfterPause_restartsFromMinimumWindow() {
+        // Given a fast scroll
+        loadPage(2000)
+        scroll(itemsPerSecond = 20)
+
+        // When scrolling again after a while
+        now += 5000
+        controller.onScrolled(300)
+
+        // Then the velocity is measured again from scratch
+        assertEquals(5, controller.loadThreshold)
+        assertEquals(4, controller.preloadDepth)
+    }
+}
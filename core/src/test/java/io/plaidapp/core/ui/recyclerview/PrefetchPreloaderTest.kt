@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.ui.recyclerview
+
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import com.bumptech.glide.ListPreloader
+import com.bumptech.glide.RequestBuilder
+import com.bumptech.glide.RequestManager
+import com.bumptech.glide.request.target.Target
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.argumentCaptor
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Tests for [PrefetchPreloader].
+ */
+class PrefetchPreloaderTest {
+
+    private val requestManager: RequestManager = mock()
+    private val layoutManager: LinearLayoutManager = mock()
+    private val modelProvider: ListPreloader.PreloadModelProvider<String> = mock()
+    private val sizeProvider: ListPreloader.PreloadSizeProvider<String> = mock()
+    private val requestBuilder: RequestBuilder<Any> = mock()
+    private val recyclerView: RecyclerView = mock()
+
+    // without any scroll velocity, 4 items are preloaded
+    private val prefetchController = PrefetchController { 0L }
+
+    private fun createPreloader(maxPreload: Int = 4) = PrefetchPreloader(
+        requestManager,
+        layoutManager,
+        modelProvider,
+        sizeProvider,
+        prefetchController,
+        maxPreload
+    )
+
+    @Before
+    fun setUp() {
+        whenever(layoutManager.findLastVisibleItemPosition()).thenReturn(2)
+        whenever(layoutManager.itemCount).thenReturn(20)
+        whenever(modelProvider.getPreloadItems(any())).thenAnswer {
+            listOf("item ${it.arguments[0]}")
+        }
+        whenever(modelProvider.getPreloadRequestBuilder(any())).thenReturn(requestBuilder)
+        whenever(sizeProvider.getPreloadSize(any(), any(), any())).thenReturn(intArrayOf(10, 10))
+    }
+
+    @Test
+    fun scrollingDown_preloadsItemsAfterLastVisible() {
+        // Given a preloader
+        val preloader = createPreloader()
+
+        // When scrolling down
+        preloader.onScrolled(recyclerView, 0, 10)
+
+        // Then the items after the last visible one are preloaded
+        (3..6).forEach { verify(modelProvider).getPreloadItems(it) }
+        verify(requestBuilder, times(4)).into(any<Target<Any>>())
+    }
+
+    @Test
+    fun scrollingDownAgain_doesNotPreloadSameItems() {
+        // Given a preloader that preloaded the items after the visible ones
+        val preloader = createPreloader()
+        preloader.onScrolled(recyclerView, 0, 10)
+
+        // When scrolling again, without new items becoming visible
+        preloader.onScrolled(recyclerView, 0, 10)
+
+        // Then the items aren't preloaded again
+        verify(requestBuilder, times(4)).into(any<Target<Any>>())
+    }
+
+    @Test
+    fun preloadingMoreThanMaxPreload_reusesTargets() {
+        // Given a preloader with 2 targets
+        val preloader = createPreloader(maxPreload = 2)
+
+        // When preloading 4 items
+        preloader.onScrolled(recyclerView, 0, 10)
+
+        // Then the targets are reused, cancelling the oldest preloads
+        val targets = argumentCaptor<Target<Any>>()
+        verify(requestBuilder, times(4)).into(targets.capture())
+        assertEquals(2, targets.allValues.distinct().size)
+        assertEquals(targets.allValues.take(2), targets.allValues.drop(2))
+    }
+
+    @Test
+    fun scrollingUp_cancelsPreloads() {
+        // Given a preloader that preloaded the items after the visible ones
+        val preloader = createPreloader()
+        preloader.onScrolled(recyclerView, 0, 10)
+
+        // When scrolling up
+        preloader.onScrolled(recyclerView, 0, -10)
+
+        // Then the preloads are cancelled
+        verify(requestManager, times(4)).clear(any<Target<*>>())
+    }
+
+    @Test
+    fun dataChanged_cancelsPreloadsAndPreloadsAgain() {
+        // Given a preloader that preloaded the items after the visible ones
+        val preloader = createPreloader()
+        preloader.onScrolled(recyclerView, 0, 10)
+
+        // When all the items change, e.g. the results are cleared
+        preloader.adapterDataObserver.onChanged()
+
+        // Then the preloads are cancelled
+        verify(requestManager, times(4)).clear(any<Target<*>>())
+        // And the items are preloaded again on the next scroll
+        preloader.onScrolled(recyclerView, 0, 0)
+        verify(requestBuilder, times(8)).into(any<Target<Any>>())
+    }
+
+    @Test
+    fun itemsInsertedAmongPreloadedItems_preloadsFromInsertedPosition() {
+        // Given a preloader that preloaded the items after the visible ones
+        val preloader = createPreloader()
+        preloader.onScrolled(recyclerView, 0, 10)
+
+        // When items are inserted among them
+        preloader.adapterDataObserver.onItemRangeInserted(5, 2)
+        preloader.onScrolled(recyclerView, 0, 0)
+
+        // Then the items from the inserted position on are preloaded again
+        verify(modelProvider).getPreloadItems(3)
+        verify(modelProvider).getPreloadItems(4)
+        verify(modelProvider, times(2)).getPreloadItems(5)
+        verify(modelProvider, times(2)).getPreloadItems(6)
+    }
+
+    @Test
+    fun itemsInsertedAfterPreloadedItems_doesNotPreloadAgain() {
+        // Given a preloader that preloaded the items after the visible ones
+        val preloader = createPreloader()
+        preloader.onScrolled(recyclerView, 0, 10)
+
+        // When items are inserted after them, e.g. a new page
+        preloader.adapterDataObserver.onItemRangeInserted(10, 5)
+        preloader.onScrolled(recyclerView, 0, 0)
+
+        // Then nothing is preloaded again
+        verify(requestBuilder, times(4)).into(any<Target<Any>>())
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [LongIntHashMap].
+ */
+class LongIntHashMapTest {
+
+    private val map = LongIntHashMap(4)
+
+    @Test
+    fun put_thenGet() {
+        // When putting values, more than the initial capacity
+        (0L until 100L).forEach { map.put(it * 31, it.toInt()) }
+
+        // Then all values can be retrieved
+        (0L until 100L).forEach { assertEquals(it.toInt(), map.get(it * 31, -1)) }
+        assertEquals(100, map.size)
+    }
+
+    @Test
+    fun get_missingKey_returnsDefault() {
+        map.put(1L, 1)
+
+        assertEquals(-1, map.get(2L, -1))
+    }
+
+    @Test
+    fun putIfAbsent_keepsExistingValue() {
+        // Given a mapping
+        map.put(1L, 1)
+
+        // When putting a value for the same key if absent
+        val added = map.putIfAbsent(1L, 2)
+
+        // Then the existing value is kept
+        assertFalse(added)
+        assertEquals(1, map.get(1L, -1))
+    }
+
+    @Test
+    fun remove_keepsOtherKeysReachable() {
+        // Given many keys, some of them colliding
+        (0L until 64L).forEach { map.put(it shl 40, it.toInt()) }
+
+        // When removing every other key
+        (0L until 64L step 2).forEach { assertTrue(map.remove(it shl 40)) }
+
+        // Then the removed keys are gone and the others are still there
+        (0L until 64L).forEach {
+            assertEquals(if (it % 2 == 0L) -1 else it.toInt(), map.get(it shl 40, -1))
+        }
+        assertEquals(32, map.size)
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import com.bumptech.glide.load.resource.gif.GifDrawable
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.verify
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Tests for [AnimatedImages].
+ */
+class AnimatedImagesTest {
+
+    private val animatedImages = AnimatedImages(budgetBytes = 3000, maxPlaying = 2)
+
+    // a 10x10 GIF costs its size and two 400 bytes frames
+    private fun gif(size: Int = 0): GifDrawable = mock {
+        on { this.size } doReturn size
+        on { intrinsicWidth } doReturn 10
+        on { intrinsicHeight } doReturn 10
+    }
+
+    @Test
+    fun start_withinBudget_startsGif() {
+        // Given a GIF fitting in the budget
+        val gif = gif()
+
+        // When starting it
+        val started = animatedImages.start(gif)
+
+        // Then it plays
+        assertTrue(started)
+        verify(gif).start()
+        assertEquals(1, animatedImages.playingCount)
+    }
+
+    @Test
+    fun start_largerThanBudget_staysOnFirstFrame() {
+        // Given a GIF larger than the whole budget
+        val gif = gif(size = 2500)
+
+        // When starting it
+        val started = animatedImages.start(gif)
+
+        // Then it isn't played
+        assertFalse(started)
+        verify(gif, never()).start()
+        assertEquals(0, animatedImages.playingCount)
+    }
+
+    @Test
+    fun start_overMaxPlaying_stopsOldestGif() {
+        // Given as many GIFs playing as allowed
+        val first = gif()
+        val second = gif()
+        animatedImages.start(first)
+        animatedImages.start(second)
+
+        // When starting another one
+        val third = gif()
+        animatedImages.start(third)
+
+        // Then the one playing for the longest is stopped
+        verify(first).stop()
+        verify(second, never()).stop()
+        verify(third).start()
+        assertEquals(2, animatedImages.playingCount)
+    }
+
+    @Test
+    fun start_overBudget_stopsGifsUntilItFits() {
+        // Given a GIF using most of the budget
+        val large = gif(size = 1500)
+        animatedImages.start(large)
+
+        // When starting another one that doesn't fit next to it
+        val other = gif()
+        animatedImages.start(other)
+
+        // Then the first one is stopped to make room
+        verify(large).stop()
+        verify(other).start()
+        assertEquals(1, animatedImages.playingCount)
+    }
+
+    @Test
+    fun stop_releasesBudget() {
+        // Given a GIF using most of the budget
+        val large = gif(size = 1500)
+        animatedImages.start(large)
+
+        // When stopping it
+        animatedImages.stop(large)
+
+        // Then another one can play without stopping anything
+        animatedImages.start(gif(size = 1500))
+        verify(large).stop()
+        assertEquals(1, animatedImages.playingCount)
+    }
+}
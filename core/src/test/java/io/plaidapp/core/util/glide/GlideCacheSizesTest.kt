@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Tests for [GlideCacheSizes].
+ */
+class GlideCacheSizesTest {
+
+    // a 1080x1920 screen, in ARGB_8888
+    private val screenBytes = 1080 * 1920 * 4
+
+    @Test
+    fun forDevice_midTier_sizesCachesFromScreen() {
+        // When sizing the caches for a mid range device with hardware bitmaps
+        val sizes = GlideCacheSizes.forDevice(
+            memoryClassMegabytes = 192,
+            isLowRamDevice = false,
+            screenWidth = 1080,
+            screenHeight = 1920,
+            hardwareBitmaps = true
+        )
+
+        // Then the memory cache holds 2 screens of images
+        assertEquals(DeviceTier.MID, sizes.tier)
+        assertEquals(2 * screenBytes, sizes.memoryCacheBytes)
+        // And the bitmap pool, only used for software bitmaps, a single one
+        assertEquals(screenBytes, sizes.bitmapPoolBytes)
+        assertEquals(250L * 1024 * 1024, sizes.diskCacheBytes)
+    }
+
+    @Test
+    fun forDevice_highTier_keepsMoreImages() {
+        // When sizing the caches for a high end device without hardware bitmaps
+        val sizes = GlideCacheSizes.forDevice(
+            memoryClassMegabytes = 512,
+            isLowRamDevice = false,
+            screenWidth = 1080,
+            screenHeight = 1920,
+            hardwareBitmaps = false
+        )
+
+        // Then the caches are larger
+        assertEquals(DeviceTier.HIGH, sizes.tier)
+        assertEquals(3 * screenBytes, sizes.memoryCacheBytes)
+        assertEquals(4 * screenBytes, sizes.bitmapPoolBytes)
+        assertEquals(500L * 1024 * 1024, sizes.diskCacheBytes)
+    }
+
+    @Test
+    fun forDevice_lowRamDevice_isLowTier() {
+        // When sizing the caches for a low RAM device, even with a large memory class
+        val sizes = GlideCacheSizes.forDevice(
+            memoryClassMegabytes = 192,
+            isLowRamDevice = true,
+            screenWidth = 480,
+            screenHeight = 800,
+            hardwareBitmaps = false
+        )
+
+        // Then the caches are the smallest ones
+        assertEquals(DeviceTier.LOW, sizes.tier)
+        assertEquals(480 * 800 * 4, sizes.memoryCacheBytes)
+        assertEquals(2 * 480 * 800 * 4, sizes.bitmapPoolBytes)
+        assertEquals(100L * 1024 * 1024, sizes.diskCacheBytes)
+    }
+
+    @Test
+    fun forDevice_largeScreenSmallHeap_fitsCachesInHeap() {
+        // When sizing the caches for a large screen but a small heap
+        val sizes = GlideCacheSizes.forDevice(
+            memoryClassMegabytes = 96,
+            isLowRamDevice = false,
+            screenWidth = 1440,
+            screenHeight = 2560,
+            hardwareBitmaps = false
+        )
+
+        // Then both caches fit in a third of the heap
+        val maxBytes = 96 * 1024 * 1024 * 0.33
+        val total = sizes.memoryCacheBytes + sizes.bitmapPoolBytes
+        assertEquals(maxBytes, total.toDouble(), 16.0)
+        // And keep their proportions
+        assertEquals(2.0 * sizes.memoryCacheBytes, sizes.bitmapPoolBytes.toDouble(), 16.0)
+    }
+}
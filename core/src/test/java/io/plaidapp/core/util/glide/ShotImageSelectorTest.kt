@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.core.util.glide
+
+import io.plaidapp.core.dribbble.data.api.model.Images
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Tests for [ShotImageSelector].
+ */
+class ShotImageSelectorTest {
+
+    private val images = Images(hidpi = "hidpi", normal = "normal", teaser = "teaser")
+
+    private var bitsPerSecond: Long? = null
+    private val selector = ShotImageSelector { bitsPerSecond }
+
+    @Test
+    fun select_smallCell_selectsNormalImage() {
+        // When selecting an image for a cell narrower than the normal image
+        val image = selector.select(images, 360)
+
+        // Then the normal image is decoded at the size of the cell
+        assertEquals(ShotImage("normal", 360, 270), image)
+    }
+
+    @Test
+    fun select_largeCell_selectsHidpiImage() {
+        // When selecting an image for a cell wider than the normal image
+        val image = selector.select(images, 540)
+
+        // Then the hidpi image is decoded at the size of the cell
+        assertEquals(ShotImage("hidpi", 540, 405), image)
+    }
+
+    @Test
+    fun select_largeCell_slowNetwork_selectsNormalImage() {
+        // Given a slow network
+        bitsPerSecond = ShotImageSelector.SLOW_NETWORK_BITS_PER_SECOND / 2
+
+        // When selecting an image for a cell wider than the normal image
+        val image = selector.select(images, 540)
+
+        // Then the normal image is selected, at its own size
+        assertEquals(ShotImage("normal", 400, 300), image)
+    }
+
+    @Test
+    fun select_veryLargeCell_decodesAtImageSize() {
+        // When selecting an image for a cell wider than the hidpi image
+        val image = selector.select(images, 1200)
+
+        // Then the image isn't decoded larger than it is
+        assertEquals(ShotImage("hidpi", 800, 600), image)
+    }
+
+    @Test
+    fun select_onlyHidpi_selectsHidpiImage() {
+        // Given a slow network
+        bitsPerSecond = ShotImageSelector.SLOW_NETWORK_BITS_PER_SECOND / 2
+
+        // When selecting an image of a shot without normal image
+        val image = selector.select(Images(hidpi = "hidpi"), 360)
+
+        // Then the hidpi image is selected anyway
+        assertEquals(ShotImage("hidpi", 360, 270), image)
+    }
+
+    @Test
+    fun selected_returnsLastSelection() {
+        // Given images selected for two cell sizes
+        selector.select(images, 360)
+        val last = selector.select(images, 540)
+
+        // Then the last selection is kept
+        assertEquals(last, selector.selected(images))
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.data.database
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * These tests verify [CommentDao] Room database operations for [CachedComment]s.
+ */
+@RunWith(AndroidJUnit4::class)
+class CommentDaoTest {
+    private lateinit var database: DesignerNewsDatabase
+    private lateinit var commentDao: CommentDao
+
+    private val comment = CachedComment(
+        id = 1L,
+        parentId = null,
+        storyId = 2L,
+        userId = 3L,
+        body = "Plaid is awesome",
+        createdAt = 1000L,
+        depth = 0,
+        voteCount = 1,
+        replyIds = listOf(11L, 12L),
+        upvoteIds = listOf("4"),
+        fetchedAt = 2000L
+    )
+
+    @Before fun setup() {
+        val context = InstrumentationRegistry.getInstrumentation().context
+        database = Room.inMemoryDatabaseBuilder(context, DesignerNewsDatabase::class.java).build()
+        commentDao = database.commentDao()
+    }
+
+    @After fun tearDown() {
+        database.close()
+    }
+
+    @Test fun saveAndGetComments() = runBlocking {
+        // Given a comment that has been saved into the DB
+        commentDao.saveComments(listOf(comment), expiredBefore = 0L)
+
+        // When getting the comment via the DAO
+        val commentsFromDb = commentDao.getComments(listOf(comment.id))
+
+        // Then the retrieved comment matches the original one
+        assertEquals(listOf(comment), commentsFromDb)
+    }
+
+    @Test fun saveComments_removesExpiredComments() = runBlocking {
+        // Given a comment that has been saved into the DB
+        commentDao.saveComments(listOf(comment), expiredBefore = 0L)
+
+        // When saving another comment, after the first one expired
+        val newComment = comment.copy(id = 5L, fetchedAt = 5000L)
+        commentDao.saveComments(listOf(newComment), expiredBefore = 3000L)
+
+        // Then only the new comment is left
+        assertEquals(listOf(newComment), commentDao.getComments(listOf(comment.id, newComment.id)))
+    }
+}
@@ -21,11 +21,14 @@ import com.google.gson.Gson
 import dagger.Lazy
 import dagger.Module
 import dagger.Provides
+import io.plaidapp.core.dagger.DesignerNewsApi
 import io.plaidapp.core.dagger.scope.FeatureScope
 import io.plaidapp.core.data.api.DeEnvelopingConverter
 import io.plaidapp.designernews.data.api.DesignerNewsService
+import io.plaidapp.designernews.data.database.CommentDao
 import io.plaidapp.designernews.data.database.DesignerNewsDatabase
 import io.plaidapp.designernews.data.database.LoggedInUserDao
+import io.plaidapp.designernews.data.database.UserDao
 import okhttp3.OkHttpClient
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
@@ -39,7 +42,7 @@ class DataModule {
     @Provides
     @FeatureScope
     fun provideDesignerNewsService(
-        client: Lazy<OkHttpClient>,
+        @DesignerNewsApi client: Lazy<OkHttpClient>,
         gson: Gson
     ): DesignerNewsService {
         return Retrofit.Builder()
@@ -56,4 +59,16 @@ class DataModule {
     fun provideLoggedInUserDao(context: Context): LoggedInUserDao {
         return DesignerNewsDatabase.getInstance(context).loggedInUserDao()
     }
+
+    @Provides
+    @FeatureScope
+    fun provideCommentDao(context: Context): CommentDao {
+        return DesignerNewsDatabase.getInstance(context).commentDao()
+    }
+
+    @Provides
+    @FeatureScope
+    fun provideUserDao(context: Context): UserDao {
+        return DesignerNewsDatabase.getInstance(context).userDao()
+    }
 }
@@ -16,16 +16,23 @@
 
 package io.plaidapp.designernews.dagger
 
+import android.content.Context
 import androidx.lifecycle.ViewModelProviders
 import dagger.Module
 import dagger.Provides
 import io.plaidapp.core.dagger.scope.FeatureScope
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
 import io.plaidapp.designernews.data.api.DesignerNewsService
+import io.plaidapp.designernews.data.comments.CommentsLocalDataSource
 import io.plaidapp.designernews.data.comments.CommentsRemoteDataSource
 import io.plaidapp.designernews.data.comments.CommentsRepository
+import io.plaidapp.designernews.data.database.CommentDao
+import io.plaidapp.designernews.data.database.UserDao
+import io.plaidapp.designernews.data.users.SharedUsers
+import io.plaidapp.designernews.data.users.UserLocalDataSource
 import io.plaidapp.designernews.data.users.UserRemoteDataSource
 import io.plaidapp.designernews.data.users.UserRepository
+import io.plaidapp.designernews.domain.CreateCommentUiModelsUseCase
 import io.plaidapp.designernews.domain.GetCommentsWithRepliesAndUsersUseCase
 import io.plaidapp.designernews.domain.GetStoryUseCase
 import io.plaidapp.designernews.domain.PostReplyUseCase
@@ -42,6 +49,9 @@ import io.plaidapp.designernews.ui.story.StoryViewModelFactory
 @Module
 class StoryModule(private val storyId: Long, private val activity: StoryActivity) {
 
+    @Provides
+    fun provideContext(): Context = activity
+
     @Provides
     fun provideLoginViewModel(
         factory: DesignerNewsViewModelFactory
@@ -60,6 +70,7 @@ class StoryModule(private val storyId: Long, private val activity: StoryActivity
         postStoryCommentUseCase: PostStoryCommentUseCase,
         postReplyUseCase: PostReplyUseCase,
         commentsWithRepliesAndUsersUseCase: GetCommentsWithRepliesAndUsersUseCase,
+        createCommentUiModelsUseCase: CreateCommentUiModelsUseCase,
         coroutinesDispatcherProvider: CoroutinesDispatcherProvider
     ): StoryViewModelFactory =
         StoryViewModelFactory(
@@ -68,13 +79,20 @@ class StoryModule(private val storyId: Long, private val activity: StoryActivity
             postStoryCommentUseCase,
             postReplyUseCase,
             commentsWithRepliesAndUsersUseCase,
+            createCommentUiModelsUseCase,
             coroutinesDispatcherProvider
         )
 
     @Provides
     @FeatureScope
-    fun provideUserRepository(dataSource: UserRemoteDataSource): UserRepository =
-        UserRepository(dataSource)
+    fun provideUserRepository(
+        dataSource: UserRemoteDataSource,
+        localDataSource: UserLocalDataSource
+    ): UserRepository = UserRepository(dataSource, localDataSource, SharedUsers.getInstance())
+
+    @Provides
+    @FeatureScope
+    fun provideUserLocalDataSource(dao: UserDao): UserLocalDataSource = UserLocalDataSource(dao)
 
     @Provides
     @FeatureScope
@@ -83,6 +101,13 @@ class StoryModule(private val storyId: Long, private val activity: StoryActivity
 
     @Provides
     @FeatureScope
-    fun provideCommentsRepository(dataSource: CommentsRemoteDataSource): CommentsRepository =
-        CommentsRepository(dataSource)
+    fun provideCommentsLocalDataSource(dao: CommentDao): CommentsLocalDataSource =
+        CommentsLocalDataSource(dao)
+
+    @Provides
+    @FeatureScope
+    fun provideCommentsRepository(
+        remoteDataSource: CommentsRemoteDataSource,
+        localDataSource: CommentsLocalDataSource
+    ): CommentsRepository = CommentsRepository(remoteDataSource, localDataSource)
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.data.comments
+
+import io.plaidapp.designernews.data.comments.model.CommentResponse
+import io.plaidapp.designernews.data.database.CachedComment
+import io.plaidapp.designernews.data.database.CommentDao
+import io.plaidapp.designernews.data.database.toCachedComment
+import java.util.concurrent.TimeUnit
+
+/**
+ * Local storage for Designer News comments, implemented using Room.
+ */
+class CommentsLocalDataSource(private val dao: CommentDao) {
+
+    /**
+     * Get the stored comments with [ids], in no particular order.
+     */
+    suspend fun getComments(ids: List<Long>): List<CachedComment> {
+        // keep within the limit of variables of a SQLite query
+        return ids.chunked(MAX_IDS_PER_QUERY).flatMap { dao.getComments(it) }
+    }
+
+    /**
+     * Stores the comments fetched at [fetchedAt], removing the ones that weren't fetched again
+     * for [MAX_STORED_AGE].
+     */
+    suspend fun saveComments(comments: List<CommentResponse>, fetchedAt: Long) {
+        dao.saveComments(
+            comments.map { it.toCachedComment(fetchedAt) },
+            expiredBefore = fetchedAt - MAX_STORED_AGE
+        )
+    }
+
+    suspend fun deleteComment(id: Long) = dao.deleteComment(id)
+
+    companion object {
+        private const val MAX_IDS_PER_QUERY = 500
+        private val MAX_STORED_AGE = TimeUnit.DAYS.toMillis(7)
+    }
+}
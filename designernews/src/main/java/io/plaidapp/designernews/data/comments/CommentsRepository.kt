@@ -18,17 +18,64 @@ package io.plaidapp.designernews.data.comments
 
 import io.plaidapp.core.data.Result
 import io.plaidapp.designernews.data.comments.model.CommentResponse
+import io.plaidapp.designernews.data.database.toCommentResponse
+import java.util.concurrent.TimeUnit
 
 /**
  * Class that knows how to get and store Designer News comments.
+ *
+ * Comments are stored on disk as they are fetched, so that a story read again shows its comments
+ * straight away and only requests the ones that are new or that weren't fetched recently.
  */
-class CommentsRepository(private val remoteDataSource: CommentsRemoteDataSource) {
+class CommentsRepository(
+    private val remoteDataSource: CommentsRemoteDataSource,
+    private val localDataSource: CommentsLocalDataSource,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
 
     /**
-     * Get the list of [CommentResponse]s corresponding to [ids]
+     * Get the list of [CommentResponse]s corresponding to [ids]. Comments fetched less than
+     * [MAX_AGE] ago are reused and only the other ones are requested. If the request fails, the
+     * stored versions of the comments are used, if any.
      */
     suspend fun getComments(ids: List<Long>): Result<List<CommentResponse>> {
-        return remoteDataSource.getComments(ids)
+        val now = clock()
+        val stored = localDataSource.getComments(ids).associateBy { it.id }
+        val staleIds = ids.filter { id ->
+            val comment = stored[id]
+            comment == null || now - comment.fetchedAt > MAX_AGE
+        }
+
+        val fetched = if (staleIds.isNotEmpty()) {
+            val result = remoteDataSource.getComments(staleIds)
+            if (result is Result.Success) {
+                localDataSource.saveComments(result.data, now)
+                // nothing stored could be reused, keep the order of the response
+                if (staleIds.size == ids.size) return result
+                result.data.associateBy { it.id }
+            } else {
+                if (stored.isEmpty()) return result
+                emptyMap()
+            }
+        } else {
+            emptyMap()
+        }
+        return Result.Success(ids.mapNotNull { fetched[it] ?: stored[it]?.toCommentResponse() })
+    }
+
+    /**
+     * Get the stored comments with [ids] and all of their stored replies, regardless of when they
+     * were fetched, e.g. to display them while they are refreshed.
+     */
+    suspend fun getStoredCommentsWithReplies(ids: List<Long>): List<CommentResponse> {
+        val comments = mutableListOf<CommentResponse>()
+        var levelIds = ids
+        while (levelIds.isNotEmpty()) {
+            val level = localDataSource.getComments(levelIds).map { it.toCommentResponse() }
+            comments.addAll(level)
+            levelIds = level.flatMap { it.links.comments }
+        }
+        return comments
     }
 
     /**
@@ -55,11 +102,20 @@ class CommentsRepository(private val remoteDataSource: CommentsRemoteDataSource)
         parentCommentId: Long,
         userId: Long
     ): Result<CommentResponse> {
-        return remoteDataSource.comment(
+        val result = remoteDataSource.comment(
             commentBody = body,
             parentCommentId = parentCommentId,
             storyId = null,
             userId = userId
         )
+        if (result is Result.Success) {
+            // the stored parent doesn't link to the reply, so it needs to be fetched again
+            localDataSource.deleteComment(parentCommentId)
+        }
+        return result
+    }
+
+    companion object {
+        private val MAX_AGE = TimeUnit.MINUTES.toMillis(10)
     }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.data.database
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+import io.plaidapp.designernews.data.comments.model.CommentLinksResponse
+import io.plaidapp.designernews.data.comments.model.CommentResponse
+import java.util.Date
+
+fun CommentResponse.toCachedComment(fetchedAt: Long) = CachedComment(
+    id = id,
+    parentId = links.parentComment,
+    storyId = links.story,
+    userId = links.userId,
+    body = body,
+    createdAt = created_at.time,
+    depth = depth,
+    voteCount = vote_count,
+    replyIds = links.comments,
+    upvoteIds = links.commentUpvotes,
+    fetchedAt = fetchedAt
+)
+
+fun CachedComment.toCommentResponse() = CommentResponse(
+    id = id,
+    body = body,
+    created_at = Date(createdAt),
+    depth = depth,
+    vote_count = voteCount,
+    links = CommentLinksResponse(
+        userId = userId,
+        story = storyId,
+        parentComment = parentId,
+        comments = replyIds,
+        commentUpvotes = upvoteIds
+    )
+)
+
+/**
+ * A Designer News comment, as stored on disk. The comment links to its replies by their ids, so
+ * that the tree of a story can be restored level by level.
+ */
+@Entity(tableName = "comments")
+data class CachedComment(
+    @PrimaryKey
+    @ColumnInfo(name = "id")
+    val id: Long,
+
+    @ColumnInfo(name = "parent_id")
+    val parentId: Long?,
+
+    @ColumnInfo(name = "story_id")
+    val storyId: Long,
+
+    @ColumnInfo(name = "user_id")
+    val userId: Long,
+
+    @ColumnInfo(name = "body")
+    val body: String,
+
+    @ColumnInfo(name = "created_at")
+    val createdAt: Long,
+
+    @ColumnInfo(name = "depth")
+    val depth: Int,
+
+    @ColumnInfo(name = "vote_count")
+    val voteCount: Int,
+
+    @ColumnInfo(name = "reply_ids")
+    val replyIds: List<Long>,
+
+    @ColumnInfo(name = "upvote_ids")
+    val upvoteIds: List<String>,
+
+    @ColumnInfo(name = "fetched_at")
+    val fetchedAt: Long
+)
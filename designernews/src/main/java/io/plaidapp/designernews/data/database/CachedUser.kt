@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.data.database
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+import io.plaidapp.core.designernews.data.users.model.User
+
+fun User.toCachedUser(fetchedAt: Long) = CachedUser(
+    id = id,
+    firstName = firstName,
+    lastName = lastName,
+    displayName = displayName,
+    portraitUrl = portraitUrl,
+    fetchedAt = fetchedAt
+)
+
+fun CachedUser.toUser() = User(
+    id = id,
+    firstName = firstName,
+    lastName = lastName,
+    displayName = displayName,
+    portraitUrl = portraitUrl
+)
+
+/**
+ * A Designer News user that posted a comment, as stored on disk.
+ */
+@Entity(tableName = "users")
+data class CachedUser(
+    @PrimaryKey
+    @ColumnInfo(name = "id")
+    val id: Long,
+
+    @ColumnInfo(name = "first_name")
+    val firstName: String,
+
+    @ColumnInfo(name = "last_name")
+    val lastName: String,
+
+    @ColumnInfo(name = "display_name")
+    val displayName: String,
+
+    @ColumnInfo(name = "portrait_url")
+    val portraitUrl: String?,
+
+    @ColumnInfo(name = "fetched_at")
+    val fetchedAt: Long
+)
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.data.database
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+
+/**
+ * This Data Access Object handles Room database operations for the [CachedComment] class.
+ */
+@Dao
+abstract class CommentDao {
+
+    @Query("SELECT * FROM comments WHERE id IN (:ids)")
+    abstract suspend fun getComments(ids: List<Long>): List<CachedComment>
+
+    /**
+     * Stores the comments, replacing the previous versions of the same comments, and removes the
+     * ones fetched before [expiredBefore], so that comments of stories that aren't read anymore
+     * don't pile up.
+     */
+    @Transaction
+    open suspend fun saveComments(comments: List<CachedComment>, expiredBefore: Long) {
+        insertComments(comments)
+        deleteCommentsFetchedBefore(expiredBefore)
+    }
+
+    /**
+     * This method should not be used. Instead, use [saveComments], as that method makes sure
+     * expired comments are removed.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract suspend fun insertComments(comments: List<CachedComment>)
+
+    @Query("DELETE FROM comments WHERE id = :id")
+    abstract suspend fun deleteComment(id: Long)
+
+    @Query("DELETE FROM comments WHERE fetched_at < :time")
+    abstract suspend fun deleteCommentsFetchedBefore(time: Long)
+}
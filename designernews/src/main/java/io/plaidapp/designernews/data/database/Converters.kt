@@ -35,6 +35,18 @@ class Converters {
         return longList.joinToString(CSV_DELIMITER)
     }
 
+    @TypeConverter fun csvToStringList(csvString: String): List<String> {
+        return if (csvString.isEmpty()) {
+            emptyList()
+        } else {
+            csvString.split(CSV_DELIMITER)
+        }
+    }
+
+    @TypeConverter fun stringListToCsv(stringList: List<String>): String {
+        return stringList.joinToString(CSV_DELIMITER)
+    }
+
     companion object {
         private const val CSV_DELIMITER = ","
     }
@@ -20,18 +20,28 @@ import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
 import android.content.Context
 import io.plaidapp.core.designernews.data.login.model.LoggedInUser
 
 /**
  * The Room database for this app
  */
-@Database(entities = [LoggedInUser::class], version = 1, exportSchema = false)
+@Database(
+    entities = [LoggedInUser::class, CachedComment::class, CachedUser::class],
+    version = 2,
+    exportSchema = false
+)
 @TypeConverters(Converters::class)
 abstract class DesignerNewsDatabase : RoomDatabase() {
 
     abstract fun loggedInUserDao(): LoggedInUserDao
 
+    abstract fun commentDao(): CommentDao
+
+    abstract fun userDao(): UserDao
+
     companion object {
 
         private const val DATABASE_NAME = "plaid-db"
@@ -47,9 +57,32 @@ abstract class DesignerNewsDatabase : RoomDatabase() {
 
         private fun buildDatabase(context: Context): DesignerNewsDatabase {
             return Room.databaseBuilder(
-                context, DesignerNewsDatabase::class.java,
+                context.applicationContext, DesignerNewsDatabase::class.java,
                 DATABASE_NAME
-            ).build()
+            ).addMigrations(MIGRATION_1_2).build()
+        }
+
+        /**
+         * Adds the comments and users tables, keeping the logged in user.
+         */
+        internal val MIGRATION_1_2 = object : Migration(1, 2) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `comments` (`id` INTEGER NOT NULL, " +
+                        "`parent_id` INTEGER, `story_id` INTEGER NOT NULL, " +
+                        "`user_id` INTEGER NOT NULL, `body` TEXT NOT NULL, " +
+                        "`created_at` INTEGER NOT NULL, `depth` INTEGER NOT NULL, " +
+                        "`vote_count` INTEGER NOT NULL, `reply_ids` TEXT NOT NULL, " +
+                        "`upvote_ids` TEXT NOT NULL, `fetched_at` INTEGER NOT NULL, " +
+                        "PRIMARY KEY(`id`))"
+                )
+                database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `users` (`id` INTEGER NOT NULL, " +
+                        "`first_name` TEXT NOT NULL, `last_name` TEXT NOT NULL, " +
+                        "`display_name` TEXT NOT NULL, `portrait_url` TEXT, " +
+                        "`fetched_at` INTEGER NOT NULL, PRIMARY KEY(`id`))"
+                )
+            }
         }
     }
 }
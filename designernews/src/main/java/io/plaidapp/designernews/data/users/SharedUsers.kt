@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.data.users
+
+import io.plaidapp.core.data.BatchLoader
+import io.plaidapp.core.data.cache.MemoryCache
+import io.plaidapp.core.designernews.data.users.model.User
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import java.util.concurrent.TimeUnit
+
+/**
+ * Users shared by the [UserRepository]s of the process, so that story screens open at the same
+ * time share the cached users and the requests in flight. Doesn't hold on to any data source:
+ * every batch of users is requested by the repository that started it.
+ */
+class SharedUsers(
+    scope: CoroutineScope,
+    batchWindowMillis: Long = BatchLoader.DEFAULT_BATCH_WINDOW_MILLIS
+) {
+
+    val cache = MemoryCache<Long, User>(MAX_CACHED_USERS, CACHE_TIME_TO_LIVE)
+
+    val loader = BatchLoader<Long, User>(scope, MAX_IDS_PER_REQUEST, batchWindowMillis)
+
+    companion object {
+        private const val MAX_CACHED_USERS = 1000
+        private val CACHE_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1)
+        // keeps the request URL short
+        const val MAX_IDS_PER_REQUEST = 50
+
+        @Volatile
+        private var INSTANCE: SharedUsers? = null
+
+        fun getInstance(): SharedUsers {
+            return INSTANCE ?: synchronized(this) {
+                INSTANCE ?: SharedUsers(CoroutineScope(Dispatchers.IO + SupervisorJob()))
+                    .also { INSTANCE = it }
+            }
+        }
+    }
+}
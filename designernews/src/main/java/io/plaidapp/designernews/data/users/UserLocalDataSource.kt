@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.data.users
+
+import io.plaidapp.core.designernews.data.users.model.User
+import io.plaidapp.designernews.data.database.CachedUser
+import io.plaidapp.designernews.data.database.UserDao
+import io.plaidapp.designernews.data.database.toCachedUser
+
+/**
+ * Local storage for the Designer News users that posted comments, implemented using Room.
+ */
+class UserLocalDataSource(private val dao: UserDao) {
+
+    /**
+     * Get the stored users with [ids], in no particular order.
+     */
+    suspend fun getUsers(ids: List<Long>): List<CachedUser> {
+        // keep within the limit of variables of a SQLite query
+        return ids.chunked(MAX_IDS_PER_QUERY).flatMap { dao.getUsers(it) }
+    }
+
+    suspend fun saveUsers(users: List<User>, fetchedAt: Long) {
+        dao.insertUsers(users.map { it.toCachedUser(fetchedAt) })
+    }
+
+    companion object {
+        private const val MAX_IDS_PER_QUERY = 500
+    }
+}
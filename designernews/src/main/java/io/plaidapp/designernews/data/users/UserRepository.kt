@@ -18,36 +18,80 @@ package io.plaidapp.designernews.data.users
 
 import io.plaidapp.core.data.Result
 import io.plaidapp.core.designernews.data.users.model.User
+import io.plaidapp.designernews.data.database.toUser
 import java.io.IOException
+import java.util.concurrent.TimeUnit
 
 /**
- * Class that requests users from the remote data source and caches them, in memory.
+ * Class that requests users from the remote data source and caches them, in memory and on disk.
+ *
+ * Users asked for at about the same time, e.g. by every level of comments of a story, or by two
+ * stories, are requested together: ids are deduplicated against the cached users and the ones
+ * being requested, and the rest is requested in chunks that keep the URL short. The cached users
+ * and the requests in flight are shared with the other repositories through [sharedUsers].
  */
-class UserRepository(private val dataSource: UserRemoteDataSource) {
+class UserRepository(
+    private val dataSource: UserRemoteDataSource,
+    private val localDataSource: UserLocalDataSource,
+    private val sharedUsers: SharedUsers = SharedUsers.getInstance(),
+    private val clock: () -> Long = System::currentTimeMillis
+) {
 
-    private val cachedUsers = mutableMapOf<Long, User>()
+    private val cachedUsers = sharedUsers.cache
 
     suspend fun getUsers(ids: Set<Long>): Result<Set<User>> {
         // find the ids in the cached users first and only request the ones that we don't have yet
-        val notCachedUsers = ids.filterNot { cachedUsers.containsKey(it) }
+        val users = mutableSetOf<User>()
+        val notCachedUsers = mutableListOf<Long>()
+        ids.forEach { id ->
+            val user = cachedUsers[id]
+            if (user != null) users.add(user) else notCachedUsers.add(id)
+        }
         if (notCachedUsers.isNotEmpty()) {
-            getAndCacheUsers(notCachedUsers)
+            val loaded = sharedUsers.loader.load(notCachedUsers) { batch ->
+                getStoredOrFetchUsers(batch).associateBy(User::id)
+            }
+            users.addAll(loaded.values)
         }
 
-        // compute the list of users requested
-        val users = ids.mapNotNull { cachedUsers[it] }.toSet()
         if (users.isNotEmpty()) {
             return Result.Success(users)
         }
         return Result.Error(IOException("Unable to get users"))
     }
 
-    private suspend fun getAndCacheUsers(userIds: List<Long>) {
+    /**
+     * Get the users stored on disk, if they were fetched recently enough, and request the other
+     * ones. If the request fails, the stored versions of the users are used, if any.
+     */
+    private suspend fun getStoredOrFetchUsers(userIds: List<Long>): List<User> {
+        val now = clock()
+        val stored = localDataSource.getUsers(userIds).associateBy { it.id }
+        val staleIds = userIds.filter { id ->
+            val user = stored[id]
+            user == null || now - user.fetchedAt > STORED_USER_MAX_AGE
+        }
+        val fetched = if (staleIds.isNotEmpty()) getAndCacheUsers(staleIds, now) else emptyList()
+
+        val fetchedIds = fetched.mapTo(mutableSetOf()) { it.id }
+        val users = stored.values.filter { it.id !in fetchedIds }.map { it.toUser() }
+        users.forEach { cachedUsers[it.id] = it }
+        return users + fetched
+    }
+
+    private suspend fun getAndCacheUsers(userIds: List<Long>, now: Long): List<User> {
         val result = dataSource.getUsers(userIds)
 
-        // save the new users in the cachedUsers
+        // save the new users in the cachedUsers and on disk
         if (result is Result.Success) {
             result.data.forEach { cachedUsers[it.id] = it }
+            localDataSource.saveUsers(result.data, now)
+            return result.data
         }
+        return emptyList()
+    }
+
+    companion object {
+        private val STORED_USER_MAX_AGE = TimeUnit.DAYS.toMillis(1)
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.domain
+
+import io.plaidapp.core.data.CoroutinesDispatcherProvider
+import io.plaidapp.core.data.cache.MemoryCache
+import io.plaidapp.core.designernews.domain.model.Comment
+import io.plaidapp.core.util.CommentMarkdownRenderer
+import io.plaidapp.designernews.ui.story.CommentImage
+import io.plaidapp.designernews.ui.story.CommentStyler
+import io.plaidapp.designernews.ui.story.CommentUiModel
+import kotlinx.coroutines.withContext
+import javax.inject.Inject
+
+/**
+ * Creates the [CommentUiModel]s of a story's comments, rendering their markdown bodies off the
+ * main thread so that binding a comment only needs to set its text.
+ *
+ * Rendered bodies are kept in a bounded cache keyed by comment id and body hash, so that
+ * reloading the comments of a story only renders the new or edited ones.
+ */
+class CreateCommentUiModelsUseCase @Inject constructor(
+    private val markdownRenderer: CommentMarkdownRenderer,
+    private val styler: CommentStyler,
+    private val dispatcherProvider: CoroutinesDispatcherProvider
+) {
+
+    private val renderedBodies = MemoryCache<BodyKey, RenderedBody>(MAX_CACHED_BODIES)
+
+    suspend operator fun invoke(
+        comments: List<Comment>,
+        originalPosterId: Long
+    ): List<CommentUiModel> = withContext(dispatcherProvider.computation) {
+        val now = System.currentTimeMillis()
+        return@withContext comments.map { createUiModel(it, originalPosterId, now) }
+    }
+
+    /**
+     * Creates the [CommentUiModel] of a single comment, e.g. one posted by the user.
+     */
+    fun createUiModel(
+        comment: Comment,
+        originalPosterId: Long,
+        now: Long = System.currentTimeMillis()
+    ): CommentUiModel {
+        val body = render(comment)
+        return CommentUiModel(
+            id = comment.id,
+            body = body.text,
+            images = body.images,
+            timeSinceCommentCreation = styler.timeSince(comment.createdAt.time, now),
+            depth = comment.depth,
+            author = comment.userDisplayName?.toLowerCase().orEmpty(),
+            isOriginalPoster = comment.userId == originalPosterId,
+            upvotesCount = comment.upvotesCount,
+            upvoted = comment.upvoted
+        )
+    }
+
+    private fun render(comment: Comment): RenderedBody {
+        val key = BodyKey(comment.id, comment.body.hashCode())
+        val cached = renderedBodies[key]
+        // the hash can collide, so make sure it's the same body
+        if (cached != null && cached.source == comment.body) return cached
+
+        val images = mutableListOf<CommentImage>()
+        val text = markdownRenderer.render(
+            comment.body,
+            styler.linkColors,
+            styler.highlightColor
+        ) { src, loadingSpan -> images.add(CommentImage(src, loadingSpan)) }
+        return RenderedBody(comment.body, text, images).also { renderedBodies[key] = it }
+    }
+
+    private data class BodyKey(val commentId: Long, val bodyHash: Int)
+
+    private class RenderedBody(
+        val source: String,
+        val text: CharSequence,
+        val images: List<CommentImage>
+    )
+
+    companion object {
+        private const val MAX_CACHED_BODIES = 500
+    }
+}
@@ -21,37 +21,99 @@ import io.plaidapp.core.designernews.data.users.model.User
 import io.plaidapp.core.designernews.domain.model.Comment
 import io.plaidapp.core.designernews.domain.model.CommentWithReplies
 import io.plaidapp.core.designernews.domain.model.toComment
+import io.plaidapp.designernews.data.comments.model.CommentResponse
+import io.plaidapp.designernews.data.comments.model.toCommentsWithReplies
 import io.plaidapp.designernews.data.users.UserRepository
+import kotlinx.coroutines.async
+import kotlinx.coroutines.cancelChildren
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.SendChannel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.launch
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
 import javax.inject.Inject
 
 /**
- * Use case that builds [Comment]s based on comments with replies and users
+ * Use case that builds [Comment]s based on comments with replies and users.
+ *
+ * Comments are emitted as they load: the first level of comments comes first, then the replies
+ * and the names of their authors fill in as they are retrieved. The last emission holds the
+ * entire tree.
  */
 class GetCommentsWithRepliesAndUsersUseCase @Inject constructor(
     private val getCommentsWithReplies: GetCommentsWithRepliesUseCase,
     private val userRepository: UserRepository
 ) {
-    suspend operator fun invoke(ids: List<Long>): Result<List<Comment>> {
-        // Get the comments with replies
-        val commentsWithRepliesResult = getCommentsWithReplies(ids)
+    operator fun invoke(ids: List<Long>): Flow<Result<List<Comment>>> = flow {
+        coroutineScope {
+            val loadedComments = ConcurrentHashMap<Long, CommentResponse>()
+            val loadedUsers = ConcurrentHashMap<Long, User>()
+            // conflated, so that partial trees are only built as often as they can be emitted
+            val changes = Channel<Unit>(Channel.CONFLATED)
+            val result = async {
+                val comments = getComments(ids, loadedComments, loadedUsers, changes)
+                changes.close()
+                comments
+            }
+            for (change in changes) {
+                emit(Result.Success(createComments(ids, loadedComments, loadedUsers)))
+            }
+            emit(result.await())
+        }
+    }
+
+    /**
+     * Get the comments with replies and their users, adding them to [comments] and [users] and
+     * notifying [changes] as they are retrieved.
+     */
+    private suspend fun getComments(
+        ids: List<Long>,
+        comments: MutableMap<Long, CommentResponse>,
+        users: MutableMap<Long, User>,
+        changes: SendChannel<Unit>
+    ): Result<List<Comment>> {
+        // returns once all the users are retrieved as well
+        val commentsWithRepliesResult = coroutineScope {
+            val requestedUserIds = Collections.newSetFromMap(ConcurrentHashMap<Long, Boolean>())
+            val requestUsers = { userIds: Iterable<Long> ->
+                val newUserIds = userIds.filterTo(mutableSetOf()) { requestedUserIds.add(it) }
+                if (newUserIds.isNotEmpty()) {
+                    launch {
+                        val usersResult = userRepository.getUsers(newUserIds)
+                        if (usersResult is Result.Success) {
+                            usersResult.data.forEach { users[it.id] = it }
+                            changes.offer(Unit)
+                        }
+                    }
+                }
+            }
+
+            // Get the comments with replies, requesting the users that posted them while the
+            // replies are still loading
+            val result = getCommentsWithReplies(ids) { loaded ->
+                loaded.forEach { comments[it.id] = it }
+                changes.offer(Unit)
+                requestUsers(loaded.map { it.links.userId })
+            }
+            if (result is Result.Success) {
+                // request the users of the comments we haven't been notified about, if any
+                val userIds = mutableSetOf<Long>()
+                createUserIds(result.data, userIds)
+                requestUsers(userIds)
+            } else {
+                coroutineContext.cancelChildren()
+            }
+            result
+        }
         if (commentsWithRepliesResult is Result.Error) {
             return commentsWithRepliesResult
         }
         val commentsWithReplies = (commentsWithRepliesResult as? Result.Success)?.data.orEmpty()
-        // get the ids of the users that posted comments
-        val userIds = mutableSetOf<Long>()
-        createUserIds(commentsWithReplies, userIds)
-
-        // get the users
-        val usersResult = userRepository.getUsers(userIds)
-        val users = if (usersResult is Result.Success) {
-            usersResult.data
-        } else {
-            emptySet()
-        }
         // create the comments based on the comments with replies and users
-        val comments = createComments(commentsWithReplies, users)
-        return Result.Success(comments)
+        return Result.Success(createComments(commentsWithReplies, users))
     }
 
     private fun createUserIds(comments: List<CommentWithReplies>, userIds: MutableSet<Long>) {
@@ -63,12 +125,30 @@ class GetCommentsWithRepliesAndUsersUseCase @Inject constructor(
 
     private fun createComments(
         commentsWithReplies: List<CommentWithReplies>,
-        users: Set<User>
+        users: Map<Long, User>
     ): List<Comment> {
-        val userMapping = users.associateBy(User::id)
         return commentsWithReplies.asSequence()
                 .flatMap(CommentWithReplies::flattenWithReplies)
-                .map { it.toComment(userMapping[it.userId]) }
+                .map { it.toComment(users[it.userId]) }
                 .toList()
     }
+
+    /**
+     * Create the comments of a partially loaded tree, leaving out the comments that are not
+     * loaded yet, together with their replies.
+     */
+    private fun createComments(
+        ids: List<Long>,
+        comments: Map<Long, CommentResponse>,
+        users: Map<Long, User>,
+        into: MutableList<Comment> = mutableListOf()
+    ): List<Comment> {
+        ids.forEach { id ->
+            val comment = comments[id] ?: return@forEach
+            val user = users[comment.links.userId]
+            into.add(comment.toCommentsWithReplies(emptyList()).toComment(user))
+            createComments(comment.links.comments, comments, users, into)
+        }
+        return into
+    }
 }
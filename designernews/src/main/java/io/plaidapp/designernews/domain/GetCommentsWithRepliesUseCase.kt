@@ -21,61 +21,91 @@ import io.plaidapp.designernews.data.comments.CommentsRepository
 import io.plaidapp.designernews.data.comments.model.CommentResponse
 import io.plaidapp.designernews.data.comments.model.toCommentsWithReplies
 import io.plaidapp.core.designernews.domain.model.CommentWithReplies
-import java.io.IOException
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
 import javax.inject.Inject
 
 /**
  * Use case that constructs the entire comments and replies tree for a list of comments. Works
  * with the [CommentsRepository] to get the data.
+ *
+ * Ids are requested in chunks of at most [MAX_IDS_PER_REQUEST], with at most
+ * [MAX_CONCURRENT_REQUESTS] requests in flight. The replies of a chunk are requested as soon as
+ * the chunk is loaded, without waiting for the rest of its level, so loading a thread takes about
+ * as long as its deepest branch rather than the sum of all of its levels.
  */
 class GetCommentsWithRepliesUseCase @Inject constructor(
     private val commentsRepository: CommentsRepository
 ) {
 
     /**
-     * Get all comments and their replies. If we get an error on any reply depth level, ignore it
+     * Get all comments and their replies. If we get an error for a chunk of replies, ignore it
      * and just use the comments retrieved until that point.
+     *
+     * [onCommentsLoaded] is called with the comments already stored, then with every chunk of
+     * comments as soon as it's loaded, so that the data they depend on, like their authors, can
+     * be requested while the replies are still loading. It can be called concurrently.
      */
-    suspend operator fun invoke(parentIds: List<Long>): Result<List<CommentWithReplies>> {
-        val replies = mutableListOf<List<CommentResponse>>()
-        // get the first level of comments
-        var parentComments = commentsRepository.getComments(parentIds)
-        // as long as we could get comments or replies to comments
-        while (parentComments is Result.Success) {
-            val parents = parentComments.data
-            // add the replies
-            replies.add(parents)
-            // check if we have another level of replies
-            val replyIds = parents.flatMap { comment -> comment.links.comments }
-            if (!replyIds.isEmpty()) {
-                parentComments = commentsRepository.getComments(replyIds)
-            } else {
-                // we don't have any other level of replies match the replies to the comments
-                // they belong to and return the first level of comments.
-                if (replies.isNotEmpty()) {
-                    return Result.Success(matchComments(replies))
-                }
-            }
+    suspend operator fun invoke(
+        parentIds: List<Long>,
+        onCommentsLoaded: (List<CommentResponse>) -> Unit = {}
+    ): Result<List<CommentWithReplies>> = coroutineScope {
+        // the comments stored from a previous visit can be displayed while they're refreshed
+        val storedComments = commentsRepository.getStoredCommentsWithReplies(parentIds)
+        if (storedComments.isNotEmpty()) {
+            onCommentsLoaded(storedComments)
         }
-        // the last request was unsuccessful
-        // if we already got some comments and replies, then use that data and ignore the error
-        return when {
-            replies.isNotEmpty() -> Result.Success(matchComments(replies))
-            parentComments is Result.Error -> parentComments
-            else -> Result.Error(IOException("Unable to get comments"))
+
+        val requests = Semaphore(MAX_CONCURRENT_REQUESTS)
+        val results = parentIds.chunked(MAX_IDS_PER_REQUEST)
+            .map { ids -> async { getCommentsWithReplies(ids, requests, onCommentsLoaded) } }
+            .awaitAll()
+        val comments = results.filterIsInstance<Result.Success<List<CommentWithReplies>>>()
+        // only fail if none of the first level comments could be retrieved
+        if (comments.isNotEmpty() || results.isEmpty()) {
+            Result.Success(comments.flatMap { it.data })
+        } else {
+            results.first()
         }
     }
 
     /**
-     * Build up the replies tree, by matching the replies from lower levels to the level above they
-     * belong to
+     * Get a chunk of comments and, once they are known, all of their replies.
      */
-    private fun matchComments(comments: List<List<CommentResponse>>): List<CommentWithReplies> {
-        var commentsWithReplies = emptyList<CommentWithReplies>()
-        for (index in comments.size - 1 downTo 0) {
-            commentsWithReplies = matchCommentsWithReplies(comments[index], commentsWithReplies)
+    private suspend fun getCommentsWithReplies(
+        ids: List<Long>,
+        requests: Semaphore,
+        onCommentsLoaded: (List<CommentResponse>) -> Unit
+    ): Result<List<CommentWithReplies>> {
+        // only hold the permit for the request, not while waiting for the replies
+        val result = requests.withPermit { commentsRepository.getComments(ids) }
+        if (result is Result.Error) {
+            return result
         }
-        return commentsWithReplies
+        val comments = (result as Result.Success).data
+        onCommentsLoaded(comments)
+
+        val replyIds = comments.flatMap { comment -> comment.links.comments }
+        val replies = getReplies(replyIds, requests, onCommentsLoaded)
+        return Result.Success(matchCommentsWithReplies(comments, replies))
+    }
+
+    /**
+     * Get the replies with [ids] and their own replies, leaving out the chunks that couldn't be
+     * retrieved.
+     */
+    private suspend fun getReplies(
+        ids: List<Long>,
+        requests: Semaphore,
+        onCommentsLoaded: (List<CommentResponse>) -> Unit
+    ): List<CommentWithReplies> = coroutineScope {
+        ids.chunked(MAX_IDS_PER_REQUEST)
+            .map { chunk -> async { getCommentsWithReplies(chunk, requests, onCommentsLoaded) } }
+            .awaitAll()
+            .flatMap { (it as? Result.Success)?.data.orEmpty() }
     }
 
     private fun matchCommentsWithReplies(
@@ -90,4 +120,10 @@ class GetCommentsWithRepliesUseCase @Inject constructor(
             it.toCommentsWithReplies(commentReplies)
         }
     }
+
+    companion object {
+        // keeps the request URL short, even for the most popular stories
+        const val MAX_IDS_PER_REQUEST = 20
+        const val MAX_CONCURRENT_REQUESTS = 4
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.ui.story
+
+import android.content.Context
+import android.text.format.DateUtils
+import androidx.annotation.ColorInt
+import androidx.core.content.ContextCompat
+import io.plaidapp.designernews.R
+import javax.inject.Inject
+import io.plaidapp.R as appR
+
+/**
+ * Decorator for a [CommentUiModel]
+ *  - linkColors and highlightColor will define the colors used in the comment body
+ *  - timeSince formats the time since the comment was created
+ */
+class CommentStyler @Inject constructor(context: Context) {
+
+    val linkColors = ContextCompat.getColorStateList(context, R.color.designer_news_links)!!
+
+    @ColorInt
+    val highlightColor = ContextCompat.getColor(context, appR.color.designer_news_link_highlight)
+
+    fun timeSince(time: Long, now: Long) = DateUtils.getRelativeTimeSpanString(
+        time,
+        now,
+        DateUtils.SECOND_IN_MILLIS
+    ).toString().toLowerCase()
+}
@@ -16,13 +16,27 @@
 
 package io.plaidapp.designernews.ui.story
 
+import `in`.uncod.android.bypass.style.ImageLoadingSpan
+
 /**
- * Comment model for the UI
+ * Comment model for the UI, with its body already rendered.
  */
 data class CommentUiModel(
+    val id: Long,
     val body: CharSequence,
+    val images: List<CommentImage>,
     val timeSinceCommentCreation: String,
     val depth: Int,
     val author: String?,
-    val isOriginalPoster: Boolean
+    val isOriginalPoster: Boolean,
+    val upvotesCount: Int,
+    val upvoted: Boolean
+)
+
+/**
+ * Image referenced by a comment body, to be loaded into the [loadingSpan] marking its place.
+ */
+data class CommentImage(
+    val src: String,
+    val loadingSpan: ImageLoadingSpan
 )
@@ -53,7 +53,9 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.app.ActivityOptionsCompat;
 import androidx.core.app.ShareCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
@@ -226,10 +228,10 @@ public class StoryActivity extends AppCompatActivity {
         customTab.setConnectionCallback(customTabConnect);
     }
 
-    private void setupComments(List<Comment> comments) {
+    private void setupComments(List<CommentUiModel> comments) {
+        // comments are updated as they load, so keep the adapter and its scroll position
         if (comments.size() > 0) {
             commentsAdapter.updateList(comments);
-            commentsList.setAdapter(commentsAdapter);
         }
     }
 
@@ -583,7 +585,7 @@ public class StoryActivity extends AppCompatActivity {
         enterComment.getText().clear();
         enterComment.setEnabled(true);
         postComment.setEnabled(true);
-        commentsAdapter.addComment(comment);
+        commentsAdapter.addComment(viewModel.createCommentUiModel(comment));
     }
 
     private void needsLogin(View triggeringView, int requestCode) {
@@ -609,10 +611,6 @@ public class StoryActivity extends AppCompatActivity {
         }
     };
 
-    private boolean isOP(Long userId) {
-        return userId.equals(story.getUserId());
-    }
-
     /* package */ class DesignerNewsCommentsAdapter
             extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
@@ -623,22 +621,89 @@ public class StoryActivity extends AppCompatActivity {
         private static final int TYPE_FOOTER = 4;
 
         private View header;
-        private List<Comment> comments;
+        private List<CommentUiModel> comments;
         private View footer;
         private int expandedCommentPosition = RecyclerView.NO_POSITION;
         private boolean replyToCommentFocused = false;
 
         DesignerNewsCommentsAdapter(@NonNull View header,
-                                    @NonNull List<Comment> comments,
+                                    @NonNull List<CommentUiModel> comments,
                                     @NonNull View footer) {
             this.header = header;
             this.comments = comments;
             this.footer = footer;
         }
 
-        public void updateList(List<Comment> comments) {
-            this.comments = comments;
-            notifyDataSetChanged();
+        /**
+         * Replace the comments, only notifying the ones added, removed or changed since the last
+         * update, e.g. replies that finished loading or authors that became known.
+         */
+        public void updateList(List<CommentUiModel> newComments) {
+            final List<CommentUiModel> oldComments = comments;
+            comments = new ArrayList<>(newComments);
+            if (oldComments.isEmpty()) {
+                notifyDataSetChanged();
+                return;
+            }
+            if (isCommentReplyExpanded()) {
+                // keep the reply field below the same comment, wherever it moved
+                final long expandedCommentId = oldComments.get(
+                        adapterPositionToCommentIndex(expandedCommentPosition)).getId();
+                expandedCommentPosition = RecyclerView.NO_POSITION;
+                for (int i = 0; i < comments.size(); i++) {
+                    if (comments.get(i).getId() == expandedCommentId) {
+                        expandedCommentPosition = commentIndexToAdapterPosition(i);
+                        break;
+                    }
+                }
+                if (!isCommentReplyExpanded()) replyToCommentFocused = false;
+                notifyDataSetChanged();
+                return;
+            }
+            DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return oldComments.size();
+                }
+
+                @Override
+                public int getNewListSize() {
+                    return comments.size();
+                }
+
+                @Override
+                public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                    return oldComments.get(oldItemPosition).getId()
+                            == comments.get(newItemPosition).getId();
+                }
+
+                @Override
+                public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                    return oldComments.get(oldItemPosition).equals(comments.get(newItemPosition));
+                }
+            }).dispatchUpdatesTo(new ListUpdateCallback() {
+                @Override
+                public void onInserted(int position, int count) {
+                    notifyItemRangeInserted(commentIndexToAdapterPosition(position), count);
+                }
+
+                @Override
+                public void onRemoved(int position, int count) {
+                    notifyItemRangeRemoved(commentIndexToAdapterPosition(position), count);
+                }
+
+                @Override
+                public void onMoved(int fromPosition, int toPosition) {
+                    notifyItemMoved(commentIndexToAdapterPosition(fromPosition),
+                            commentIndexToAdapterPosition(toPosition));
+                }
+
+                @Override
+                public void onChanged(int position, int count, Object payload) {
+                    notifyItemRangeChanged(commentIndexToAdapterPosition(position), count,
+                            payload);
+                }
+            });
         }
 
         @Override
@@ -711,7 +776,7 @@ public class StoryActivity extends AppCompatActivity {
             return itemCount;
         }
 
-        public void addComment(Comment newComment) {
+        public void addComment(CommentUiModel newComment) {
             if (!hasComments()) {
                 notifyItemRemoved(1); // remove the no comments view
             }
@@ -722,7 +787,7 @@ public class StoryActivity extends AppCompatActivity {
         /**
          * Add a new comment and return the adapter position that it was inserted at.
          */
-        public int addCommentReply(Comment newComment, int inReplyToAdapterPosition) {
+        public int addCommentReply(CommentUiModel newComment, int inReplyToAdapterPosition) {
             // when replying to a comment, we want to insert it after any existing replies
             // i.e. after any following comments with the same or greater depth
             int commentIndex = adapterPositionToCommentIndex(inReplyToAdapterPosition);
@@ -748,7 +813,7 @@ public class StoryActivity extends AppCompatActivity {
             return expandedCommentPosition != RecyclerView.NO_POSITION;
         }
 
-        private Comment getComment(int adapterPosition) {
+        private CommentUiModel getComment(int adapterPosition) {
             return comments.get(adapterPositionToCommentIndex(adapterPosition));
         }
 
@@ -809,41 +874,15 @@ public class StoryActivity extends AppCompatActivity {
                             || partialChanges.contains(
                             CommentAnimator.EXPAND_COMMENT))) {
 
-                final Comment comment = getComment(holder.getAdapterPosition());
-
-                ColorStateList linksColor = ContextCompat.getColorStateList(getApplicationContext(),
-                        R.color.designer_news_links);
-                int highlightColor = ContextCompat.getColor(getApplicationContext(),
-                        io.plaidapp.R.color.designer_news_link_highlight);
-
-                CharSequence commentText = HtmlUtils.parseMarkdownAndPlainLinks(
-                        comment.getBody(),
-                        markdown,
-                        linksColor,
-                        highlightColor,
-                        (src, loadingSpan) -> GlideApp.with(StoryActivity.this)
-                                .asBitmap()
-                                .load(src)
-                                .diskCacheStrategy(DiskCacheStrategy.ALL)
-                                .into(new ImageSpanTarget(holder.getComment(), loadingSpan)));
-
-                String author = comment.getUserDisplayName() != null ? comment.getUserDisplayName().toLowerCase() : "";
-                boolean isOriginalPoster = isOP(comment.getUserId());
-                String timeAgo = DateUtils.getRelativeTimeSpanString(
-                        comment.getCreatedAt().getTime(),
-                        System.currentTimeMillis(),
-                        DateUtils.SECOND_IN_MILLIS)
-                        .toString().toLowerCase();
-
-                CommentUiModel commentUiModel = new CommentUiModel(
-                        commentText,
-                        timeAgo,
-                        comment.getDepth(),
-                        author,
-                        isOriginalPoster
-                );
-
-                holder.bind(commentUiModel);
+                final CommentUiModel comment = getComment(holder.getAdapterPosition());
+                holder.bind(comment);
+                for (CommentImage image : comment.getImages()) {
+                    GlideApp.with(StoryActivity.this)
+                            .asBitmap()
+                            .load(image.getSrc())
+                            .diskCacheStrategy(DiskCacheStrategy.ALL)
+                            .into(new ImageSpanTarget(holder.getComment(), image.getLoadingSpan()));
+                }
             }
 
             // set/clear expanded comment state
@@ -873,7 +912,7 @@ public class StoryActivity extends AppCompatActivity {
                     if (reply.isEmpty()) return;
 
                     final int inReplyToCommentPosition = holder.getAdapterPosition() - 1;
-                    final Comment replyingTo = getComment(inReplyToCommentPosition);
+                    final CommentUiModel replyingTo = getComment(inReplyToCommentPosition);
                     collapseExpandedComment();
 
                     // insert a locally created comment before actually
@@ -882,7 +921,7 @@ public class StoryActivity extends AppCompatActivity {
                     LoggedInUser user = loginRepository.getUser();
                     String commentBody = holder.getCommentReply().getText().toString();
                     final int newReplyPosition = commentsAdapter.addCommentReply(
-                            new Comment(
+                            viewModel.createCommentUiModel(new Comment(
                                     0,
                                     replyingTo.getId(),
                                     commentBody,
@@ -893,7 +932,7 @@ public class StoryActivity extends AppCompatActivity {
                                     user.getDisplayName(),
                                     user.getPortraitUrl(),
                                     false
-                            ),
+                            )),
                             inReplyToCommentPosition);
 
                     replyToComment(replyingTo.getId(), reply);
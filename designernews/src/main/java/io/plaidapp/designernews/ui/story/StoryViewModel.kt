@@ -25,10 +25,12 @@ import io.plaidapp.core.data.Result
 import io.plaidapp.core.designernews.data.stories.model.Story
 import io.plaidapp.core.designernews.domain.model.Comment
 import io.plaidapp.core.util.exhaustive
+import io.plaidapp.designernews.domain.CreateCommentUiModelsUseCase
 import io.plaidapp.designernews.domain.GetCommentsWithRepliesAndUsersUseCase
 import io.plaidapp.designernews.domain.GetStoryUseCase
 import io.plaidapp.designernews.domain.PostReplyUseCase
 import io.plaidapp.designernews.domain.PostStoryCommentUseCase
+import kotlinx.coroutines.flow.collect
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 
@@ -42,6 +44,7 @@ class StoryViewModel(
     private var postStoryComment: PostStoryCommentUseCase,
     private var postReply: PostReplyUseCase,
     private val getCommentsWithRepliesAndUsers: GetCommentsWithRepliesAndUsersUseCase,
+    private val createCommentUiModels: CreateCommentUiModelsUseCase,
     private val dispatcherProvider: CoroutinesDispatcherProvider
 ) : ViewModel() {
 
@@ -79,14 +82,24 @@ class StoryViewModel(
         withContext(dispatcherProvider.main) { onResult(result) }
     }
 
+    /**
+     * Creates the UI model of a comment added locally, e.g. a reply posted by the user.
+     */
+    fun createCommentUiModel(comment: Comment): CommentUiModel =
+        createCommentUiModels.createUiModel(comment, story.userId)
+
     private fun getComments() = viewModelScope.launch(dispatcherProvider.computation) {
-        val result = getCommentsWithRepliesAndUsers(story.links.comments)
-        if (result is Result.Success) {
-            withContext(dispatcherProvider.main) { emitUiModel(result.data) }
+        // comments are emitted as they load; rendered bodies are cached, so only the comments
+        // that weren't displayed yet are rendered on every update
+        getCommentsWithRepliesAndUsers(story.links.comments).collect { result ->
+            if (result is Result.Success) {
+                val comments = createCommentUiModels(result.data, story.userId)
+                withContext(dispatcherProvider.main) { emitUiModel(comments) }
+            }
         }
     }
 
-    private fun emitUiModel(comments: List<Comment>) {
+    private fun emitUiModel(comments: List<CommentUiModel>) {
         _uiModel.value = StoryUiModel(comments)
     }
 }
@@ -96,5 +109,5 @@ class StoryViewModel(
  * TODO update to hold the entire story
  */
 data class StoryUiModel(
-    val comments: List<Comment>
+    val comments: List<CommentUiModel>
 )
@@ -19,6 +19,7 @@ package io.plaidapp.designernews.ui.story
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
+import io.plaidapp.designernews.domain.CreateCommentUiModelsUseCase
 import io.plaidapp.designernews.domain.GetCommentsWithRepliesAndUsersUseCase
 import io.plaidapp.designernews.domain.GetStoryUseCase
 import io.plaidapp.designernews.domain.PostReplyUseCase
@@ -33,6 +34,7 @@ class StoryViewModelFactory(
     private var postStoryComment: PostStoryCommentUseCase,
     private var postReply: PostReplyUseCase,
     private val getCommentsWithRepliesAndUsersUseCase: GetCommentsWithRepliesAndUsersUseCase,
+    private val createCommentUiModelsUseCase: CreateCommentUiModelsUseCase,
     private val dispatcherProvider: CoroutinesDispatcherProvider
 ) : ViewModelProvider.Factory {
 
@@ -47,6 +49,7 @@ class StoryViewModelFactory(
             postStoryComment,
             postReply,
             getCommentsWithRepliesAndUsersUseCase,
+            createCommentUiModelsUseCase,
             dispatcherProvider
         ) as T
     }
@@ -16,15 +16,23 @@
 
 package io.plaidapp.designernews.data.comments
 
+import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import io.plaidapp.core.data.Result
+import io.plaidapp.designernews.data.database.toCachedComment
+import io.plaidapp.designernews.parentCommentResponse
+import io.plaidapp.designernews.parentId
 import io.plaidapp.designernews.repliesResponses
 import io.plaidapp.designernews.replyResponse1
+import io.plaidapp.designernews.replyResponse2
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
+import org.junit.Before
 import org.junit.Test
 import java.io.IOException
+import java.util.concurrent.TimeUnit
 
 /**
  * Tests for [CommentsRepository] mocking all dependencies
@@ -32,8 +40,19 @@ import java.io.IOException
 class CommentsRepositoryTest {
     private val body = "Plaid 2.0 is awesome"
 
+    private val now = 1_000_000_000L
+
     private val dataSource: CommentsRemoteDataSource = mock()
-    private val repository = CommentsRepository(dataSource)
+    private val localDataSource: CommentsLocalDataSource = mock()
+    private val repository = CommentsRepository(dataSource, localDataSource) { now }
+
+    @Before
+    fun setUp() {
+        runBlocking {
+            // no comments are stored, unless a test says otherwise
+            whenever(localDataSource.getComments(any())).thenReturn(emptyList())
+        }
+    }
 
     @Test
     fun getComments_withSuccess() = runBlocking {
@@ -63,6 +82,69 @@ class CommentsRepositoryTest {
         assertEquals(result, data)
     }
 
+    @Test
+    fun getComments_withSuccess_savesComments() = runBlocking {
+        // Given a list of comment responses that are returned for a list of ids
+        val ids = listOf(11L, 12L)
+        whenever(dataSource.getComments(ids)).thenReturn(Result.Success(repliesResponses))
+
+        // When requesting the comments
+        repository.getComments(ids)
+
+        // Then the comments are stored
+        verify(localDataSource).saveComments(repliesResponses, now)
+    }
+
+    @Test
+    fun getComments_withRecentlyStoredComment_onlyRequestsOthers() = runBlocking {
+        // Given a comment that was stored recently
+        whenever(localDataSource.getComments(listOf(11L, 12L)))
+            .thenReturn(listOf(replyResponse1.toCachedComment(now - 1000)))
+        // Given that the other comment is returned by the data source
+        whenever(dataSource.getComments(listOf(12L)))
+            .thenReturn(Result.Success(listOf(replyResponse2)))
+
+        // When requesting both comments
+        val data = repository.getComments(listOf(11L, 12L))
+
+        // Then only the comment that wasn't stored is requested
+        verify(dataSource).getComments(listOf(12L))
+        // Then both comments are returned, in order
+        assertEquals(Result.Success(repliesResponses), data)
+    }
+
+    @Test
+    fun getComments_withStoredComment_withError() = runBlocking {
+        // Given a comment that was stored a long time ago
+        val fetchedAt = now - TimeUnit.DAYS.toMillis(1)
+        whenever(localDataSource.getComments(listOf(11L)))
+            .thenReturn(listOf(replyResponse1.toCachedComment(fetchedAt)))
+        // Given that requesting it again fails
+        whenever(dataSource.getComments(listOf(11L)))
+            .thenReturn(Result.Error(IOException("error")))
+
+        // When requesting the comment
+        val data = repository.getComments(listOf(11L))
+
+        // Then the stored comment is returned
+        assertEquals(Result.Success(listOf(replyResponse1)), data)
+    }
+
+    @Test
+    fun getStoredCommentsWithReplies() = runBlocking {
+        // Given a stored comment and its stored replies
+        whenever(localDataSource.getComments(listOf(parentId)))
+            .thenReturn(listOf(parentCommentResponse.toCachedComment(now)))
+        whenever(localDataSource.getComments(listOf(11L, 12L)))
+            .thenReturn(repliesResponses.map { it.toCachedComment(now) })
+
+        // When getting the stored comments
+        val data = repository.getStoredCommentsWithReplies(listOf(parentId))
+
+        // Then the comment is returned with all its replies
+        assertEquals(listOf(parentCommentResponse) + repliesResponses, data)
+    }
+
     @Test
     fun postStoryComment_withSuccess() = runBlocking {
         // Given that a result is return when posting a story comment
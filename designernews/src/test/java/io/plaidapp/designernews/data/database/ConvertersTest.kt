@@ -87,4 +87,37 @@ class ConvertersTest {
         // Then it should return an empty string
         assertEquals("", actualCsv)
     }
+
+    @Test fun csvToStringList_multipleValues() {
+        // Given a non-empty CSV string with multiple values
+        val csv = "a1,b2"
+
+        // When the string is converted via the type converter
+        val actualStringList = Converters().csvToStringList(csv)
+
+        // Then it should return a list of the strings, split by the delimiter
+        assertEquals(listOf("a1", "b2"), actualStringList)
+    }
+
+    @Test fun csvToStringList_emptyString() {
+        // Given an empty string
+        val csv = ""
+
+        // When the string is converted via the type converter
+        val actualStringList = Converters().csvToStringList(csv)
+
+        // Then it should return an empty list
+        assertEquals(emptyList<String>(), actualStringList)
+    }
+
+    @Test fun stringListToCsv_strings() {
+        // Given a list with multiple strings
+        val list = listOf("a1", "b2")
+
+        // When the list is converted via the type converter
+        val actualCsv = Converters().stringListToCsv(list)
+
+        // Then it should return a CSV string with multiple values
+        assertEquals("a1,b2", actualCsv)
+    }
 }
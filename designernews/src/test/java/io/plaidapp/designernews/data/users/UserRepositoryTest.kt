@@ -16,14 +16,21 @@
 
 package io.plaidapp.designernews.data.users
 
+import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.verifyNoMoreInteractions
 import com.nhaarman.mockitokotlin2.whenever
 import io.plaidapp.core.data.Result
 import io.plaidapp.core.designernews.data.users.model.User
+import io.plaidapp.designernews.data.database.toCachedUser
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
+import org.junit.Before
 import org.junit.Test
 import java.io.IOException
 
@@ -47,8 +54,23 @@ class UserRepositoryTest {
     )
     private val users = listOf(user1, user2)
 
+    private val now = 1_000_000_000L
+
     private val dataSource: UserRemoteDataSource = mock()
-    private val repository = UserRepository(dataSource)
+    private val localDataSource: UserLocalDataSource = mock()
+    private val repository = UserRepository(
+        dataSource,
+        localDataSource,
+        SharedUsers(CoroutineScope(Dispatchers.Unconfined))
+    ) { now }
+
+    @Before
+    fun setUp() {
+        runBlocking {
+            // no users are stored, unless a test says otherwise
+            whenever(localDataSource.getUsers(any())).thenReturn(emptyList())
+        }
+    }
 
     @Test
     fun getUsers_withNoCachedUsers_withSuccess() = runBlocking {
@@ -109,6 +131,41 @@ class UserRepositoryTest {
         assertEquals(Result.Success(setOf(user1)), result)
     }
 
+    @Test
+    fun getUsers_withStoredUsers_withSuccess() = runBlocking {
+        // Given a user that was stored recently
+        whenever(localDataSource.getUsers(listOf(111L, 222L)))
+            .thenReturn(listOf(user1.toCachedUser(now - 1000)))
+        // Given another user that can be requested
+        withUsersSuccess(listOf(222L), listOf(user2))
+
+        // When requesting a list of users
+        val result = repository.getUsers(setOf(111L, 222L))
+
+        // Then only the user that wasn't stored is requested
+        verify(dataSource).getUsers(listOf(222L))
+        // Then the requested user is stored
+        verify(localDataSource).saveUsers(listOf(user2), now)
+        // Then the correct set of users is returned
+        assertEquals(Result.Success(users.toSet()), result)
+    }
+
+    @Test
+    fun getUsers_concurrently_requestsUsersOnce() = runBlocking {
+        // Given that the dataSource responds with success
+        withUsersSuccess(listOf(111L, 222L), users)
+
+        // When requesting overlapping sets of users at the same time
+        val first = async { repository.getUsers(setOf(111L, 222L)) }
+        val second = async { repository.getUsers(setOf(222L)) }
+
+        // Then there's one request to the dataSource, for all the users
+        assertEquals(Result.Success(users.toSet()), first.await())
+        assertEquals(Result.Success(setOf(user2)), second.await())
+        verify(dataSource).getUsers(listOf(111L, 222L))
+        verifyNoMoreInteractions(dataSource)
+    }
+
     private fun withUsersSuccess(ids: List<Long>, users: List<User>) = runBlocking {
         val result = Result.Success(users)
         whenever(dataSource.getUsers(ids)).thenReturn(result)
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.designernews.domain
+
+import android.content.res.ColorStateList
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.eq
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import io.plaidapp.core.designernews.domain.model.Comment
+import io.plaidapp.core.util.CommentMarkdownRenderer
+import io.plaidapp.designernews.ui.story.CommentStyler
+import io.plaidapp.test.shared.provideFakeCoroutinesDispatcherProvider
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.Date
+
+/**
+ * Test for [CreateCommentUiModelsUseCase] mocking all dependencies.
+ */
+class CreateCommentUiModelsUseCaseTest {
+
+    private val originalPosterId = 222L
+    private val comment = Comment(
+        id = 1L,
+        parentCommentId = null,
+        body = "Plaid *comment*",
+        createdAt = Date(),
+        depth = 2,
+        upvotesCount = 5,
+        userId = 111L,
+        userDisplayName = "Plaicent van Plaid",
+        userPortraitUrl = "www",
+        upvoted = true
+    )
+
+    private val markdownRenderer: CommentMarkdownRenderer = mock()
+    private val testLinkColors: ColorStateList = mock()
+    private val styler: CommentStyler = mock {
+        on { linkColors } doReturn testLinkColors
+        on { highlightColor } doReturn 0xff00ff
+        on { timeSince(any(), any()) } doReturn "5 minutes ago"
+    }
+
+    private val createCommentUiModels = CreateCommentUiModelsUseCase(
+        markdownRenderer,
+        styler,
+        provideFakeCoroutinesDispatcherProvider()
+    )
+
+    @Before
+    fun setUp() {
+        // the rendered body is the body in upper case
+        whenever(markdownRenderer.render(any(), any(), any(), any())).thenAnswer {
+            it.getArgument<String>(0).toUpperCase()
+        }
+    }
+
+    @Test
+    fun invoke_mapsComment() = runBlocking {
+        // When creating the ui model of a comment
+        val result = createCommentUiModels(listOf(comment), originalPosterId).single()
+
+        // Then the fields of the comment are mapped
+        assertEquals(comment.id, result.id)
+        assertEquals("PLAID *COMMENT*", result.body)
+        assertTrue(result.images.isEmpty())
+        assertEquals("5 minutes ago", result.timeSinceCommentCreation)
+        assertEquals(comment.depth, result.depth)
+        assertEquals("plaicent van plaid", result.author)
+        assertEquals(comment.upvotesCount, result.upvotesCount)
+        assertEquals(comment.upvoted, result.upvoted)
+        // And the comment isn't marked as posted by the original poster
+        assertFalse(result.isOriginalPoster)
+    }
+
+    @Test
+    fun invoke_commentByOriginalPoster_isMarked() = runBlocking {
+        // Given a comment posted by the original poster
+        val opComment = comment.copy(userId = originalPosterId)
+
+        // When creating its ui model
+        val result = createCommentUiModels(listOf(opComment), originalPosterId).single()
+
+        // Then it's marked as posted by the original poster
+        assertTrue(result.isOriginalPoster)
+    }
+
+    @Test
+    fun invoke_commentWithoutAuthor_hasEmptyAuthor() = runBlocking {
+        // Given a comment of an unknown user
+        val noUserComment = comment.copy(userDisplayName = null)
+
+        // When creating its ui model
+        val result = createCommentUiModels(listOf(noUserComment), originalPosterId).single()
+
+        // Then the author is empty
+        assertEquals("", result.author)
+    }
+
+    @Test
+    fun invoke_sameCommentTwice_rendersBodyOnce() = runBlocking {
+        // Given a comment whose ui model was created
+        val first = createCommentUiModels(listOf(comment), originalPosterId).single()
+
+        // When creating its ui model again, e.g. when reloading the comments
+        val second = createCommentUiModels(listOf(comment.copy()), originalPosterId).single()
+
+        // Then the body was only rendered once
+        verify(markdownRenderer, times(1)).render(eq(comment.body), any(), any(), any())
+        assertTrue(first.body === second.body)
+    }
+
+    @Test
+    fun invoke_editedComment_rendersBodyAgain() = runBlocking {
+        // Given a comment whose ui model was created
+        createCommentUiModels(listOf(comment), originalPosterId)
+
+        // When the body of the comment changes
+        val edited = comment.copy(body = "Edited *comment*")
+        val result = createCommentUiModels(listOf(edited), originalPosterId).single()
+
+        // Then the new body is rendered
+        verify(markdownRenderer).render(eq(edited.body), any(), any(), any())
+        assertEquals("EDITED *COMMENT*", result.body)
+    }
+}
@@ -16,20 +16,25 @@
 
 package io.plaidapp.designernews.domain
 
+import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import io.plaidapp.core.data.Result
+import io.plaidapp.designernews.data.comments.CommentsLocalDataSource
 import io.plaidapp.designernews.data.comments.CommentsRemoteDataSource
 import io.plaidapp.designernews.data.comments.CommentsRepository
 import io.plaidapp.designernews.data.comments.model.CommentResponse
 import io.plaidapp.core.designernews.data.users.model.User
 import io.plaidapp.designernews.data.api.DesignerNewsService
+import io.plaidapp.designernews.data.users.SharedUsers
+import io.plaidapp.designernews.data.users.UserLocalDataSource
 import io.plaidapp.designernews.data.users.UserRemoteDataSource
 import io.plaidapp.designernews.data.users.UserRepository
 import io.plaidapp.designernews.errorResponseBody
 import io.plaidapp.designernews.flattendCommentsWithReplies
 import io.plaidapp.designernews.flattenedCommentsWithoutReplies
+import io.plaidapp.designernews.parentComment
 import io.plaidapp.designernews.parentCommentResponse
 import io.plaidapp.designernews.repliesResponses
 import io.plaidapp.designernews.reply1
@@ -37,27 +42,49 @@ import io.plaidapp.designernews.reply1NoUser
 import io.plaidapp.designernews.replyResponse1
 import io.plaidapp.designernews.user1
 import io.plaidapp.designernews.user2
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.toList
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
 import org.junit.Assert.assertTrue
+import org.junit.Before
 import org.junit.Test
 import retrofit2.Response
 
 /**
  * Integration test for [GetCommentsWithRepliesAndUsersUseCase] where only the responses from the [DesignerNewsService]
- * are mocked. Everything else uses real implementation.
+ * and the local storage are mocked, with nothing stored. Everything else uses real implementation.
  */
 class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
     private val service: DesignerNewsService = mock()
     private val dataSource = CommentsRemoteDataSource(service)
-    private val commentsRepository = CommentsRepository(dataSource)
-    private val userRepository = UserRepository(UserRemoteDataSource(service))
+    private val commentsLocalDataSource: CommentsLocalDataSource = mock()
+    private val commentsRepository = CommentsRepository(dataSource, commentsLocalDataSource)
+    private val userLocalDataSource: UserLocalDataSource = mock()
+    private val userRepository = UserRepository(
+        UserRemoteDataSource(service),
+        userLocalDataSource,
+        SharedUsers(
+            CoroutineScope(Dispatchers.Unconfined),
+            // long enough for the replies to load before the users are requested
+            batchWindowMillis = 200L
+        )
+    )
     private val repository: GetCommentsWithRepliesAndUsersUseCase = GetCommentsWithRepliesAndUsersUseCase(
         GetCommentsWithRepliesUseCase(commentsRepository),
         userRepository
     )
 
+    @Before
+    fun setUp() {
+        runBlocking {
+            whenever(commentsLocalDataSource.getComments(any())).thenReturn(emptyList())
+            whenever(userLocalDataSource.getUsers(any())).thenReturn(emptyList())
+        }
+    }
+
     @Test
     fun getComments_noReplies_whenCommentsAnUserRequestsSuccessful() = runBlocking {
         // Given that the comments request responds with success
@@ -66,7 +93,7 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
         withUsers(listOf(user1), "111")
 
         // When getting the replies
-        val result = repository(listOf(11L))
+        val result = repository(listOf(11L)).toList().last()
 
         // Then the correct list of comments was requested from the API
         verify(service).getComments("11")
@@ -84,7 +111,7 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
         whenever(service.getComments("11")).thenReturn(apiResult)
 
         // When getting the comments
-        val result = repository(listOf(11L))
+        val result = repository(listOf(11L)).toList().last()
 
         // Then the result is not successful
         assertNotNull(result)
@@ -99,11 +126,11 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
         withComments(parentCommentResponse, "1")
         // When requesting replies for ids 11 and 12 from service we get the children
         withComments(repliesResponses, "11,12")
-        // When the user request responds with success
-        withUsers(listOf(user1, user2), "222,111")
+        // When the users request responds with success, for all levels of comments at once
+        withUsers(listOf(user2, user1), "222,111")
 
         // When getting the comments from the repository
-        val result = repository(listOf(1L))
+        val result = repository(listOf(1L)).toList().last()
 
         // Then  API requests were triggered
         verify(service).getComments("1")
@@ -113,6 +140,25 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
         assertEquals(Result.Success(flattendCommentsWithReplies), result)
     }
 
+    @Test
+    fun getComments_multipleReplies_emitsTopLevelCommentsFirst() = runBlocking {
+        // Given that the comments and users requests respond with success
+        withComments(parentCommentResponse, "1")
+        withComments(repliesResponses, "11,12")
+        withUsers(listOf(user2, user1), "222,111")
+
+        // When getting all the comments emitted while loading
+        val results = repository(listOf(1L)).toList()
+
+        // Then the top level comment is emitted alone first, before the tree is loaded
+        assertTrue(results.size > 1)
+        val first = results.first()
+        assertTrue(first is Result.Success)
+        assertEquals(listOf(parentComment.id), (first as Result.Success).data.map { it.id })
+        // Then the entire tree is emitted last
+        assertEquals(Result.Success(flattendCommentsWithReplies), results.last())
+    }
+
     @Test
     fun getComments_multipleReplies_whenRepliesRequestFailed() = runBlocking {
         // Given that
@@ -128,7 +174,7 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
         withUsers(listOf(user2), "222")
 
         // When getting the comments from the repository
-        val result = repository(listOf(1L))
+        val result = repository(listOf(1L)).toList().last()
 
         // Then  API requests were triggered
         verify(service).getComments("1")
@@ -153,7 +199,7 @@ class GetCommentsWithRepliesAndUsersUseCaseIntegrationTest {
             .thenReturn(userError)
 
         // When getting the comments from the repository
-        val result = repository(listOf(11L))
+        val result = repository(listOf(11L)).toList().last()
 
         // Then  API requests were triggered
         verify(service).getComments("11")
@@ -16,6 +16,8 @@
 
 package io.plaidapp.designernews.domain
 
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.eq
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
@@ -32,6 +34,7 @@ import io.plaidapp.designernews.reply1NoUser
 import io.plaidapp.designernews.replyWithReplies1
 import io.plaidapp.designernews.user1
 import io.plaidapp.designernews.user2
+import kotlinx.coroutines.flow.toList
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
@@ -59,7 +62,7 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
         withUsers(setOf(user1), setOf(111L))
 
         // When getting the replies
-        val result = repository(ids)
+        val result = repository(ids).toList().last()
 
         // Then the correct list is received
         assertEquals(Result.Success(listOf(reply1)), result)
@@ -70,10 +73,10 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
         // Given that the getCommentsWithReplies responds with failure
         val resultError = Result.Error(IOException("Comment error"))
         val ids = listOf(11L)
-        whenever(getCommentsWithReplies.invoke(ids)).thenReturn(resultError)
+        whenever(getCommentsWithReplies.invoke(eq(ids), any())).thenReturn(resultError)
 
         // When getting the comments
-        val result = repository(ids)
+        val result = repository(ids).toList().last()
 
         // Then the result is not successful
         assertNotNull(result)
@@ -90,10 +93,10 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
         withUsers(setOf(user1, user2), setOf(111L, 222L))
 
         // When getting the comments from the repository
-        val result = repository(listOf(1L))
+        val result = repository(listOf(1L)).toList().last()
 
         // Then comments were requested for correct ids
-        verify(getCommentsWithReplies).invoke(parentIds)
+        verify(getCommentsWithReplies).invoke(eq(parentIds), any())
         // Then the correct result is received
         assertEquals(Result.Success(flattendCommentsWithReplies), result)
     }
@@ -107,10 +110,10 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
         withUsers(setOf(user2), setOf(222))
 
         // When getting the comments from the repository
-        val result = repository(listOf(1L))
+        val result = repository(listOf(1L)).toList().last()
 
         // Then comments were requested for correct ids
-        verify(getCommentsWithReplies).invoke(parentIds)
+        verify(getCommentsWithReplies).invoke(eq(parentIds), any())
         // Then the correct result is received
         assertEquals(Result.Success(flattenedCommentsWithoutReplies), result)
     }
@@ -127,10 +130,10 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
         whenever(userRepository.getUsers(setOf(11L))).thenReturn(userError)
 
         // When getting the comments from the repository
-        val result = repository(listOf(11L))
+        val result = repository(listOf(11L)).toList().last()
 
         // Then comments were requested for correct ids
-        verify(getCommentsWithReplies).invoke(ids)
+        verify(getCommentsWithReplies).invoke(eq(ids), any())
         // Then the correct result is received
         assertEquals(Result.Success(arrayListOf(reply1NoUser)), result)
     }
@@ -143,6 +146,6 @@ class GetCommentsWithRepliesAndUsersUseCaseTest {
 
     private fun withComment(comment: CommentWithReplies, ids: List<Long>) = runBlocking {
         val resultParent = Result.Success(listOf(comment))
-        whenever(getCommentsWithReplies(ids)).thenReturn(resultParent)
+        whenever(getCommentsWithReplies(eq(ids), any())).thenReturn(resultParent)
     }
 }
@@ -16,11 +16,14 @@
 
 package io.plaidapp.designernews.domain
 
+import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import io.plaidapp.core.data.Result
 import io.plaidapp.designernews.data.comments.CommentsRepository
+import io.plaidapp.designernews.data.comments.model.CommentResponse
+import io.plaidapp.designernews.domain.GetCommentsWithRepliesUseCase.Companion.MAX_IDS_PER_REQUEST
 import io.plaidapp.designernews.parentCommentResponse
 import io.plaidapp.designernews.parentCommentWithReplies
 import io.plaidapp.designernews.parentCommentWithRepliesWithoutReplies
@@ -32,6 +35,7 @@ import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
 import org.junit.Assert.assertTrue
+import org.junit.Before
 import org.junit.Test
 import java.io.IOException
 
@@ -43,6 +47,14 @@ class GetCommentsWithRepliesUseCaseTest {
     private val repository: CommentsRepository = mock()
     private val useCase = GetCommentsWithRepliesUseCase(repository)
 
+    @Before
+    fun setUp() {
+        runBlocking {
+            // no comments are stored, unless a test says otherwise
+            whenever(repository.getStoredCommentsWithReplies(any())).thenReturn(emptyList())
+        }
+    }
+
     @Test
     fun getComments_noReplies_whenRequestSuccessful() = runBlocking {
         // Given that the repository responds with success
@@ -123,4 +135,83 @@ class GetCommentsWithRepliesUseCaseTest {
         // Then the correct result is received
         assertEquals(Result.Success(arrayListOf(parentCommentWithRepliesWithoutReplies)), result)
     }
+
+    @Test
+    fun getComments_requestsIdsInChunks() = runBlocking {
+        // Given more comment ids than fit in a request
+        val ids = (1L..MAX_IDS_PER_REQUEST + 5L).toList()
+        val firstChunk = ids.take(MAX_IDS_PER_REQUEST)
+        val secondChunk = ids.drop(MAX_IDS_PER_REQUEST)
+        // Given that the repository responds with success for every chunk
+        whenever(repository.getComments(firstChunk))
+            .thenReturn(Result.Success(firstChunk.map { replyResponse1.copy(id = it) }))
+        whenever(repository.getComments(secondChunk))
+            .thenReturn(Result.Success(secondChunk.map { replyResponse1.copy(id = it) }))
+
+        // When getting the comments
+        val result = useCase(ids)
+
+        // Then every chunk was requested separately
+        verify(repository).getComments(firstChunk)
+        verify(repository).getComments(secondChunk)
+        // Then the comments of all the chunks are received, in order
+        assertEquals(Result.Success(ids.map { replyWithReplies1.copy(id = it) }), result)
+    }
+
+    @Test
+    fun getComments_keepsLoadedChunks_whenChunkRequestFailed() = runBlocking {
+        // Given more comment ids than fit in a request
+        val ids = (1L..MAX_IDS_PER_REQUEST + 5L).toList()
+        val firstChunk = ids.take(MAX_IDS_PER_REQUEST)
+        val secondChunk = ids.drop(MAX_IDS_PER_REQUEST)
+        // Given that the repository responds with success only for the first chunk
+        whenever(repository.getComments(firstChunk))
+            .thenReturn(Result.Success(firstChunk.map { replyResponse1.copy(id = it) }))
+        whenever(repository.getComments(secondChunk))
+            .thenReturn(Result.Error(IOException("Unable to get comments")))
+
+        // When getting the comments
+        val result = useCase(ids)
+
+        // Then the comments of the first chunk are received
+        assertEquals(Result.Success(firstChunk.map { replyWithReplies1.copy(id = it) }), result)
+    }
+
+    @Test
+    fun getComments_notifiesLoadedComments() = runBlocking {
+        // Given that the repository responds with a parent comment and its replies
+        whenever(repository.getComments(listOf(1L)))
+            .thenReturn(Result.Success(listOf(parentCommentResponse)))
+        whenever(repository.getComments(listOf(11L, 12L)))
+            .thenReturn(Result.Success(listOf(replyResponse1, replyResponse2)))
+
+        // When getting the comments
+        val loaded = mutableListOf<List<CommentResponse>>()
+        useCase(listOf(1L)) { loaded.add(it) }
+
+        // Then every chunk of comments is notified as it's loaded
+        assertEquals(
+            listOf(listOf(parentCommentResponse), listOf(replyResponse1, replyResponse2)),
+            loaded
+        )
+    }
+
+    @Test
+    fun getComments_notifiesStoredCommentsFirst() = runBlocking {
+        // Given that a reply is stored from a previous visit
+        whenever(repository.getStoredCommentsWithReplies(listOf(11L)))
+            .thenReturn(listOf(replyResponse1))
+        // Given that the repository responds with success
+        whenever(repository.getComments(listOf(11L)))
+            .thenReturn(Result.Success(listOf(replyResponse1)))
+
+        // When getting the comments
+        val loaded = mutableListOf<List<CommentResponse>>()
+        val result = useCase(listOf(11L)) { loaded.add(it) }
+
+        // Then the stored comments are notified first, then the loaded ones
+        assertEquals(listOf(listOf(replyResponse1), listOf(replyResponse1)), loaded)
+        // Then the correct result is received
+        assertEquals(Result.Success(listOf(replyWithReplies1)), result)
+    }
 }
@@ -23,6 +23,7 @@ import io.plaidapp.core.data.Result
 import io.plaidapp.core.designernews.data.stories.model.Story
 import io.plaidapp.core.designernews.data.stories.model.StoryLinks
 import io.plaidapp.core.designernews.domain.model.Comment
+import io.plaidapp.designernews.domain.CreateCommentUiModelsUseCase
 import io.plaidapp.designernews.domain.GetCommentsWithRepliesAndUsersUseCase
 import io.plaidapp.designernews.domain.GetStoryUseCase
 import io.plaidapp.designernews.domain.PostReplyUseCase
@@ -31,6 +32,7 @@ import io.plaidapp.designernews.flattendCommentsWithReplies
 import io.plaidapp.designernews.reply1
 import io.plaidapp.test.shared.LiveDataTestUtil
 import io.plaidapp.test.shared.provideFakeCoroutinesDispatcherProvider
+import kotlinx.coroutines.flow.flowOf
 import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
@@ -72,6 +74,20 @@ class StoryViewModelTest {
     private val postStoryComment: PostStoryCommentUseCase = mock()
     private val postComment: PostReplyUseCase = mock()
     private val getCommentsWithRepliesAndUsers: GetCommentsWithRepliesAndUsersUseCase = mock()
+    private val createCommentUiModels: CreateCommentUiModelsUseCase = mock()
+    private val commentUiModels = flattendCommentsWithReplies.map {
+        CommentUiModel(
+            id = it.id,
+            body = it.body,
+            images = emptyList(),
+            timeSinceCommentCreation = "1 day ago",
+            depth = it.depth,
+            author = it.userDisplayName,
+            isOriginalPoster = it.userId == userId,
+            upvotesCount = it.upvotesCount,
+            upvoted = it.upvoted
+        )
+    }
 
     @Test
     fun loadStory_existsInRepo() {
@@ -95,6 +111,7 @@ class StoryViewModelTest {
             postStoryComment,
             postComment,
             getCommentsWithRepliesAndUsers,
+            createCommentUiModels,
             provideFakeCoroutinesDispatcherProvider()
         )
         // Then it throws
@@ -108,7 +125,7 @@ class StoryViewModelTest {
 
         // Then the correct UI model is created
         val event = LiveDataTestUtil.getValue(viewModel.uiModel)
-        assertEquals(event!!.comments, flattendCommentsWithReplies)
+        assertEquals(event!!.comments, commentUiModels)
     }
 
     @Test
@@ -184,10 +201,10 @@ class StoryViewModelTest {
         whenever(getStory(storyId)).thenReturn(Result.Success(testStory))
         runBlocking {
             whenever(getCommentsWithRepliesAndUsers(commentIds)).thenReturn(
-                Result.Success(
-                    flattendCommentsWithReplies
-                )
+                flowOf(Result.Success(flattendCommentsWithReplies))
             )
+            whenever(createCommentUiModels(flattendCommentsWithReplies, userId))
+                .thenReturn(commentUiModels)
         }
         return StoryViewModel(
             storyId,
@@ -195,6 +212,7 @@ class StoryViewModelTest {
             postStoryComment,
             postComment,
             getCommentsWithRepliesAndUsers,
+            createCommentUiModels,
             provideFakeCoroutinesDispatcherProvider()
         )
     }
@@ -43,6 +43,7 @@ class CreateShotUiModelUseCase @Inject constructor(
             formattedDescription = desc,
             imageUrl = model.images.best(),
             imageSize = model.images.bestSize(),
+            images = model.images,
             likesCount = model.likesCount,
             formattedLikesCount = numberFormatter.format(model.likesCount),
             viewsCount = model.viewsCount,
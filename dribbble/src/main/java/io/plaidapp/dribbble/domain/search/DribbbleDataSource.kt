@@ -37,6 +37,8 @@ class DribbbleDataSource(
             is Result.Success -> {
                 page++
                 val shotsWithPages = result.data.map { it.copy(page = page) }
+                // the copies are the ones displayed, so they keep the cached shots reachable
+                repository.cache(shotsWithPages)
                 _items.postValue(shotsWithPages)
             }
             is Result.Error -> _items.postValue(emptyList())
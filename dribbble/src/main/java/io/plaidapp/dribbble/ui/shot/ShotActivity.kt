@@ -20,7 +20,7 @@ import android.animation.ValueAnimator
 import android.app.Activity
 import android.app.assist.AssistContent
 import android.content.Intent
-import android.graphics.Bitmap
+import android.graphics.Rect
 import android.graphics.drawable.Drawable
 import android.os.Bundle
 import android.util.TypedValue
@@ -30,7 +30,6 @@ import androidx.core.app.ShareCompat
 import androidx.core.content.ContextCompat
 import androidx.core.net.toUri
 import androidx.lifecycle.Observer
-import androidx.palette.graphics.Palette
 import com.bumptech.glide.load.DataSource
 import com.bumptech.glide.load.engine.GlideException
 import com.bumptech.glide.request.RequestListener
@@ -39,6 +38,9 @@ import io.plaidapp.core.ui.widget.ElasticDragDismissFrameLayout
 import io.plaidapp.core.util.Activities
 import io.plaidapp.core.util.AnimUtils.getFastOutSlowInInterpolator
 import io.plaidapp.core.util.ColorUtils
+import io.plaidapp.core.util.ImageColors
+import io.plaidapp.core.util.ImagePalettes
+import io.plaidapp.core.util.RegionColors
 import io.plaidapp.core.util.ViewUtils
 import io.plaidapp.core.util.customtabs.CustomTabActivityHelper
 import io.plaidapp.core.util.delegates.contentView
@@ -66,6 +68,8 @@ class ShotActivity : AppCompatActivity() {
 
     private var largeAvatarSize: Int = 0
 
+    private var colorsExtraction: ImagePalettes.Extraction? = null
+
     private val shotLoadListener = object : RequestListener<Drawable> {
         override fun onResourceReady(
             resource: Drawable,
@@ -76,22 +80,23 @@ class ShotActivity : AppCompatActivity() {
         ): Boolean {
             val bitmap = resource.getBitmap() ?: return false
 
-            Palette.from(bitmap)
-                .clearFilters() /* by default palette ignore certain hues
-                        (e.g. pure black/white) but we don't want this. */
-                .generate { palette -> applyFullImagePalette(palette) }
-
             val twentyFourDip = TypedValue.applyDimension(
                 TypedValue.COMPLEX_UNIT_DIP,
                 24f,
                 this@ShotActivity.resources.displayMetrics
             ).toInt()
-            Palette.from(bitmap)
-                .maximumColorCount(3)
-                .clearFilters()
-                .setRegion(0, 0, bitmap.width - 1, twentyFourDip) /* - 1 to work around
-                        https://code.google.com/p/android/issues/detail?id=191013 */
-                .generate { palette -> applyTopPalette(bitmap, palette) }
+            // reuses the colors extracted for the feed, if any
+            val topRegion = Rect(0, 0, bitmap.width, twentyFourDip)
+            colorsExtraction?.cancel()
+            colorsExtraction = ImagePalettes.extract(
+                this@ShotActivity,
+                model.toString(),
+                bitmap.width,
+                topRegion
+            ) { colors ->
+                applyFullImageColors(colors)
+                colors.regions[topRegion]?.let { applyTopColors(it) }
+            }
 
             // TODO should keep the background if the image contains transparency?!
             binding.shot.background = null
@@ -151,6 +156,11 @@ class ShotActivity : AppCompatActivity() {
         super.onPause()
     }
 
+    override fun onDestroy() {
+        colorsExtraction?.cancel()
+        super.onDestroy()
+    }
+
     override fun onBackPressed() {
         setResultAndFinish()
     }
@@ -188,26 +198,21 @@ class ShotActivity : AppCompatActivity() {
         }
     }
 
-    internal fun applyFullImagePalette(palette: Palette?) {
+    internal fun applyFullImageColors(colors: ImageColors) {
         // color the ripple on the image spacer (default is grey)
-        binding.shotSpacer.background = ViewUtils.createRipple(
-            palette, 0.25f, 0.5f,
+        binding.shotSpacer.background = colors.createRipple(
+            0.25f, 0.5f,
             ContextCompat.getColor(this@ShotActivity, io.plaidapp.R.color.mid_grey), true
         )
         // slightly more opaque ripple on the pinned image to compensate for the scrim
-        binding.shot.foreground = ViewUtils.createRipple(
-            palette, 0.3f, 0.6f,
+        binding.shot.foreground = colors.createRipple(
+            0.3f, 0.6f,
             ContextCompat.getColor(this@ShotActivity, io.plaidapp.R.color.mid_grey), true
         )
     }
 
-    internal fun applyTopPalette(bitmap: Bitmap, palette: Palette?) {
-        val lightness = ColorUtils.isDark(palette)
-        val isDark = if (lightness == ColorUtils.LIGHTNESS_UNKNOWN) {
-            ColorUtils.isDark(bitmap, bitmap.width / 2, 0)
-        } else {
-            lightness == ColorUtils.IS_DARK
-        }
+    internal fun applyTopColors(colors: RegionColors) {
+        val isDark = colors.isDark
 
         if (!isDark) { // make back icon dark on light images
             binding.back.setColorFilter(
@@ -217,8 +222,8 @@ class ShotActivity : AppCompatActivity() {
 
         // color the status bar.
         var statusBarColor = window.statusBarColor
-        ColorUtils.getMostPopulousSwatch(palette)?.let {
-            statusBarColor = ColorUtils.scrimify(it.rgb, isDark, SCRIM_ADJUSTMENT)
+        colors.mostPopulousColor?.let {
+            statusBarColor = ColorUtils.scrimify(it, isDark, SCRIM_ADJUSTMENT)
             // set a light status bar
             if (!isDark) {
                 ViewUtils.setLightStatusBar(binding.shot)
@@ -17,6 +17,7 @@
 package io.plaidapp.dribbble.ui.shot
 
 import android.graphics.drawable.AnimatedVectorDrawable
+import android.graphics.drawable.Drawable
 import android.text.format.DateUtils
 import android.view.View.GONE
 import android.widget.ImageView
@@ -24,8 +25,15 @@ import android.widget.TextView
 import androidx.annotation.PluralsRes
 import androidx.databinding.BindingAdapter
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions
+import com.bumptech.glide.request.RequestListener
+import io.plaidapp.core.dribbble.data.api.model.Images
 import io.plaidapp.core.util.HtmlUtils
+import io.plaidapp.core.util.glide.AnimatedImageViewTarget
 import io.plaidapp.core.util.glide.GlideApp
+import io.plaidapp.core.util.glide.ShotImageSelector
+import io.plaidapp.core.util.glide.bestImage
+import io.plaidapp.core.util.glide.loadShotImageProgressively
+import io.plaidapp.core.util.glide.scaledToFit
 import java.util.Date
 
 @BindingAdapter("relativeTime")
@@ -63,6 +71,33 @@ fun bindImage(
     request.into(imageView)
 }
 
+/**
+ * Loads the image of a shot progressively, starting from the image displayed in the grid if it's
+ * still in memory.
+ */
+@BindingAdapter("shotImages", "shotImageLoadListener", requireAll = false)
+fun bindShotImages(
+    imageView: ImageView,
+    images: Images?,
+    listener: RequestListener<Drawable>?
+) {
+    if (images == null) return
+    // the view spans the width of the screen, there's no point in decoding frames any larger
+    val screenWidth = imageView.resources.displayMetrics.widthPixels
+    var request = GlideApp.with(imageView.context)
+        .loadShotImageProgressively(
+            images,
+            images.bestImage().scaledToFit(screenWidth),
+            ShotImageSelector.getInstance().selected(images)
+        )
+        .transition(DrawableTransitionOptions.withCrossFade())
+    if (listener != null) {
+        request = request.listener(listener)
+    }
+    // play GIFs within the budget shared with the other screens
+    request.into(AnimatedImageViewTarget(imageView))
+}
+
 @BindingAdapter("htmlTextOrGone")
 fun bindHtmlText(
     textView: TextView,
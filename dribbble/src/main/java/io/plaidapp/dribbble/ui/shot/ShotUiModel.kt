@@ -30,6 +30,7 @@ data class ShotUiModel(
     val formattedDescription: CharSequence,
     val imageUrl: String,
     val imageSize: Images.ImageSize,
+    val images: Images,
     val likesCount: Int,
     val formattedLikesCount: String,
     val viewsCount: Int,
@@ -53,6 +54,7 @@ fun Shot.toShotUiModel(): ShotUiModel {
         formattedDescription = "",
         imageUrl = images.best(),
         imageSize = images.bestSize(),
+        images = images,
         likesCount = likesCount,
         formattedLikesCount = likesCount.toString(),
         viewsCount = viewsCount,
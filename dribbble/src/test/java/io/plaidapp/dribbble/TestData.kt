@@ -50,6 +50,7 @@ val testShotUiModel = ShotUiModel(
     formattedDescription = "Description",
     imageUrl = "imageUrl",
     imageSize = Images.ImageSize.NORMAL_IMAGE_SIZE,
+    images = Images(normal = "imageUrl"),
     viewsCount = 1234,
     formattedViewsCount = "1,234",
     likesCount = 5678,
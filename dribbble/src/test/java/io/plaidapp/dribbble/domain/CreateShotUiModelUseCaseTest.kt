@@ -65,6 +65,7 @@ class CreateShotUiModelUseCaseTest {
         assertEquals(testShot.createdAt, result.createdAt)
         assertEquals(testShot.images.best(), result.imageUrl)
         assertEquals(testShot.images.bestSize(), result.imageSize)
+        assertEquals(testShot.images, result.images)
         assertEquals(testShot.user.name.toLowerCase(), result.userName)
         assertEquals(testShot.user.highQualityAvatarUrl, result.userAvatarUrl)
     }
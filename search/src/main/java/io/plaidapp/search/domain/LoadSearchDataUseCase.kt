@@ -19,8 +19,11 @@ package io.plaidapp.search.domain
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MediatorLiveData
 import io.plaidapp.core.data.PlaidItem
+import io.plaidapp.core.data.PlaidItemFeed
+import io.plaidapp.core.feed.FeedDiffer
+import io.plaidapp.core.feed.FeedUiModel
 import io.plaidapp.core.interfaces.SearchDataSourceFactory
-import io.plaidapp.core.ui.getPlaidItemsForDisplay
+import io.plaidapp.core.ui.addForDisplay
 import kotlinx.coroutines.Deferred
 import kotlinx.coroutines.async
 import kotlinx.coroutines.awaitAll
@@ -28,18 +31,23 @@ import kotlinx.coroutines.supervisorScope
 
 /**
  * Searches for a query in a list of data sources. Exposes the results of the search in a LiveData,
- * that is updated whenever loading of search results is requested.
- * The results of loading more are appended at the end of the list.
+ * laid out in a number of columns, that is updated whenever loading of search results is requested.
+ * The results of loading more are merged into the list.
  */
 class LoadSearchDataUseCase(
     factories: Set<SearchDataSourceFactory>,
-    query: String
+    query: String,
+    columns: Int
 ) {
 
     private val dataSources = factories.map { it.create(query) }
 
-    private val _searchResult = MediatorLiveData<List<PlaidItem>>()
-    val searchResult: LiveData<List<PlaidItem>>
+    // the results are merged on the main thread, where the data sources emit them
+    private val feed = PlaidItemFeed()
+    private var differ = FeedDiffer(columns)
+
+    private val _searchResult = MediatorLiveData<FeedUiModel>()
+    val searchResult: LiveData<FeedUiModel>
         get() = _searchResult
 
     init {
@@ -60,9 +68,20 @@ class LoadSearchDataUseCase(
         deferredJobs.awaitAll()
     }
 
+    /**
+     * Lays out the results in [columns] from now on, e.g. after a configuration change.
+     */
+    fun layOut(columns: Int) {
+        if (columns == differ.columns) return
+        differ = FeedDiffer(columns)
+        if (feed.size > 0) _searchResult.value = differ.diff(feed.asList())
+    }
+
     private fun handleNewList(newList: List<PlaidItem>) {
-        val oldItems = _searchResult.value.orEmpty().toMutableList()
-        val searchResult = getPlaidItemsForDisplay(oldItems, newList)
-        _searchResult.postValue(searchResult)
+        val inserted = feed.addForDisplay(newList)
+        // an empty feed is emitted as well, to tell that there are no results
+        if (inserted.isNotEmpty() || feed.size == 0) {
+            _searchResult.value = differ.inserted(feed.asList(), inserted)
+        }
     }
 }
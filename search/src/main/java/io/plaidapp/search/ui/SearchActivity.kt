@@ -52,19 +52,18 @@ import androidx.core.view.updatePadding
 import androidx.lifecycle.Observer
 import androidx.recyclerview.widget.GridLayoutManager
 import androidx.recyclerview.widget.RecyclerView
-import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader
-import com.bumptech.glide.util.ViewPreloadSizeProvider
 import io.plaidapp.core.dagger.qualifier.IsPocketInstalled
-import io.plaidapp.core.dribbble.data.api.model.Shot
 import io.plaidapp.core.feed.FeedAdapter
-import io.plaidapp.core.ui.expandPopularItems
 import io.plaidapp.core.ui.recyclerview.InfiniteScrollListener
+import io.plaidapp.core.ui.recyclerview.PrefetchController
+import io.plaidapp.core.ui.recyclerview.PrefetchPreloader
 import io.plaidapp.core.ui.recyclerview.SlideInItemAnimator
 import io.plaidapp.core.util.Activities
 import io.plaidapp.core.util.ColorUtils
 import io.plaidapp.core.util.ImeUtils
 import io.plaidapp.core.util.ShortcutHelper
 import io.plaidapp.core.util.TransitionUtils
+import io.plaidapp.core.util.glide.GlideApp
 import io.plaidapp.search.R
 import io.plaidapp.search.dagger.Injector
 import io.plaidapp.search.ui.transitions.CircularReveal
@@ -92,6 +91,7 @@ class SearchActivity : AppCompatActivity() {
     private var columns: Int = 0
     private var noResults: TextView? = null
     private val transitions = SparseArray<Transition>()
+    private val prefetchController = PrefetchController()
     private var focusQuery = true
 
     private lateinit var feedAdapter: FeedAdapter
@@ -114,7 +114,7 @@ class SearchActivity : AppCompatActivity() {
 
         feedAdapter = FeedAdapter(this, columns, pocketInstalled, ColorUtils.isDarkTheme(this))
 
-        viewModel.searchResults.observe(this, Observer { searchUiModel ->
+        viewModel.getSearchResults(columns).observe(this, Observer { searchUiModel ->
             if (searchUiModel.items.isNotEmpty()) {
                 if (results.visibility != View.VISIBLE) {
                     TransitionManager.beginDelayedTransition(
@@ -125,9 +125,7 @@ class SearchActivity : AppCompatActivity() {
                     results.visibility = View.VISIBLE
                     fab.visibility = View.VISIBLE
                 }
-                val items = searchUiModel.items
-                expandPopularItems(items, columns)
-                feedAdapter.items = items
+                feedAdapter.submit(searchUiModel)
             } else {
                 TransitionManager.beginDelayedTransition(
                     container, getTransition(io.plaidapp.core.R.transition.auto)
@@ -138,6 +136,7 @@ class SearchActivity : AppCompatActivity() {
         })
 
         viewModel.searchProgress.observe(this, Observer { progress ->
+            prefetchController.onLoadingChanged(progress.isLoading)
             if (progress.isLoading) {
                 feedAdapter.dataStartedLoading()
             } else {
@@ -145,8 +144,6 @@ class SearchActivity : AppCompatActivity() {
             }
         })
 
-        val shotPreloadSizeProvider = ViewPreloadSizeProvider<Shot>()
-
         setExitSharedElementCallback(FeedAdapter.createSharedElementReenterCallback(this))
         val layoutManager = GridLayoutManager(this, columns)
         layoutManager.spanSizeLookup = object : GridLayoutManager.SpanSizeLookup() {
@@ -154,14 +151,21 @@ class SearchActivity : AppCompatActivity() {
                 return feedAdapter.getItemColumnSpan(position)
             }
         }
-        val shotPreloader = RecyclerViewPreloader(this, feedAdapter, shotPreloadSizeProvider, 4)
+        val shotPreloader = PrefetchPreloader(
+            GlideApp.with(this),
+            layoutManager,
+            feedAdapter,
+            feedAdapter,
+            prefetchController
+        )
+        feedAdapter.registerAdapterDataObserver(shotPreloader.adapterDataObserver)
 
         results.apply {
             this.adapter = feedAdapter
             itemAnimator = SlideInItemAnimator()
             this.layoutManager = layoutManager
             addOnScrollListener(object :
-                InfiniteScrollListener(layoutManager) {
+                InfiniteScrollListener(layoutManager, prefetchController) {
                 override fun onLoadMore() {
                     viewModel.loadMore()
                 }
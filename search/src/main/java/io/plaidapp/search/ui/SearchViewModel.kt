@@ -20,11 +20,9 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.liveData
-import androidx.lifecycle.map
 import androidx.lifecycle.switchMap
 import androidx.lifecycle.viewModelScope
 import io.plaidapp.core.data.CoroutinesDispatcherProvider
-import io.plaidapp.core.data.PlaidItem
 import io.plaidapp.core.feed.FeedProgressUiModel
 import io.plaidapp.core.feed.FeedUiModel
 import io.plaidapp.search.domain.SearchDataSourceFactoriesRegistry
@@ -46,16 +44,21 @@ class SearchViewModel(
 
     private val searchQuery = MutableLiveData<String>()
 
-    private val results: LiveData<List<PlaidItem>> = searchQuery.switchMap {
+    // set by getSearchResults, before the results are observed
+    private var columns = 1
+
+    private val results: LiveData<FeedUiModel> = searchQuery.switchMap {
         liveData(viewModelScope.coroutineContext + dispatcherProvider.computation) {
-            loadSearchData = LoadSearchDataUseCase(factories, it)
+            loadSearchData = LoadSearchDataUseCase(factories, it, columns)
             loadMore()
             emitSource(loadSearchData!!.searchResult)
         }
     }
 
-    val searchResults: LiveData<FeedUiModel> = results.map {
-        FeedUiModel(it)
+    fun getSearchResults(columns: Int): LiveData<FeedUiModel> {
+        this.columns = columns
+        loadSearchData?.layOut(columns)
+        return results
     }
 
     private val _searchProgress = MutableLiveData<FeedProgressUiModel>()
@@ -52,6 +52,7 @@ class SearchViewModelTest {
     @get:Rule
     var instantTaskExecutorRule = InstantTaskExecutorRule()
 
+    private val columns = 2
     private val factory = FakeSearchDataSourceFactory()
     private val registry: SearchDataSourceFactoriesRegistry = mock()
 
@@ -75,7 +76,7 @@ class SearchViewModelTest {
         viewModel.searchFor(query)
 
         // Then search results emits with the data that was passed initially
-        val results = LiveDataTestUtil.getValue(viewModel.searchResults)
+        val results = LiveDataTestUtil.getValue(viewModel.getSearchResults(columns))
         assertEquals(results!!.items, result.data)
     }
 
@@ -95,7 +96,7 @@ class SearchViewModelTest {
         viewModel.loadMore()
 
         // Then search results emits with the data that was passed
-        val results = LiveDataTestUtil.getValue(viewModel.searchResults)
+        val results = LiveDataTestUtil.getValue(viewModel.getSearchResults(columns))
         assertEquals(results!!.items, moreResult.data)
     }
 }
@@ -20,9 +20,6 @@ import android.util.DisplayMetrics;
 import android.util.Patterns;
 import android.util.TypedValue;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 import in.uncod.android.bypass.Element.Type;
 import in.uncod.android.bypass.style.FancyQuoteSpan;
 import in.uncod.android.bypass.style.HorizontalLineSpan;
@@ -45,10 +42,6 @@ public class Bypass implements Markdown {
 
     private final int mHruleTopBottomPadding;
 
-    // Keeps track of the ordered list number for each LIST element.
-    // We need to track multiple ordered lists at once because of nesting.
-    private final Map<Element, Integer> mOrderedListNumber = new ConcurrentHashMap<Element, Integer>();
-
     public Bypass(DisplayMetrics displayMetrics, Options options) {
         mOptions = options;
 
@@ -73,22 +66,30 @@ public class Bypass implements Markdown {
         mHruleTopBottomPadding = (int) displayMetrics.density * 10;
     }
 
-    private static void setSpan(SpannableStringBuilder builder, Object what) {
-        builder.setSpan(what, 0, builder.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    // Spans are set on the range [start, end) of the builder, the part rendered by the element
+    private static void setSpan(SpannableStringBuilder builder, Object what, int start) {
+        setSpan(builder, what, start, builder.length());
     }
 
     // These have trailing newlines that we want to avoid spanning
-    private static void setBlockSpan(SpannableStringBuilder builder, Object what) {
-        int length = Math.max(0, builder.length() - 1);
-        builder.setSpan(what, 0, length, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    private static void setBlockSpan(SpannableStringBuilder builder, Object what, int start) {
+        setSpan(builder, what, start, Math.max(start, builder.length() - 1));
+    }
+
+    private static void setSpanWithPrependedNewline(
+            SpannableStringBuilder builder, Object what, int start) {
+        setSpan(builder, what, start + 1, builder.length());
     }
 
-    private static void setSpanWithPrependedNewline(SpannableStringBuilder builder, Object what) {
-        builder.setSpan(what, 1, builder.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    private static void setPrependedNewlineSpan(
+            SpannableStringBuilder builder, int height, int start) {
+        setSpan(builder, new AbsoluteSizeSpan(height, true), start, start + 1);
     }
 
-    private static void setPrependedNewlineSpan(SpannableStringBuilder builder, int height) {
-        builder.setSpan(new AbsoluteSizeSpan(height, true), 0, 1, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    private static void setSpan(SpannableStringBuilder builder, Object what, int start, int end) {
+        if (end > start) {
+            builder.setSpan(what, start, end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
     }
 
     @NonNull
@@ -99,15 +100,18 @@ public class Bypass implements Markdown {
                                             @Nullable LoadImageCallback loadImageCallback) {
         Document document = processMarkdown(markdown);
 
-        int size = document.getElementCount();
-        CharSequence[] spans = new CharSequence[size];
+        // All the elements are rendered into this builder. Their spans are set once they're
+        // rendered, so inner spans are set before outer ones; the builder returns them in
+        // reverse, putting the spans of outer elements first.
+        SpannableStringBuilder builder = new ReverseSpannableStringBuilder();
 
+        int size = document.getElementCount();
         for (int i = 0; i < size; i++) {
-            spans[i] = recurseElement(document.getElement(i), i, size, linksColors, highlightColor,
-                    loadImageCallback);
+            renderElement(builder, document.getElement(i), i, size, null, linksColors,
+                    highlightColor, loadImageCallback);
         }
 
-        return TextUtils.concat(spans);
+        return builder;
     }
 
     private native Document processMarkdown(String markdown);
@@ -115,52 +119,33 @@ public class Bypass implements Markdown {
     // The 'numberOfSiblings' parameters refers to the number of siblings within the parent, including
     // the 'element' parameter, as in "How many siblings are you?" rather than "How many siblings do
     // you have?".
-    private CharSequence recurseElement(
+    // The 'listNumber' parameter holds the number of the next item of the ordered list the element
+    // is in, and is null for anything else. It's scoped to a single call so that rendering is
+    // thread safe.
+    private void renderElement(
+            SpannableStringBuilder builder,
             Element element,
             int indexWithinParent,
             int numberOfSiblings,
+            @Nullable int[] listNumber,
             ColorStateList linksColors,
             int highlightColor,
             LoadImageCallback loadImageCallback) {
 
         Type type = element.getType();
+        int start = builder.length();
 
-        boolean isOrderedList = false;
+        int[] childListNumber = null;
         if (type == Type.LIST) {
             String flagsStr = element.getAttribute("flags");
             if (flagsStr != null) {
                 int flags = Integer.parseInt(flagsStr);
-                isOrderedList = (flags & Element.F_LIST_ORDERED) != 0;
-                if (isOrderedList) {
-                    mOrderedListNumber.put(element, 1);
+                if ((flags & Element.F_LIST_ORDERED) != 0) {
+                    childListNumber = new int[]{1};
                 }
             }
         }
 
-        int size = element.size();
-        CharSequence[] spans = new CharSequence[size];
-
-        for (int i = 0; i < size; i++) {
-            spans[i] = recurseElement(element.children[i], i, size, linksColors,
-                    highlightColor, loadImageCallback);
-        }
-
-        // Clean up after we're done
-        if (isOrderedList) {
-            mOrderedListNumber.remove(this);
-        }
-
-        CharSequence concat = TextUtils.concat(spans);
-
-        SpannableStringBuilder builder = new ReverseSpannableStringBuilder();
-
-        String text = element.getText();
-        if (element.size() == 0
-                && element.getParent() != null
-                && element.getParent().getType() != Type.BLOCK_CODE) {
-            text = text.replace('\n', ' ');
-        }
-
         switch (type) {
             case LIST:
                 if (element.getParent() != null
@@ -173,10 +158,8 @@ public class Bypass implements Markdown {
                 break;
             case LIST_ITEM:
                 builder.append(" ");
-                if (mOrderedListNumber.containsKey(element.getParent())) {
-                    int number = mOrderedListNumber.get(element.getParent());
-                    builder.append(Integer.toString(number) + ".");
-                    mOrderedListNumber.put(element.getParent(), number + 1);
+                if (listNumber != null) {
+                    builder.append(Integer.toString(listNumber[0]++)).append(".");
                 } else {
                     builder.append(mOptions.mUnorderedListItem);
                 }
@@ -200,8 +183,7 @@ public class Bypass implements Markdown {
                         alt = element.getAttribute("title");
                     }
                     if (!TextUtils.isEmpty(alt)) {
-                        alt = "[" + alt + "]";
-                        builder.append(alt);
+                        builder.append("[").append(alt).append("]");
                     } else {
                         // Character to be replaced
                         builder.append("\uFFFC");
@@ -213,8 +195,19 @@ public class Bypass implements Markdown {
                 break;
         }
 
+        String text = element.getText();
+        if (element.size() == 0
+                && element.getParent() != null
+                && element.getParent().getType() != Type.BLOCK_CODE) {
+            text = text.replace('\n', ' ');
+        }
         builder.append(text);
-        builder.append(concat);
+
+        int size = element.size();
+        for (int i = 0; i < size; i++) {
+            renderElement(builder, element.children[i], i, size, childListNumber, linksColors,
+                    highlightColor, loadImageCallback);
+        }
 
         // Don't auto-append whitespace after last item in document. The 'numberOfSiblings'
         // is the number of children the parent of the current element has (including the
@@ -245,27 +238,27 @@ public class Bypass implements Markdown {
             case HEADER:
                 String levelStr = element.getAttribute("level");
                 int level = Integer.parseInt(levelStr);
-                setSpan(builder, new RelativeSizeSpan(mOptions.mHeaderSizes[level - 1]));
-                setSpan(builder, new StyleSpan(Typeface.BOLD));
+                setSpan(builder, new RelativeSizeSpan(mOptions.mHeaderSizes[level - 1]), start);
+                setSpan(builder, new StyleSpan(Typeface.BOLD), start);
                 break;
             case LIST:
-                setBlockSpan(builder, new LeadingMarginSpan.Standard(mListItemIndent));
+                setBlockSpan(builder, new LeadingMarginSpan.Standard(mListItemIndent), start);
                 break;
             case EMPHASIS:
-                setSpan(builder, new StyleSpan(Typeface.ITALIC));
+                setSpan(builder, new StyleSpan(Typeface.ITALIC), start);
                 break;
             case DOUBLE_EMPHASIS:
-                setSpan(builder, new StyleSpan(Typeface.BOLD));
+                setSpan(builder, new StyleSpan(Typeface.BOLD), start);
                 break;
             case TRIPLE_EMPHASIS:
-                setSpan(builder, new StyleSpan(Typeface.BOLD_ITALIC));
+                setSpan(builder, new StyleSpan(Typeface.BOLD_ITALIC), start);
                 break;
             case BLOCK_CODE:
-                setSpan(builder, new LeadingMarginSpan.Standard(mCodeBlockIndent));
-                setSpan(builder, new TypefaceSpan("monospace"));
+                setSpan(builder, new LeadingMarginSpan.Standard(mCodeBlockIndent), start);
+                setSpan(builder, new TypefaceSpan("monospace"), start);
                 break;
             case CODE_SPAN:
-                setSpan(builder, new TypefaceSpan("monospace"));
+                setSpan(builder, new TypefaceSpan("monospace"), start);
                 break;
             case LINK:
             case AUTOLINK:
@@ -273,67 +266,66 @@ public class Bypass implements Markdown {
                 if (!TextUtils.isEmpty(link) && Patterns.EMAIL_ADDRESS.matcher(link).matches()) {
                     link = "mailto:" + link;
                 }
-                setSpan(builder, new TouchableUrlSpan(link, linksColors, highlightColor));
+                setSpan(builder, new TouchableUrlSpan(link, linksColors, highlightColor), start);
                 break;
             case BLOCK_QUOTE:
                 // We add two leading margin spans so that when the order is reversed,
                 // the QuoteSpan will always be in the same spot.
-                setBlockSpan(builder, new LeadingMarginSpan.Standard(mBlockQuoteIndent));
-                //setBlockSpan(builder, new QuoteSpan(mOptions.mBlockQuoteLineColor));
-                setBlockSpan(builder, new FancyQuoteSpan(mBlockQuoteLineWidth, mBlockQuoteLineIndent, mOptions.mBlockQuoteLineColor));
-                setBlockSpan(builder, new ForegroundColorSpan(mOptions.mBlockQuoteTextColor));
-                setBlockSpan(builder, new LeadingMarginSpan.Standard(mBlockQuoteIndent));
-                setBlockSpan(builder, new StyleSpan(Typeface.ITALIC));
+                setBlockSpan(builder, new LeadingMarginSpan.Standard(mBlockQuoteIndent), start);
+                //setBlockSpan(builder, new QuoteSpan(mOptions.mBlockQuoteLineColor), start);
+                setBlockSpan(builder, new FancyQuoteSpan(mBlockQuoteLineWidth, mBlockQuoteLineIndent, mOptions.mBlockQuoteLineColor), start);
+                setBlockSpan(builder, new ForegroundColorSpan(mOptions.mBlockQuoteTextColor), start);
+                setBlockSpan(builder, new LeadingMarginSpan.Standard(mBlockQuoteIndent), start);
+                setBlockSpan(builder, new StyleSpan(Typeface.ITALIC), start);
                 break;
             case STRIKETHROUGH:
-                setSpan(builder, new StrikethroughSpan());
+                setSpan(builder, new StrikethroughSpan(), start);
                 break;
             case HRULE:
-                setSpan(builder, new HorizontalLineSpan(mOptions.mHruleColor, mHruleSize, mHruleTopBottomPadding));
+                setSpan(builder, new HorizontalLineSpan(mOptions.mHruleColor, mHruleSize, mHruleTopBottomPadding), start);
                 break;
             case IMAGE:
                 String url = element.getAttribute("link");
                 if (loadImageCallback != null && !TextUtils.isEmpty(url)) {
-                    setPrependedNewlineSpan(builder, mOptions.mPreImageLinebreakHeight);
+                    setPrependedNewlineSpan(builder, mOptions.mPreImageLinebreakHeight, start);
                     ImageLoadingSpan loadingSpan = new ImageLoadingSpan();
-                    setSpanWithPrependedNewline(builder, loadingSpan);
+                    setSpanWithPrependedNewline(builder, loadingSpan, start);
                     // make the (eventually loaded) image span clickable to open in browser
                     setSpanWithPrependedNewline(builder, new TouchableUrlSpan(url,
                             linksColors,
-                            highlightColor));
+                            highlightColor), start);
                     loadImageCallback.loadImage(url, loadingSpan);
                 }
                 break;
         }
-
-        return builder;
     }
 
     /**
      * Configurable options for how Bypass renders certain elements.
      */
     public static final class Options {
-        private float[] mHeaderSizes;
+        // package private, so that other Markdown implementations can share the options
+        float[] mHeaderSizes;
 
-        private String mUnorderedListItem;
-        private int mListItemIndentUnit;
-        private float mListItemIndentSize;
+        String mUnorderedListItem;
+        int mListItemIndentUnit;
+        float mListItemIndentSize;
 
-        private int mBlockQuoteLineColor;
-        private int mBlockQuoteTextColor;
-        private int mBlockQuoteLineWidth;
-        private int mBlockQuoteLineIndent;
-        private int mBlockQuoteIndentUnit;
-        private float mBlockQuoteIndentSize;
+        int mBlockQuoteLineColor;
+        int mBlockQuoteTextColor;
+        int mBlockQuoteLineWidth;
+        int mBlockQuoteLineIndent;
+        int mBlockQuoteIndentUnit;
+        float mBlockQuoteIndentSize;
 
-        private int mPreImageLinebreakHeight;
+        int mPreImageLinebreakHeight;
 
-        private int mCodeBlockIndentUnit;
-        private float mCodeBlockIndentSize;
+        int mCodeBlockIndentUnit;
+        float mCodeBlockIndentSize;
 
-        private int mHruleColor;
-        private int mHruleUnit;
-        private float mHruleSize;
+        int mHruleColor;
+        int mHruleUnit;
+        float mHruleSize;
 
         public Options() {
             mHeaderSizes = new float[]{
@@ -0,0 +1,687 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package in.uncod.android.bypass;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import in.uncod.android.bypass.Element.Type;
+
+/**
+ * Markdown parser written in plain Java, so that it runs, and can be tested, on any JVM.
+ * <p/>
+ * Blocks are parsed line by line and their content character by character. Every element is
+ * reported to a {@link Handler} as soon as it's found, in document order, rather than building
+ * up a document tree first.
+ */
+public final class MarkdownParser {
+
+    /**
+     * Receives the elements of a markdown document, in document order. Every {@code start} call
+     * is matched by an {@link #end(Type)} call for the same type.
+     */
+    public interface Handler {
+
+        /**
+         * Starts a PARAGRAPH, BLOCK_QUOTE, BLOCK_CODE, LIST_ITEM, EMPHASIS, DOUBLE_EMPHASIS,
+         * TRIPLE_EMPHASIS, CODE_SPAN or STRIKETHROUGH element.
+         */
+        void start(@NonNull Type type);
+
+        void startHeader(int level);
+
+        void startList(boolean ordered);
+
+        /**
+         * Starts a LINK or AUTOLINK element pointing to {@code link}.
+         */
+        void startLink(@NonNull Type type, @NonNull String link);
+
+        void end(@NonNull Type type);
+
+        void text(@NonNull CharSequence text);
+
+        void image(@NonNull String link, @Nullable String alt, @Nullable String title);
+
+        void hrule();
+
+        void lineBreak();
+    }
+
+    private static final int CODE_INDENT = 4;
+    private static final String TAB = "    ";
+    // deeper elements are kept as text, so that malicious input can't overflow the stack
+    private static final int MAX_NESTING = 16;
+
+    private static final Pattern ATX_HEADER = Pattern.compile("^ {0,3}(#{1,6})[ ]*(.*?)[ #]*$");
+    private static final Pattern SETEXT_UNDERLINE = Pattern.compile("^ {0,3}(=+|-+) *$");
+    private static final Pattern HRULE =
+            Pattern.compile("^ {0,3}(?:(?:\\* *){3,}|(?:- *){3,}|(?:_ *){3,})$");
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(`{3,}|~{3,})[^`]*$");
+    private static final Pattern QUOTE = Pattern.compile("^ {0,3}> ?");
+    private static final Pattern LIST_ITEM = Pattern.compile("^ {0,3}([*+-]|\\d{1,9}\\.)( +)");
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+
+    private static final String BLOCK_START_CHARS = "#`~>*+-_";
+    private static final String ESCAPABLE = "\\`*_{}[]()#+-.!~>";
+
+    private MarkdownParser() {
+    }
+
+    public static void parse(@NonNull String markdown, @NonNull Handler handler) {
+        String normalized = markdown.replace("\r\n", "\n").replace('\r', '\n').replace("\t", TAB);
+        parseBlocks(Arrays.asList(normalized.split("\n", -1)), handler, 0, false);
+    }
+
+    private static void parseBlocks(
+            List<String> lines,
+            Handler handler,
+            int depth,
+            boolean inListItem) {
+        int i = 0;
+        while (i < lines.size()) {
+            String line = lines.get(i);
+            Matcher matcher;
+            if (isBlank(line)) {
+                i++;
+            } else if (indentOf(line) >= CODE_INDENT) {
+                i = parseIndentedCode(lines, i, handler);
+            } else if ((matcher = FENCE.matcher(line)).matches()) {
+                i = parseFencedCode(lines, i, matcher.group(1), handler);
+            } else if ((matcher = ATX_HEADER.matcher(line)).matches()) {
+                handler.startHeader(matcher.group(1).length());
+                parseInline(matcher.group(2), handler, depth);
+                handler.end(Type.HEADER);
+                i++;
+            } else if (HRULE.matcher(line).matches()) {
+                handler.hrule();
+                i++;
+            } else if (depth < MAX_NESTING && QUOTE.matcher(line).lookingAt()) {
+                i = parseQuote(lines, i, handler, depth);
+            } else if (depth < MAX_NESTING && LIST_ITEM.matcher(line).lookingAt()) {
+                i = parseList(lines, i, handler, depth);
+            } else {
+                i = parseParagraph(lines, i, handler, depth, inListItem);
+            }
+        }
+    }
+
+    private static int parseIndentedCode(List<String> lines, int start, Handler handler) {
+        int end = start;
+        while (end < lines.size()
+                && (isBlank(lines.get(end)) || indentOf(lines.get(end)) >= CODE_INDENT)) {
+            end++;
+        }
+        // trailing blank lines separate the code from what follows, they're not part of it
+        int last = end;
+        while (isBlank(lines.get(last - 1))) last--;
+
+        StringBuilder code = new StringBuilder();
+        for (int i = start; i < last; i++) {
+            if (i > start) code.append('\n');
+            String line = lines.get(i);
+            if (line.length() > CODE_INDENT) code.append(line, CODE_INDENT, line.length());
+        }
+        emitCode(code, handler);
+        return end;
+    }
+
+    private static int parseFencedCode(
+            List<String> lines,
+            int start,
+            String fence,
+            Handler handler) {
+        StringBuilder code = new StringBuilder();
+        int i = start + 1;
+        while (i < lines.size() && !isClosingFence(lines.get(i), fence)) {
+            if (i > start + 1) code.append('\n');
+            code.append(lines.get(i));
+            i++;
+        }
+        emitCode(code, handler);
+        // skip the closing fence, if there is one
+        return Math.min(i + 1, lines.size());
+    }
+
+    private static void emitCode(CharSequence code, Handler handler) {
+        handler.start(Type.BLOCK_CODE);
+        handler.text(code);
+        handler.end(Type.BLOCK_CODE);
+    }
+
+    private static int parseQuote(List<String> lines, int start, Handler handler, int depth) {
+        List<String> content = new ArrayList<>();
+        int i = start;
+        while (i < lines.size()) {
+            String line = lines.get(i);
+            Matcher quote = QUOTE.matcher(line);
+            if (quote.lookingAt()) {
+                content.add(line.substring(quote.end()));
+            } else if (isBlank(line)) {
+                // a blank line only ends the quote if the next line isn't quoted as well
+                if (i + 1 >= lines.size() || !QUOTE.matcher(lines.get(i + 1)).lookingAt()) break;
+                content.add("");
+            } else if (!isBlank(content.get(content.size() - 1)) && !startsBlock(line)) {
+                // lazy continuation of the quoted paragraph
+                content.add(line);
+            } else {
+                break;
+            }
+            i++;
+        }
+        handler.start(Type.BLOCK_QUOTE);
+        parseBlocks(content, handler, depth + 1, false);
+        handler.end(Type.BLOCK_QUOTE);
+        return i;
+    }
+
+    private static int parseList(List<String> lines, int start, Handler handler, int depth) {
+        boolean ordered = isOrdered(lines.get(start));
+        handler.startList(ordered);
+        int i = start;
+        while (i < lines.size()) {
+            String line = lines.get(i);
+            Matcher marker = LIST_ITEM.matcher(line);
+            if (!marker.lookingAt()
+                    || HRULE.matcher(line).matches()
+                    || isOrdered(line) != ordered) {
+                break;
+            }
+            // content more than 4 spaces after the marker is an indented code block
+            int contentIndent = marker.group(2).length() > CODE_INDENT
+                    ? marker.start(2) + 1
+                    : marker.end();
+
+            List<String> item = new ArrayList<>();
+            item.add(line.substring(Math.min(contentIndent, line.length())));
+            i++;
+            while (i < lines.size()) {
+                String next = lines.get(i);
+                if (isBlank(next)) {
+                    item.add("");
+                } else if (indentOf(next) >= contentIndent) {
+                    item.add(next.substring(contentIndent));
+                } else if (!isBlank(item.get(item.size() - 1)) && !startsBlock(next)) {
+                    // lazy continuation of the item's paragraph
+                    item.add(next.trim());
+                } else {
+                    break;
+                }
+                i++;
+            }
+
+            handler.start(Type.LIST_ITEM);
+            parseBlocks(item, handler, depth + 1, true);
+            handler.end(Type.LIST_ITEM);
+        }
+        handler.end(Type.LIST);
+        return i;
+    }
+
+    private static int parseParagraph(
+            List<String> lines,
+            int start,
+            Handler handler,
+            int depth,
+            boolean inListItem) {
+        StringBuilder text = new StringBuilder(stripLeading(lines.get(start)));
+        int i = start + 1;
+        while (i < lines.size()) {
+            String line = lines.get(i);
+            if (isBlank(line)) break;
+            Matcher underline = SETEXT_UNDERLINE.matcher(line);
+            if (underline.matches()) {
+                handler.startHeader(underline.group(1).charAt(0) == '=' ? 1 : 2);
+                parseInline(text.toString().trim(), handler, depth);
+                handler.end(Type.HEADER);
+                return i + 1;
+            }
+            // lists can only interrupt a paragraph in a list item, as they'd be nested lists
+            if (startsBlock(line) && (inListItem || !LIST_ITEM.matcher(line).lookingAt())) break;
+            text.append('\n').append(stripLeading(line));
+            i++;
+        }
+        handler.start(Type.PARAGRAPH);
+        parseInline(text.toString().trim(), handler, depth);
+        handler.end(Type.PARAGRAPH);
+        return i;
+    }
+
+    private static void parseInline(String text, Handler handler, int depth) {
+        new InlineParser(text, handler).parse(0, text.length(), depth);
+    }
+
+    private static boolean startsBlock(String line) {
+        int indent = indentOf(line);
+        if (indent >= line.length()) return false;
+        // avoid running the patterns on lines that can't start a block, i.e. most of them
+        char first = line.charAt(indent);
+        if (BLOCK_START_CHARS.indexOf(first) < 0 && !Character.isDigit(first)) return false;
+        return FENCE.matcher(line).matches()
+                || ATX_HEADER.matcher(line).matches()
+                || HRULE.matcher(line).matches()
+                || QUOTE.matcher(line).lookingAt()
+                || LIST_ITEM.matcher(line).lookingAt();
+    }
+
+    private static boolean isClosingFence(String line, String fence) {
+        String trimmed = line.trim();
+        if (trimmed.length() < fence.length()) return false;
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (trimmed.charAt(i) != fence.charAt(0)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isOrdered(String line) {
+        return Character.isDigit(line.charAt(indentOf(line)));
+    }
+
+    private static boolean isBlank(String line) {
+        return line.trim().isEmpty();
+    }
+
+    private static int indentOf(String line) {
+        int indent = 0;
+        while (indent < line.length() && line.charAt(indent) == ' ') indent++;
+        return indent;
+    }
+
+    private static String stripLeading(String line) {
+        return line.substring(indentOf(line));
+    }
+
+    /**
+     * Parses the content of a block, reporting text in as few {@link Handler#text} calls as
+     * possible.
+     */
+    private static final class InlineParser {
+
+        private final String input;
+        private final Handler handler;
+        private final StringBuilder text = new StringBuilder();
+        private boolean inLink = false;
+
+        InlineParser(String input, Handler handler) {
+            this.input = input;
+            this.handler = handler;
+        }
+
+        void parse(int start, int end, int depth) {
+            int i = start;
+            while (i < end) {
+                char c = input.charAt(i);
+                int next = -1;
+                switch (c) {
+                    case '\\':
+                        if (i + 1 < end && ESCAPABLE.indexOf(input.charAt(i + 1)) >= 0) {
+                            text.append(input.charAt(i + 1));
+                            next = i + 2;
+                        }
+                        break;
+                    case '\n':
+                        newline();
+                        next = i + 1;
+                        break;
+                    case '`':
+                        next = codeSpan(i, end);
+                        break;
+                    case '*':
+                    case '_':
+                        next = emphasis(i, end, depth);
+                        break;
+                    case '~':
+                        next = strikethrough(i, end, depth);
+                        break;
+                    case '!':
+                        next = image(i, end);
+                        break;
+                    case '[':
+                        next = link(i, end, depth);
+                        break;
+                    case '<':
+                        next = angleAutolink(i, end);
+                        break;
+                    case 'h':
+                    case 'w':
+                        next = plainAutolink(i, end);
+                        break;
+                }
+                if (next == -1) {
+                    text.append(c);
+                    i++;
+                } else {
+                    i = next;
+                }
+            }
+            flush();
+        }
+
+        private void flush() {
+            if (text.length() > 0) {
+                handler.text(text.toString());
+                text.setLength(0);
+            }
+        }
+
+        /**
+         * Lines of a paragraph are joined with spaces, unless the line ends with two spaces to
+         * mark a line break.
+         */
+        private void newline() {
+            int spaces = 0;
+            while (spaces < text.length() && text.charAt(text.length() - 1 - spaces) == ' ') {
+                spaces++;
+            }
+            text.setLength(text.length() - spaces);
+            if (spaces >= 2) {
+                flush();
+                handler.lineBreak();
+            } else {
+                text.append(' ');
+            }
+        }
+
+        private int codeSpan(int start, int end) {
+            int run = runLength(start, end, '`');
+            int i = start + run;
+            while (i < end) {
+                if (input.charAt(i) == '`') {
+                    int closing = runLength(i, end, '`');
+                    if (closing == run) {
+                        flush();
+                        handler.start(Type.CODE_SPAN);
+                        handler.text(input.substring(start + run, i).replace('\n', ' ').trim());
+                        handler.end(Type.CODE_SPAN);
+                        return i + run;
+                    }
+                    i += closing;
+                } else {
+                    i++;
+                }
+            }
+            // unmatched, so the whole run is text
+            text.append(input, start, start + run);
+            return start + run;
+        }
+
+        private int emphasis(int start, int end, int depth) {
+            char delimiter = input.charAt(start);
+            int run = runLength(start, end, delimiter);
+            boolean canOpen = run <= 3
+                    && depth < MAX_NESTING
+                    && start + run < end
+                    && !Character.isWhitespace(input.charAt(start + run))
+                    && !(delimiter == '_' && start > 0
+                    && Character.isLetterOrDigit(input.charAt(start - 1)));
+            int close = canOpen ? findEmphasisClose(delimiter, run, start + run, end) : -1;
+            if (close == -1) {
+                text.append(input, start, start + run);
+                return start + run;
+            }
+            Type type = run == 1 ? Type.EMPHASIS
+                    : run == 2 ? Type.DOUBLE_EMPHASIS
+                    : Type.TRIPLE_EMPHASIS;
+            flush();
+            handler.start(type);
+            parse(start + run, close, depth + 1);
+            handler.end(type);
+            return close + run;
+        }
+
+        /**
+         * Finds the delimiter run closing an emphasis opened by {@code run} delimiters, skipping
+         * the ones closing nested emphases.
+         */
+        private int findEmphasisClose(char delimiter, int run, int start, int end) {
+            Deque<Integer> nested = new ArrayDeque<>();
+            int i = start;
+            while (i < end) {
+                char c = input.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                    continue;
+                }
+                if (c != delimiter) {
+                    i++;
+                    continue;
+                }
+                int length = runLength(i, end, delimiter);
+                boolean canClose = !Character.isWhitespace(input.charAt(i - 1))
+                        && !(delimiter == '_' && i + length < end
+                        && Character.isLetterOrDigit(input.charAt(i + length)));
+                boolean canOpen = i + length < end
+                        && !Character.isWhitespace(input.charAt(i + length));
+                if (canClose) {
+                    int remaining = length;
+                    while (!nested.isEmpty() && nested.peek() <= remaining) {
+                        remaining -= nested.pop();
+                    }
+                    if (nested.isEmpty() && remaining == run) return i + length - run;
+                    if (remaining < length) {
+                        i += length;
+                        continue;
+                    }
+                }
+                if (canOpen) nested.push(length);
+                i += length;
+            }
+            return -1;
+        }
+
+        private int strikethrough(int start, int end, int depth) {
+            if (depth >= MAX_NESTING
+                    || !input.startsWith("~~", start)
+                    || start + 2 >= end
+                    || Character.isWhitespace(input.charAt(start + 2))) {
+                return -1;
+            }
+            int close = input.indexOf("~~", start + 2);
+            if (close == -1 || close + 2 > end
+                    || Character.isWhitespace(input.charAt(close - 1))) {
+                return -1;
+            }
+            flush();
+            handler.start(Type.STRIKETHROUGH);
+            parse(start + 2, close, depth + 1);
+            handler.end(Type.STRIKETHROUGH);
+            return close + 2;
+        }
+
+        private int image(int start, int end) {
+            if (start + 1 >= end || input.charAt(start + 1) != '[') return -1;
+            int labelEnd = findLabelEnd(start + 1, end);
+            if (labelEnd == -1) return -1;
+            Destination destination = parseDestination(labelEnd + 1, end);
+            if (destination == null) return -1;
+            flush();
+            handler.image(
+                    destination.link,
+                    input.substring(start + 2, labelEnd),
+                    destination.title);
+            return destination.end;
+        }
+
+        private int link(int start, int end, int depth) {
+            if (inLink || depth >= MAX_NESTING) return -1;
+            int labelEnd = findLabelEnd(start, end);
+            if (labelEnd == -1) return -1;
+            Destination destination = parseDestination(labelEnd + 1, end);
+            if (destination == null) return -1;
+            flush();
+            handler.startLink(Type.LINK, destination.link);
+            inLink = true;
+            parse(start + 1, labelEnd, depth + 1);
+            inLink = false;
+            handler.end(Type.LINK);
+            return destination.end;
+        }
+
+        /**
+         * Index of the {@code ]} closing the label opened at {@code start}, or -1.
+         */
+        private int findLabelEnd(int start, int end) {
+            int nesting = 0;
+            for (int i = start + 1; i < end; i++) {
+                char c = input.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '[') {
+                    nesting++;
+                } else if (c == ']') {
+                    if (nesting == 0) return i;
+                    nesting--;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Parses a {@code (link "title")} destination starting at {@code start}.
+         */
+        @Nullable
+        private Destination parseDestination(int start, int end) {
+            if (start >= end || input.charAt(start) != '(') return null;
+            int i = skipSpaces(start + 1, end);
+            int linkStart = i;
+            int linkEnd;
+            if (i < end && input.charAt(i) == '<') {
+                linkStart = i + 1;
+                linkEnd = input.indexOf('>', linkStart);
+                if (linkEnd == -1 || linkEnd >= end) return null;
+                i = linkEnd + 1;
+            } else {
+                int parentheses = 0;
+                while (i < end && !Character.isWhitespace(input.charAt(i))) {
+                    char c = input.charAt(i);
+                    if (c == '(') {
+                        parentheses++;
+                    } else if (c == ')') {
+                        if (parentheses == 0) break;
+                        parentheses--;
+                    }
+                    i++;
+                }
+                linkEnd = i;
+            }
+            i = skipSpaces(i, end);
+
+            String title = null;
+            if (i < end && (input.charAt(i) == '"' || input.charAt(i) == '\'')) {
+                int titleEnd = input.indexOf(input.charAt(i), i + 1);
+                if (titleEnd == -1 || titleEnd >= end) return null;
+                title = input.substring(i + 1, titleEnd);
+                i = skipSpaces(titleEnd + 1, end);
+            }
+            if (i >= end || input.charAt(i) != ')') return null;
+            return new Destination(input.substring(linkStart, linkEnd), title, i + 1);
+        }
+
+        private int angleAutolink(int start, int end) {
+            int i = start + 1;
+            while (i < end && input.charAt(i) != '>' && !Character.isWhitespace(input.charAt(i))) {
+                i++;
+            }
+            if (i >= end || input.charAt(i) != '>') return -1;
+            String link = input.substring(start + 1, i);
+            if (!hasScheme(link) && !EMAIL.matcher(link).matches()) return -1;
+            emitAutolink(link, link);
+            return i + 1;
+        }
+
+        private int plainAutolink(int start, int end) {
+            if (inLink || (start > 0 && Character.isLetterOrDigit(input.charAt(start - 1)))) {
+                return -1;
+            }
+            boolean www = input.regionMatches(true, start, "www.", 0, 4);
+            if (!www && !hasScheme(input.substring(start, Math.min(end, start + 8)))) return -1;
+
+            int i = start;
+            while (i < end && !Character.isWhitespace(input.charAt(i)) && input.charAt(i) != '<') {
+                i++;
+            }
+            // trailing punctuation is most likely part of the sentence, not of the link
+            while (i > start && ".,:;!?\"')*_".indexOf(input.charAt(i - 1)) >= 0) {
+                if (input.charAt(i - 1) == ')'
+                        && count(start, i, '(') >= count(start, i, ')')) {
+                    break;
+                }
+                i--;
+            }
+            String linkText = input.substring(start, i);
+            if (linkText.length() <= (www ? 4 : linkText.indexOf("//") + 2)) return -1;
+            emitAutolink(www ? "http://" + linkText : linkText, linkText);
+            return i;
+        }
+
+        private void emitAutolink(String link, String linkText) {
+            flush();
+            handler.startLink(Type.AUTOLINK, link);
+            handler.text(linkText);
+            handler.end(Type.AUTOLINK);
+        }
+
+        private boolean hasScheme(String link) {
+            String lowerCase = link.toLowerCase();
+            return lowerCase.startsWith("http://")
+                    || lowerCase.startsWith("https://")
+                    || lowerCase.startsWith("ftp://")
+                    || lowerCase.startsWith("mailto:");
+        }
+
+        private int runLength(int start, int end, char c) {
+            int i = start;
+            while (i < end && input.charAt(i) == c) i++;
+            return i - start;
+        }
+
+        private int count(int start, int end, char c) {
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                if (input.charAt(i) == c) count++;
+            }
+            return count;
+        }
+
+        private int skipSpaces(int start, int end) {
+            int i = start;
+            while (i < end && Character.isWhitespace(input.charAt(i))) i++;
+            return i;
+        }
+    }
+
+    private static final class Destination {
+        final String link;
+        @Nullable
+        final String title;
+        final int end;
+
+        Destination(String link, @Nullable String title, int end) {
+            this.link = link;
+            this.title = title;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package in.uncod.android.bypass;
+
+import android.content.res.ColorStateList;
+import android.graphics.Typeface;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.TextUtils;
+import android.text.style.AbsoluteSizeSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.LeadingMarginSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StrikethroughSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.util.DisplayMetrics;
+import android.util.Patterns;
+import android.util.TypedValue;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import in.uncod.android.bypass.Element.Type;
+import in.uncod.android.bypass.style.FancyQuoteSpan;
+import in.uncod.android.bypass.style.HorizontalLineSpan;
+import in.uncod.android.bypass.style.ImageLoadingSpan;
+import in.uncod.android.bypass.style.TouchableUrlSpan;
+
+/**
+ * {@link Markdown} implementation rendering the same spans as {@link Bypass}, but in pure Java
+ * rather than through the native library.
+ * <p/>
+ * The spannable is built while {@link MarkdownParser} goes through the document, so no document
+ * tree or intermediate spannables are created. This class holds no state between calls, so it
+ * can be used from several threads at once.
+ */
+public class StreamingMarkdown implements Markdown {
+
+    private static final String PARAGRAPH_BREAK = "\n\n";
+    private static final String LINE_BREAK = "\n";
+    // Character to be replaced by an image
+    private static final String OBJECT_REPLACEMENT = "\uFFFC";
+
+    private final Bypass.Options mOptions;
+
+    private final int mListItemIndent;
+    private final int mBlockQuoteIndent;
+    private final int mBlockQuoteLineWidth;
+    private final int mBlockQuoteLineIndent;
+    private final int mCodeBlockIndent;
+    private final int mHruleSize;
+
+    private final int mHruleTopBottomPadding;
+
+    public StreamingMarkdown(DisplayMetrics displayMetrics, Bypass.Options options) {
+        mOptions = options;
+
+        mListItemIndent = (int) TypedValue.applyDimension(mOptions.mListItemIndentUnit,
+                mOptions.mListItemIndentSize, displayMetrics);
+
+        mBlockQuoteIndent = (int) TypedValue.applyDimension(mOptions.mBlockQuoteIndentUnit,
+                mOptions.mBlockQuoteIndentSize, displayMetrics);
+
+        mBlockQuoteLineWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+                mOptions.mBlockQuoteLineWidth, displayMetrics);
+
+        mBlockQuoteLineIndent = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+                mOptions.mBlockQuoteLineIndent, displayMetrics);
+
+        mCodeBlockIndent = (int) TypedValue.applyDimension(mOptions.mCodeBlockIndentUnit,
+                mOptions.mCodeBlockIndentSize, displayMetrics);
+
+        mHruleSize = (int) TypedValue.applyDimension(mOptions.mHruleUnit,
+                mOptions.mHruleSize, displayMetrics);
+
+        mHruleTopBottomPadding = (int) displayMetrics.density * 10;
+    }
+
+    @NonNull
+    @Override
+    public CharSequence markdownToSpannable(@NonNull String markdown,
+                                            @NonNull ColorStateList linksColors,
+                                            int highlightColor,
+                                            @Nullable LoadImageCallback loadImageCallback) {
+        SpanBuilder builder = new SpanBuilder(linksColors, highlightColor, loadImageCallback);
+        MarkdownParser.parse(markdown, builder);
+        return builder.build();
+    }
+
+    /**
+     * Appends the elements reported by the parser to a single {@link SpannableStringBuilder}.
+     * <p/>
+     * The spans of an element are created when it starts and only attached once the whole
+     * document is built, in the order they were created. This puts the spans of outer elements
+     * before the ones of the elements they contain, the order {@link Bypass} returns them in,
+     * which matters for leading margins.
+     */
+    private final class SpanBuilder implements MarkdownParser.Handler {
+
+        private final ColorStateList mLinksColors;
+        private final int mHighlightColor;
+        @Nullable
+        private final LoadImageCallback mLoadImageCallback;
+
+        private final SpannableStringBuilder mText = new SpannableStringBuilder();
+        private final List<PendingSpan> mSpans = new ArrayList<>();
+        private final Deque<OpenElement> mOpenElements = new ArrayDeque<>();
+        private final List<PendingImage> mImages = new ArrayList<>();
+
+        // separator to append before the next block, so that there's none after the last one
+        @Nullable
+        private String mPendingBreak = null;
+
+        SpanBuilder(ColorStateList linksColors,
+                    int highlightColor,
+                    @Nullable LoadImageCallback loadImageCallback) {
+            mLinksColors = linksColors;
+            mHighlightColor = highlightColor;
+            mLoadImageCallback = loadImageCallback;
+        }
+
+        @Override
+        public void start(@NonNull Type type) {
+            switch (type) {
+                case PARAGRAPH:
+                    startBlock();
+                    open(type);
+                    break;
+                case BLOCK_QUOTE:
+                    startBlock();
+                    // the reverse of the order Bypass sets them in, see the class comment
+                    open(type,
+                            new StyleSpan(Typeface.ITALIC),
+                            new LeadingMarginSpan.Standard(mBlockQuoteIndent),
+                            new ForegroundColorSpan(mOptions.mBlockQuoteTextColor),
+                            new FancyQuoteSpan(mBlockQuoteLineWidth, mBlockQuoteLineIndent,
+                                    mOptions.mBlockQuoteLineColor),
+                            new LeadingMarginSpan.Standard(mBlockQuoteIndent));
+                    break;
+                case BLOCK_CODE:
+                    startBlock();
+                    open(type,
+                            new TypefaceSpan("monospace"),
+                            new LeadingMarginSpan.Standard(mCodeBlockIndent));
+                    break;
+                case LIST_ITEM:
+                    startBlock();
+                    OpenElement list = mOpenElements.peek();
+                    mText.append(" ");
+                    if (list != null && list.mNextNumber > 0) {
+                        mText.append(Integer.toString(list.mNextNumber++)).append(".");
+                    } else {
+                        mText.append(mOptions.mUnorderedListItem);
+                    }
+                    mText.append("  ");
+                    open(type);
+                    break;
+                case EMPHASIS:
+                    open(type, new StyleSpan(Typeface.ITALIC));
+                    break;
+                case DOUBLE_EMPHASIS:
+                    open(type, new StyleSpan(Typeface.BOLD));
+                    break;
+                case TRIPLE_EMPHASIS:
+                    open(type, new StyleSpan(Typeface.BOLD_ITALIC));
+                    break;
+                case CODE_SPAN:
+                    open(type, new TypefaceSpan("monospace"));
+                    break;
+                case STRIKETHROUGH:
+                    open(type, new StrikethroughSpan());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected element " + type);
+            }
+        }
+
+        @Override
+        public void startHeader(int level) {
+            startBlock();
+            open(Type.HEADER,
+                    new StyleSpan(Typeface.BOLD),
+                    new RelativeSizeSpan(mOptions.mHeaderSizes[level - 1]));
+        }
+
+        @Override
+        public void startList(boolean ordered) {
+            startBlock();
+            open(Type.LIST, new LeadingMarginSpan.Standard(mListItemIndent))
+                    .mNextNumber = ordered ? 1 : 0;
+        }
+
+        @Override
+        public void startLink(@NonNull Type type, @NonNull String link) {
+            if (Patterns.EMAIL_ADDRESS.matcher(link).matches()) {
+                link = "mailto:" + link;
+            }
+            open(type, new TouchableUrlSpan(link, mLinksColors, mHighlightColor));
+        }
+
+        @Override
+        public void end(@NonNull Type type) {
+            OpenElement element = mOpenElements.pop();
+            for (int i = element.mFirstSpan; i < element.mLastSpan; i++) {
+                mSpans.get(i).mEnd = mText.length();
+            }
+            switch (type) {
+                case LIST_ITEM:
+                    // list items never double space their entries
+                    mPendingBreak = LINE_BREAK;
+                    break;
+                case PARAGRAPH:
+                case BLOCK_QUOTE:
+                case BLOCK_CODE:
+                case HEADER:
+                case LIST:
+                    endBlock();
+                    break;
+            }
+        }
+
+        @Override
+        public void text(@NonNull CharSequence text) {
+            mText.append(text);
+        }
+
+        @Override
+        public void image(@NonNull String link, @Nullable String alt, @Nullable String title) {
+            if (mLoadImageCallback == null || TextUtils.isEmpty(link)) {
+                mText.append(OBJECT_REPLACEMENT);
+                return;
+            }
+            int start = mText.length();
+            // prepend a new line so that images are always on a new line
+            mText.append(LINE_BREAK);
+            // Display alt text (or title text) if there is no image
+            String text = TextUtils.isEmpty(alt) ? title : alt;
+            mText.append(TextUtils.isEmpty(text) ? OBJECT_REPLACEMENT : "[" + text + "]");
+
+            ImageLoadingSpan loadingSpan = new ImageLoadingSpan();
+            // make the (eventually loaded) image span clickable to open in browser
+            addSpan(new TouchableUrlSpan(link, mLinksColors, mHighlightColor),
+                    start + 1, mText.length());
+            addSpan(loadingSpan, start + 1, mText.length());
+            addSpan(new AbsoluteSizeSpan(mOptions.mPreImageLinebreakHeight, true),
+                    start, start + 1);
+            mImages.add(new PendingImage(link, loadingSpan));
+        }
+
+        @Override
+        public void hrule() {
+            startBlock();
+            int start = mText.length();
+            // This ultimately gets drawn over by the line span, but
+            // we need something here or the span isn't even drawn.
+            mText.append("-");
+            addSpan(new HorizontalLineSpan(mOptions.mHruleColor, mHruleSize,
+                    mHruleTopBottomPadding), start, mText.length());
+            endBlock();
+        }
+
+        @Override
+        public void lineBreak() {
+            mText.append(LINE_BREAK);
+        }
+
+        CharSequence build() {
+            for (PendingSpan span : mSpans) {
+                if (span.mEnd > span.mStart) {
+                    mText.setSpan(span.mWhat, span.mStart, span.mEnd,
+                            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+            }
+            // only load the images once their loading spans are in the text
+            for (PendingImage image : mImages) {
+                mLoadImageCallback.loadImage(image.mLink, image.mLoadingSpan);
+            }
+            return mText;
+        }
+
+        private void startBlock() {
+            if (mPendingBreak != null) {
+                mText.append(mPendingBreak);
+                mPendingBreak = null;
+            }
+        }
+
+        private void endBlock() {
+            OpenElement container = mOpenElements.peek();
+            mPendingBreak = container != null && container.mType == Type.LIST_ITEM
+                    ? LINE_BREAK
+                    : PARAGRAPH_BREAK;
+        }
+
+        private OpenElement open(Type type, Object... spans) {
+            int start = mText.length();
+            int firstSpan = mSpans.size();
+            for (Object span : spans) {
+                addSpan(span, start, start);
+            }
+            OpenElement element = new OpenElement(type, firstSpan, mSpans.size());
+            mOpenElements.push(element);
+            return element;
+        }
+
+        private void addSpan(Object what, int start, int end) {
+            mSpans.add(new PendingSpan(what, start, end));
+        }
+    }
+
+    private static final class OpenElement {
+        final Type mType;
+        final int mFirstSpan;
+        final int mLastSpan;
+        // number of the next item of an ordered list, 0 for other elements
+        int mNextNumber = 0;
+
+        OpenElement(Type type, int firstSpan, int lastSpan) {
+            mType = type;
+            mFirstSpan = firstSpan;
+            mLastSpan = lastSpan;
+        }
+    }
+
+    private static final class PendingSpan {
+        final Object mWhat;
+        final int mStart;
+        int mEnd;
+
+        PendingSpan(Object what, int start, int end) {
+            mWhat = what;
+            mStart = start;
+            mEnd = end;
+        }
+    }
+
+    private static final class PendingImage {
+        final String mLink;
+        final ImageLoadingSpan mLoadingSpan;
+
+        PendingImage(String link, ImageLoadingSpan loadingSpan) {
+            mLink = link;
+            mLoadingSpan = loadingSpan;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package `in`.uncod.android.bypass
+
+import `in`.uncod.android.bypass.Element.Type
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Tests for [MarkdownParser], recording the elements it reports in an HTML like form.
+ */
+class MarkdownParserTest {
+
+    @Test
+    fun parsesParagraphs() {
+        assertParsed(
+            "<p>first line second line</p><p>new paragraph<br>broken line</p>",
+            "first line\nsecond line\n\nnew paragraph  \nbroken line"
+        )
+    }
+
+    @Test
+    fun parsesEmphasis() {
+        assertParsed(
+            "<p><em>a <strong>b</strong> c</em> <strong>bold <em>it</em></strong> " +
+                "<strong><em>both</em></strong> <del>gone</del></p>",
+            "*a **b** c* **bold *it*** ***both*** ~~gone~~"
+        )
+    }
+
+    @Test
+    fun keepsUnmatchedAndIntrawordDelimitersAsText() {
+        assertParsed(
+            "<p>snake_case_name * not emphasis * *escaped*</p>",
+            "snake_case_name * not emphasis * \\*escaped\\*"
+        )
+    }
+
+    @Test
+    fun parsesCode() {
+        assertParsed(
+            "<p><code>*not emphasis*</code></p><pre>line 1\n\nline 2</pre>" +
+                "<pre>fenced *code*</pre>",
+            "`*not emphasis*`\n\n    line 1\n\n    line 2\n\n```\nfenced *code*\n```"
+        )
+    }
+
+    @Test
+    fun parsesHeadersAndRules() {
+        assertParsed(
+            "<h1>Atx</h1><h2>Setext</h2><hr><hr>",
+            "# Atx #\nSetext\n---\n\n***\n- - -"
+        )
+    }
+
+    @Test
+    fun parsesNestedQuotes() {
+        assertParsed(
+            "<blockquote><p>quoted lazy</p><blockquote><p>nested</p></blockquote></blockquote>" +
+                "<p>after</p>",
+            "> quoted\nlazy\n> > nested\n\nafter"
+        )
+    }
+
+    @Test
+    fun parsesNestedLists() {
+        assertParsed(
+            "<ul><li><p>one</p><ul><li><p>sub</p></li></ul></li><li><p>two</p></li></ul>" +
+                "<ol><li><p>first</p></li><li><p>second</p></li></ol>",
+            "- one\n  - sub\n- two\n\n1. first\n2. second"
+        )
+    }
+
+    @Test
+    fun parsesLinksAndImages() {
+        assertParsed(
+            "<p><a href=\"http://plaid.io\">Plaid <em>app</em></a> " +
+                "<img src=\"http://plaid.io/a.png\" alt=\"alt\" title=\"title\"></p>",
+            "[Plaid *app*](http://plaid.io \"title\") ![alt](http://plaid.io/a.png \"title\")"
+        )
+    }
+
+    @Test
+    fun parsesAutolinks() {
+        assertParsed(
+            "<p>see <auto href=\"https://plaid.io/x\">https://plaid.io/x</auto>, " +
+                "<auto href=\"http://www.plaid.io\">www.plaid.io</auto> or " +
+                "<auto href=\"me@plaid.io\">me@plaid.io</auto>.</p>",
+            "see https://plaid.io/x, www.plaid.io or <me@plaid.io>."
+        )
+    }
+
+    @Test
+    fun limitsNesting() {
+        // Given a deeply nested quote
+        val markdown = ">".repeat(1000) + " deep"
+
+        // When parsing it, then it doesn't overflow the stack
+        val html = parse(markdown)
+        assertEquals(16, Regex("<blockquote>").findAll(html).count())
+    }
+
+    private fun assertParsed(expected: String, markdown: String) {
+        assertEquals(expected, parse(markdown))
+    }
+
+    private fun parse(markdown: String): String {
+        val recorder = HtmlRecorder()
+        MarkdownParser.parse(markdown, recorder)
+        return recorder.html.toString()
+    }
+
+    private class HtmlRecorder : MarkdownParser.Handler {
+
+        val html = StringBuilder()
+        private var headerLevel = 0
+        private val lists = mutableListOf<Boolean>()
+
+        override fun start(type: Type) {
+            html.append(if (type == Type.TRIPLE_EMPHASIS) "<strong><em>" else "<${tagOf(type)}>")
+        }
+
+        override fun startHeader(level: Int) {
+            html.append("<h$level>")
+            headerLevel = level
+        }
+
+        override fun startList(ordered: Boolean) {
+            html.append(if (ordered) "<ol>" else "<ul>")
+            lists.add(ordered)
+        }
+
+        override fun startLink(type: Type, link: String) {
+            html.append("<${tagOf(type)} href=\"$link\">")
+        }
+
+        override fun end(type: Type) {
+            html.append(
+                when (type) {
+                    Type.HEADER -> "</h$headerLevel>"
+                    Type.LIST -> if (lists.removeAt(lists.lastIndex)) "</ol>" else "</ul>"
+                    Type.TRIPLE_EMPHASIS -> "</em></strong>"
+                    else -> "</${tagOf(type)}>"
+                }
+            )
+        }
+
+        override fun text(text: CharSequence) {
+            html.append(text)
+        }
+
+        override fun image(link: String, alt: String?, title: String?) {
+            html.append("<img src=\"$link\" alt=\"$alt\" title=\"$title\">")
+        }
+
+        override fun hrule() {
+            html.append("<hr>")
+        }
+
+        override fun lineBreak() {
+            html.append("<br>")
+        }
+
+        private fun tagOf(type: Type) = when (type) {
+            Type.PARAGRAPH -> "p"
+            Type.BLOCK_QUOTE -> "blockquote"
+            Type.BLOCK_CODE -> "pre"
+            Type.LIST_ITEM -> "li"
+            Type.EMPHASIS -> "em"
+            Type.DOUBLE_EMPHASIS -> "strong"
+            Type.CODE_SPAN -> "code"
+            Type.STRIKETHROUGH -> "del"
+            Type.LINK -> "a"
+            Type.AUTOLINK -> "auto"
+            else -> throw IllegalArgumentException("Unexpected element $type")
+        }
+    }
+}